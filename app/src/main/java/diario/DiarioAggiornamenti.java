@@ -0,0 +1,130 @@
+package diario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sorveglia il file dei prezzi e i file dei ricettari e, quando uno cambia,
+ * rilegge solo quel file: per i prezzi vengono pubblicate solo le differenze,
+ * per i ricettari viene sostituito solo il ricettario del tipo di pasto coinvolto
+ */
+class SorveglianteFile implements Closeable {
+    /**
+     * Riceve gli aggiornamenti applicati. I metodi vengono invocati dal thread
+     * di sorveglianza, non dall'EDT
+     */
+    interface Ascoltatore {
+        void prezziAggiornati(VariazionePrezzi variazione);
+        
+        void ricettarioAggiornato(TipoPasto tipo);
+    }
+    
+    // Attesa dopo il primo evento, per raccogliere le scritture multiple degli editor
+    private static final long ATTESA_STABILIZZAZIONE_MS = 200;
+    
+    private final GestoreRicette gestore;
+    private final Ascoltatore ascoltatore;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> cartelle = new HashMap<>();
+    private final Path filePrezzi;
+    private final Map<Path, TipoPasto> fileRicettari = new HashMap<>();
+    private final Thread thread;
+    
+    public SorveglianteFile(GestoreRicette gestore, String filePrezzi, Ascoltatore ascoltatore) throws IOException {
+        this.gestore = gestore;
+        this.ascoltatore = ascoltatore;
+        this.filePrezzi = Paths.get(filePrezzi).toAbsolutePath().normalize();
+        for (TipoPasto tipo : TipoPasto.values()) {
+            fileRicettari.put(Paths.get(tipo.getNomeFile()).toAbsolutePath().normalize(), tipo);
+        }
+        
+        // Una registrazione per ogni cartella che contiene file sorvegliati
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> daSorvegliare = new HashSet<>();
+        daSorvegliare.add(this.filePrezzi.getParent());
+        for (Path file : fileRicettari.keySet()) {
+            daSorvegliare.add(file.getParent());
+        }
+        for (Path cartella : daSorvegliare) {
+            WatchKey chiave = cartella.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            cartelle.put(chiave, cartella);
+        }
+        
+        thread = new Thread(this::sorveglia, "sorveglianza-file");
+        thread.setDaemon(true);
+    }
+    
+    public void avvia() {
+        thread.start();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+    
+    private void sorveglia() {
+        try {
+            while (true) {
+                WatchKey chiave = watchService.take();
+                Thread.sleep(ATTESA_STABILIZZAZIONE_MS);
+                
+                // Raccoglie tutti i file cambiati, ognuno una sola volta
+                Set<Path> modificati = new LinkedHashSet<>();
+                while (chiave != null) {
+                    Path cartella = cartelle.get(chiave);
+                    for (WatchEvent<?> evento : chiave.pollEvents()) {
+                        if (evento.context() instanceof Path) {
+                            modificati.add(cartella.resolve((Path) evento.context()).normalize());
+                        }
+                    }
+                    chiave.reset();
+                    chiave = watchService.poll();
+                }
+                
+                for (Path file : modificati) {
+                    aggiorna(file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Sorveglianza terminata
+        }
+    }
+    
+    private void aggiorna(Path file) {
+        try {
+            if (file.equals(filePrezzi)) {
+                VariazionePrezzi variazione = gestore.ricaricaPrezzi(file.toString());
+                if (!variazione.isVuota()) {
+                    System.out.println("Aggiornati " + variazione.getIdNomiModificati().length
+                        + " prezzi da " + file.getFileName());
+                    ascoltatore.prezziAggiornati(variazione);
+                }
+            } else if (fileRicettari.containsKey(file)) {
+                TipoPasto tipo = fileRicettari.get(file);
+                gestore.ricaricaRicettePerTipo(tipo, file.toString());
+                System.out.println("Ricaricato ricettario per " + tipo.getNome() + " da " + file.getFileName());
+                ascoltatore.ricettarioAggiornato(tipo);
+            }
+        } catch (IOException e) {
+            // Il file può essere ancora in scrittura: verrà riletto al prossimo evento
+            System.err.println("Errore nel ricaricamento di " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
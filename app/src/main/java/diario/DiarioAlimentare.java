@@ -0,0 +1,327 @@
+package diario;
+
+import javax.swing.*;
+import java.awt.Font;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class DiarioAlimentare {
+    static final String FILE_PREZZI = "volantino.txt";
+
+    public static void main(String[] args) {
+        // Metriche esportate come eventi JFR e, se richiesto, in un file aggiornato periodicamente
+        EsportatoreMetriche.avviaDaProprietaDiSistema();
+        
+        // Modalità senza interfaccia grafica per generare liste della spesa in blocco
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            int codice = EsecuzioneBatch.esegui(Arrays.copyOfRange(args, 1, args.length));
+            if (codice != 0) {
+                System.exit(codice);
+            }
+            return;
+        }
+        
+        GestoreRicette gestore = new GestoreRicette();
+        try {
+            gestore.setModalitaCaricamento(ModalitaCaricamento.daProprietaDiSistema());
+            gestore.setCapacitaRicetteMaterializzate(RicettarioMappato.capacitaDaProprietaDiSistema());
+            gestore.setArchivioIngredienti(ArchivioIngredienti.daProprietaDiSistema());
+            if (ModalitaImportazione.daProprietaDiSistema() == ModalitaImportazione.TOLLERANTE) {
+                gestore.setRapportoImportazione(new RapportoImportazione());
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Valore non valido: " + e.getMessage());
+            System.exit(2);
+        }
+        SplashCaricamento[] splash = new SplashCaricamento[1];
+        
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                try {
+                    UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+                    configureUIDefaults(); // Estratto in un metodo separato
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                
+                // Lo splash mostra l'avanzamento mentre i file vengono caricati fuori dall'EDT
+                splash[0] = new SplashCaricamento(PipelineAvvio.fileDaCaricare(FILE_PREZZI));
+                splash[0].setVisible(true);
+            });
+        } catch (InterruptedException | InvocationTargetException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        
+        // Caricamento dati prima di creare la GUI: i ricettari vengono letti in parallelo
+        // sul pool della pipeline mentre il thread principale attende, mai sull'EDT
+        try {
+            new PipelineAvvio(gestore, FILE_PREZZI, PipelineAvvio.fileSnapshotDaProprietaDiSistema())
+                .esegui(splash[0]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            SwingUtilities.invokeLater(() -> {
+                splash[0].dispose();
+                JOptionPane.showMessageDialog(null, 
+                    "Errore nel caricamento dei file: " + e.getMessage(), 
+                    "Errore", JOptionPane.ERROR_MESSAGE);
+                // In caso di errore critico, usciamo dall'applicazione
+                System.exit(1);
+            });
+            return;
+        }
+        
+        SwingUtilities.invokeLater(() -> {
+            DiarioGUI gui = new DiarioGUI(gestore);
+            splash[0].dispose();
+            gui.setVisible(true);
+            mostraRapportoImportazione(gestore.getRapportoImportazione(), gui);
+            avviaSorveglianza(gestore, gui);
+        });
+    }
+    
+    /**
+     * Riporta su System.err le righe scartate da un'importazione tollerante
+     * e ne mostra un riepilogo all'utente
+     */
+    private static void mostraRapportoImportazione(RapportoImportazione rapporto, DiarioGUI gui) {
+        if (rapporto == null || rapporto.isVuoto()) {
+            return;
+        }
+        System.err.print(rapporto.riepilogo());
+        StringBuilder messaggio = new StringBuilder(String.format(
+            "Importazione completata con %d segnalazioni (%d righe scartate su %d).%n",
+            rapporto.getTotaleDiagnostiche(), rapporto.getRigheScartate(), rapporto.getRigheLette()));
+        List<Diagnostica> diagnostiche = rapporto.getDiagnostiche();
+        for (Diagnostica diagnostica : diagnostiche.subList(0, Math.min(10, diagnostiche.size()))) {
+            messaggio.append(System.lineSeparator()).append(diagnostica);
+        }
+        if (rapporto.getTotaleDiagnostiche() > 10) {
+            messaggio.append(System.lineSeparator()).append("... l'elenco completo è su System.err");
+        }
+        JOptionPane.showMessageDialog(gui, messaggio.toString(), "Importazione tollerante", JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Avvia l'aggiornamento automatico di prezzi e ricettari quando i file cambiano,
+     * disattivabile con -Ddiario.sorveglianza=false
+     */
+    private static void avviaSorveglianza(GestoreRicette gestore, DiarioGUI gui) {
+        if (!Boolean.parseBoolean(System.getProperty("diario.sorveglianza", "true"))) {
+            return;
+        }
+        try {
+            new SorveglianteFile(gestore, FILE_PREZZI, gui).avvia();
+        } catch (IOException e) {
+            System.err.println("Aggiornamento automatico dei file non disponibile: " + e.getMessage());
+        }
+    }
+    
+    // Configurazione centralizzata dello stile UI
+    private static void configureUIDefaults() {
+        try {
+            UIManager.put("Button.arc", 8);
+            UIManager.put("Component.arc", 8);
+            UIManager.put("ProgressBar.arc", 8);
+            UIManager.put("TextComponent.arc", 8);
+            
+            UIManager.put("Component.focusWidth", 1);
+            UIManager.put("Button.borderWidth", 1);
+            UIManager.put("Button.innerFocusWidth", 1);
+            
+            // Cerca Nimbus look and feel
+            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+            
+            // Aggiorna i font predefiniti
+            Font defaultFont = new Font("Segoe UI", Font.PLAIN, 12);
+            UIDefaults defaults = UIManager.getLookAndFeelDefaults();
+            String[] components = {"Label", "Button", "TextField", "ComboBox", "List"};
+            for (String component : components) {
+                defaults.put(component + ".font", defaultFont);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
+
+/**
+ * Pipeline di avvio: carica i ricettari di tutti i tipi di pasto in parallelo
+ * su un pool di thread, applica i prezzi solo quando tutti i ricettari sono pronti
+ * e notifica un ascoltatore dell'avanzamento di ogni file
+ */
+class PipelineAvvio {
+    /**
+     * Riceve gli aggiornamenti sul caricamento dei singoli file.
+     * I metodi vengono invocati dai thread del pool, non dall'EDT
+     */
+    interface Ascoltatore {
+        void caricamentoIniziato(String nomeFile);
+        
+        /**
+         * @param elementi le ricette lette per un ricettario, i prezzi per il volantino
+         */
+        void caricamentoCompletato(String nomeFile, int elementi, long durataNanos);
+    }
+    
+    private final GestoreRicette gestore;
+    private final String filePrezzi;
+    private final String fileSnapshot; // null se lo snapshot binario è disattivato
+    
+    public PipelineAvvio(GestoreRicette gestore, String filePrezzi) {
+        this(gestore, filePrezzi, null);
+    }
+    
+    public PipelineAvvio(GestoreRicette gestore, String filePrezzi, String fileSnapshot) {
+        this.gestore = gestore;
+        this.filePrezzi = filePrezzi;
+        this.fileSnapshot = fileSnapshot;
+    }
+    
+    /**
+     * Snapshot binario indicato dalla proprietà "diario.snapshot", con un valore
+     * predefinito; una proprietà vuota disattiva lo snapshot
+     */
+    public static String fileSnapshotDaProprietaDiSistema() {
+        String valore = System.getProperty("diario.snapshot", ".diario-cache.bin");
+        return valore.isBlank() ? null : valore;
+    }
+    
+    /**
+     * Elenco dei file letti dalla pipeline, nell'ordine in cui vengono mostrati
+     */
+    public static List<String> fileDaCaricare(String filePrezzi) {
+        List<String> file = new ArrayList<>();
+        for (TipoPasto tipo : TipoPasto.values()) {
+            file.add(tipo.getNomeFile());
+        }
+        file.add(filePrezzi);
+        return file;
+    }
+    
+    /**
+     * Esegue la pipeline e ritorna quando ricettari e prezzi sono stati caricati
+     */
+    public void esegui(Ascoltatore ascoltatore) throws IOException {
+        TipoPasto[] tipi = TipoPasto.values();
+        int numeroThread = Math.min(tipi.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numeroThread), r -> {
+            Thread t = new Thread(r, "caricamento-ricettari");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        // Nell'importazione tollerante i file vengono sempre riletti, così ogni riga
+        // scartata finisce nel rapporto, e lo snapshot non viene né letto né salvato
+        RapportoImportazione rapporto = gestore.getRapportoImportazione();
+        String fileSnapshot = rapporto == null ? this.fileSnapshot : null;
+        
+        // I file non modificati dall'ultimo avvio vengono letti dallo snapshot binario
+        SnapshotRicettario snapshot = fileSnapshot != null ? SnapshotRicettario.apri(Paths.get(fileSnapshot)) : null;
+        AtomicBoolean snapshotDaAggiornare = new AtomicBoolean(fileSnapshot != null && snapshot == null);
+        gestore.setSnapshotDaSalvare(fileSnapshot != null);
+        
+        try {
+            // Ogni tipo di pasto scrive solo nel proprio ricettario, quindi i file
+            // possono essere letti contemporaneamente
+            List<Future<?>> caricamenti = new ArrayList<>();
+            for (TipoPasto tipo : tipi) {
+                caricamenti.add(pool.submit(() -> {
+                    String nomeFile = tipo.getNomeFile();
+                    ascoltatore.caricamentoIniziato(nomeFile);
+                    long inizio = System.nanoTime();
+                    boolean daSnapshot;
+                    try {
+                        daSnapshot = gestore.caricaRicettePerTipo(tipo, nomeFile, snapshot);
+                    } catch (IOException e) {
+                        if (rapporto == null) throw e;
+                        // Il tipo di pasto resta senza ricette e il caricamento prosegue
+                        rapporto.aggiungi(Diagnostica.perFile(nomeFile, e));
+                        ascoltatore.caricamentoCompletato(nomeFile, 0, System.nanoTime() - inizio);
+                        return null;
+                    }
+                    long durata = System.nanoTime() - inizio;
+                    ascoltatore.caricamentoCompletato(nomeFile, gestore.getRicettario(tipo).size(), durata);
+                    System.out.println("Caricato ricettario per " + tipo.getNome() + " da " + nomeFile
+                        + (daSnapshot ? " (snapshot)" : ""));
+                    if (!daSnapshot && snapshot != null) {
+                        snapshotDaAggiornare.set(true);
+                    }
+                    return null;
+                }));
+            }
+            
+            for (Future<?> caricamento : caricamenti) {
+                attendi(caricamento);
+            }
+            
+            // I prezzi vengono applicati una sola volta, a ricettari completi
+            ascoltatore.caricamentoIniziato(filePrezzi);
+            long inizio = System.nanoTime();
+            try {
+                boolean daSnapshot = gestore.caricaPrezzi(filePrezzi, snapshot);
+                long durata = System.nanoTime() - inizio;
+                // A ricettari appena caricati il listino contiene solo i prezzi del volantino
+                ascoltatore.caricamentoCompletato(filePrezzi, IngredienteFactory.getListino().numeroPrezzi(), durata);
+                System.out.println("Caricati prezzi degli ingredienti da " + filePrezzi
+                    + (daSnapshot ? " (snapshot)" : ""));
+                if (!daSnapshot && snapshot != null) {
+                    snapshotDaAggiornare.set(true);
+                }
+            } catch (IOException e) {
+                if (rapporto == null) throw e;
+                // Senza volantino i costi restano a zero
+                rapporto.aggiungi(Diagnostica.perFile(filePrezzi, e));
+                ascoltatore.caricamentoCompletato(filePrezzi, 0, System.nanoTime() - inizio);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        if (snapshotDaAggiornare.get()) {
+            try {
+                gestore.salvaSnapshot(fileSnapshot);
+            } catch (IOException e) {
+                // Lo snapshot è solo un'ottimizzazione: l'avvio prosegue comunque
+                System.err.println("Impossibile salvare lo snapshot " + fileSnapshot + ": " + e.getMessage());
+            }
+        }
+        // Lo snapshot viene salvato solo all'avvio: le ricariche successive non servono impronte
+        gestore.setSnapshotDaSalvare(false);
+    }
+    
+    /**
+     * Attende un caricamento riportando gli errori di I/O come IOException
+     */
+    private static void attendi(Future<?> caricamento) throws IOException {
+        try {
+            caricamento.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Caricamento interrotto", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException(causa);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package diario;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Esecuzione senza interfaccia grafica: genera la lista della spesa di ogni
+ * file di piano di una cartella e la scrive in CSV o JSON in una cartella di
+ * uscita. I piani vengono elaborati in parallelo, su thread virtuali quando
+ * il runtime li supporta, e al termine vengono riportati throughput e
+ * percentili della latenza per piano
+ */
+class EsecuzioneBatch {
+    static final String ESTENSIONE_PIANI = ".piano";
+    private static final String NUCLEO_PREDEFINITO = "Famiglia";
+
+    enum Formato {
+        CSV, JSON;
+
+        String getEstensione() {
+            return "." + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final GestoreRicette gestore;
+    private final Formato formato;
+    private final int numeroThread; // 0 per usare i thread virtuali se disponibili
+
+    EsecuzioneBatch(GestoreRicette gestore, Formato formato, int numeroThread) {
+        this.gestore = gestore;
+        this.formato = formato;
+        this.numeroThread = numeroThread;
+    }
+
+    /**
+     * Punto di ingresso da riga di comando:
+     * --batch cartellaPiani cartellaUscita [--formato csv|json] [--thread n] [--tollerante]
+     * @return il codice di uscita, diverso da 0 se almeno un piano non è stato elaborato
+     */
+    static int esegui(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: --batch <cartella piani> <cartella uscita> [--formato csv|json] [--thread n] [--tollerante]");
+            return 2;
+        }
+        Formato formato = Formato.CSV;
+        int numeroThread = 0;
+        ModalitaImportazione importazione;
+        GestoreRicette gestore = new GestoreRicette();
+        try {
+            gestore.setModalitaCaricamento(ModalitaCaricamento.daProprietaDiSistema());
+            gestore.setCapacitaRicetteMaterializzate(RicettarioMappato.capacitaDaProprietaDiSistema());
+            gestore.setArchivioIngredienti(ArchivioIngredienti.daProprietaDiSistema());
+            importazione = ModalitaImportazione.daProprietaDiSistema();
+            for (int i = 2; i < args.length; i++) {
+                if ("--formato".equals(args[i]) && i + 1 < args.length) {
+                    formato = Formato.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                } else if ("--thread".equals(args[i]) && i + 1 < args.length) {
+                    numeroThread = Integer.parseInt(args[++i]);
+                } else if ("--tollerante".equals(args[i])) {
+                    importazione = ModalitaImportazione.TOLLERANTE;
+                } else {
+                    System.err.println("Opzione non riconosciuta: " + args[i]);
+                    return 2;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Valore non valido: " + e.getMessage());
+            return 2;
+        }
+
+        RapportoImportazione rapporto = null;
+        if (importazione == ModalitaImportazione.TOLLERANTE) {
+            rapporto = new RapportoImportazione();
+            gestore.setRapportoImportazione(rapporto);
+        }
+        try {
+            new PipelineAvvio(gestore, DiarioAlimentare.FILE_PREZZI, PipelineAvvio.fileSnapshotDaProprietaDiSistema())
+                .esegui(new PipelineAvvio.Ascoltatore() {
+                    @Override
+                    public void caricamentoIniziato(String nomeFile) {}
+
+                    @Override
+                    public void caricamentoCompletato(String nomeFile, int elementi, long durataNanos) {}
+                });
+            if (rapporto != null && !rapporto.isVuoto()) {
+                System.err.print(rapporto.riepilogo());
+            }
+            return new EsecuzioneBatch(gestore, formato, numeroThread)
+                .elabora(Paths.get(args[0]), Paths.get(args[1]));
+        } catch (IOException e) {
+            System.err.println("Errore nel caricamento dei file: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Elabora tutti i piani della cartella e stampa il riepilogo
+     * @return 0 se tutti i piani sono stati elaborati, 1 altrimenti
+     */
+    int elabora(Path cartellaPiani, Path cartellaUscita) throws IOException {
+        List<Path> piani = new ArrayList<>();
+        try (DirectoryStream<Path> file = Files.newDirectoryStream(cartellaPiani, "*" + ESTENSIONE_PIANI)) {
+            file.forEach(piani::add);
+        }
+        piani.sort(null);
+        Files.createDirectories(cartellaUscita);
+
+        long[] latenze = new long[piani.size()];
+        int errori = 0;
+        long inizio = System.nanoTime();
+
+        ExecutorService esecutore = creaEsecutore();
+        try {
+            List<Future<Long>> elaborazioni = new ArrayList<>();
+            for (Path piano : piani) {
+                elaborazioni.add(esecutore.submit(() -> {
+                    long inizioPiano = System.nanoTime();
+                    elaboraPiano(piano, cartellaUscita);
+                    return System.nanoTime() - inizioPiano;
+                }));
+            }
+            for (int i = 0; i < elaborazioni.size(); i++) {
+                try {
+                    latenze[i] = elaborazioni.get(i).get();
+                } catch (ExecutionException e) {
+                    latenze[i] = -1;
+                    errori++;
+                    System.err.println("Errore nel piano " + piani.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Elaborazione interrotta", e);
+        } finally {
+            esecutore.shutdownNow();
+        }
+
+        long durata = System.nanoTime() - inizio;
+        stampaRiepilogo(piani.size() - errori, errori, durata, latenze);
+        return errori == 0 ? 0 : 1;
+    }
+
+    /**
+     * Legge un piano, ne genera la lista della spesa e la scrive nella cartella di uscita
+     */
+    void elaboraPiano(Path filePiano, Path cartellaUscita) throws IOException {
+        PianoPasti piano = leggiPiano(filePiano);
+        Map<String, Ingrediente> listaSpesa = gestore.generaListaSpesa(piano);
+
+        // Tutti i costi del piano vengono letti dallo stesso listino
+        ListinoPrezzi listino = IngredienteFactory.getListino();
+        double costoTotale = gestore.calcolaCostoTotale(listaSpesa, listino);
+
+        String nome = filePiano.getFileName().toString();
+        nome = nome.substring(0, nome.length() - ESTENSIONE_PIANI.length());
+        Path uscita = cartellaUscita.resolve(nome + formato.getEstensione());
+        try (BufferedWriter out = Files.newBufferedWriter(uscita)) {
+            if (formato == Formato.CSV) {
+                scriviCsv(out, listaSpesa, listino, costoTotale);
+            } else {
+                scriviJson(out, nome, piano, listaSpesa, listino, costoTotale);
+            }
+        }
+    }
+
+    /**
+     * Legge un file di piano. Ogni riga è "data, pasto, ricetta" con la data
+     * in formato ISO; una riga "nucleo: nome" assegna le righe seguenti a un
+     * nucleo. Le righe vuote e quelle che iniziano con # vengono ignorate
+     */
+    PianoPasti leggiPiano(Path filePiano) throws IOException {
+        List<VocePiano> voci = new ArrayList<>();
+        List<String> nuclei = new ArrayList<>();
+        String nucleoCorrente = NUCLEO_PREDEFINITO;
+        LocalDate primoGiorno = null, ultimoGiorno = null;
+        int numeroRiga = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(filePiano)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                numeroRiga++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                if (line.regionMatches(true, 0, "nucleo:", 0, 7)) {
+                    nucleoCorrente = line.substring(7).trim();
+                    continue;
+                }
+
+                String[] parti = line.split(",", 3);
+                if (parti.length < 3) {
+                    throw new IOException(filePiano + ":" + numeroRiga + ": attesi data, pasto e ricetta");
+                }
+                LocalDate data;
+                try {
+                    data = LocalDate.parse(parti[0].trim());
+                } catch (DateTimeParseException e) {
+                    throw new IOException(filePiano + ":" + numeroRiga + ": data non valida " + parti[0].trim());
+                }
+                if (!nuclei.contains(nucleoCorrente)) {
+                    nuclei.add(nucleoCorrente);
+                }
+                primoGiorno = primoGiorno == null || data.isBefore(primoGiorno) ? data : primoGiorno;
+                ultimoGiorno = ultimoGiorno == null || data.isAfter(ultimoGiorno) ? data : ultimoGiorno;
+                voci.add(new VocePiano(filePiano + ":" + numeroRiga, nucleoCorrente, data, parti[1].trim(), parti[2].trim()));
+            }
+        }
+
+        if (voci.isEmpty()) {
+            return new PianoPasti(LocalDate.now(), 1, List.of(NUCLEO_PREDEFINITO));
+        }
+
+        int settimane = (int) (ChronoUnit.DAYS.between(primoGiorno, ultimoGiorno) / 7 + 1);
+        PianoPasti piano = new PianoPasti(primoGiorno, settimane, nuclei);
+        for (VocePiano voce : voci) {
+            TipoPasto tipo = Arrays.stream(TipoPasto.values())
+                .filter(t -> t.getNome().equalsIgnoreCase(voce.pasto) || t.name().equalsIgnoreCase(voce.pasto))
+                .findFirst()
+                .orElseThrow(() -> new IOException(voce.posizione + ": pasto sconosciuto " + voce.pasto));
+            Ricetta ricetta = gestore.getRicettaPerNome(tipo, voce.ricetta)
+                .orElseThrow(() -> new IOException(voce.posizione + ": ricetta sconosciuta per " + tipo.getNome() + ": " + voce.ricetta));
+            if (!piano.aggiungiRicetta(piano.indiceNucleo(voce.nucleo), voce.data, tipo, ricetta)) {
+                System.err.println(voce.posizione + ": superato il limite di " + tipo.getMaxRicette()
+                    + " ricette per " + tipo.getNome().toLowerCase() + ", ricetta ignorata");
+            }
+        }
+        return piano;
+    }
+
+    /**
+     * Riga di un file di piano letta ma non ancora risolta
+     */
+    private static final class VocePiano {
+        final String posizione; // file e numero di riga, per i messaggi di errore
+        final String nucleo;
+        final LocalDate data;
+        final String pasto;
+        final String ricetta;
+
+        VocePiano(String posizione, String nucleo, LocalDate data, String pasto, String ricetta) {
+            this.posizione = posizione;
+            this.nucleo = nucleo;
+            this.data = data;
+            this.pasto = pasto;
+            this.ricetta = ricetta;
+        }
+    }
+
+    private static void scriviCsv(Writer out, Map<String, Ingrediente> listaSpesa,
+                                  ListinoPrezzi listino, double costoTotale) throws IOException {
+        out.write("ingrediente,quantita,unita,prezzo_unitario,confezioni,costo\n");
+        for (Ingrediente ingrediente : listaSpesa.values()) {
+            out.write(campoCsv(ingrediente.getNome()));
+            out.write(String.format(Locale.ROOT, ",%.3f,%s,%.2f,%d,%.2f\n",
+                ingrediente.getQuantita(),
+                campoCsv(ingrediente.getUnita()),
+                ingrediente.getPrezzo(listino),
+                ingrediente.getNumeroConfezioni(listino),
+                ingrediente.getCostoAcquisto(listino)));
+        }
+        out.write(String.format(Locale.ROOT, "TOTALE,,,,,%.2f\n", costoTotale));
+    }
+
+    private static void scriviJson(Writer out, String nome, PianoPasti piano, Map<String, Ingrediente> listaSpesa,
+                                   ListinoPrezzi listino, double costoTotale) throws IOException {
+        out.write("{\"piano\":" + stringaJson(nome));
+        out.write(",\"inizio\":\"" + piano.getInizio() + "\",\"fine\":\"" + piano.getFine() + "\"");
+        out.write(",\"nuclei\":" + piano.getNumeroNuclei());
+        out.write(String.format(Locale.ROOT, ",\"costoTotale\":%.2f", costoTotale));
+        out.write(",\"ingredienti\":[");
+        boolean primo = true;
+        for (Ingrediente ingrediente : listaSpesa.values()) {
+            out.write(primo ? "\n" : ",\n");
+            primo = false;
+            out.write("{\"nome\":" + stringaJson(ingrediente.getNome()));
+            out.write(String.format(Locale.ROOT,
+                ",\"quantita\":%.3f,\"unita\":%s,\"prezzoUnitario\":%.2f,\"confezioni\":%d,\"costo\":%.2f}",
+                ingrediente.getQuantita(),
+                stringaJson(ingrediente.getUnita()),
+                ingrediente.getPrezzo(listino),
+                ingrediente.getNumeroConfezioni(listino),
+                ingrediente.getCostoAcquisto(listino)));
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String campoCsv(String valore) {
+        if (valore.indexOf(',') < 0 && valore.indexOf('"') < 0 && valore.indexOf('\n') < 0) {
+            return valore;
+        }
+        return "\"" + valore.replace("\"", "\"\"") + "\"";
+    }
+
+    static String stringaJson(String valore) {
+        StringBuilder sb = new StringBuilder(valore.length() + 2).append('"');
+        for (int i = 0; i < valore.length(); i++) {
+            char c = valore.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Un thread virtuale per piano se il runtime li supporta, altrimenti un pool
+     * fisso con un thread per processore; --thread impone un pool fisso
+     */
+    private ExecutorService creaEsecutore() {
+        if (numeroThread <= 0) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Runtime senza thread virtuali: si usa il pool fisso
+            }
+        }
+        int dimensione = numeroThread > 0 ? numeroThread : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(dimensione, r -> {
+            Thread t = new Thread(r, "elaborazione-piani");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static void stampaRiepilogo(int elaborati, int errori, long durataNanos, long[] latenze) {
+        long[] riuscite = Arrays.stream(latenze).filter(l -> l >= 0).sorted().toArray();
+        double secondi = durataNanos / 1e9;
+        System.out.printf(Locale.ROOT, "Piani elaborati: %d, errori: %d, tempo: %.3f s, throughput: %.1f piani/s%n",
+            elaborati, errori, secondi, secondi > 0 ? elaborati / secondi : 0.0);
+        if (riuscite.length > 0) {
+            System.out.printf(Locale.ROOT, "Latenza per piano (ms): p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                percentile(riuscite, 50) / 1e6, percentile(riuscite, 90) / 1e6,
+                percentile(riuscite, 99) / 1e6, riuscite[riuscite.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Percentile con il metodo nearest-rank su valori ordinati
+     */
+    static long percentile(long[] ordinati, double percentile) {
+        int rango = (int) Math.ceil(percentile / 100.0 * ordinati.length);
+        return ordinati[Math.max(0, Math.min(ordinati.length, rango) - 1)];
+    }
+}
@@ -0,0 +1,231 @@
+package diario;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Classificatore degli ingredienti nelle categorie della lista della spesa.
+ * Le parole chiave della tabella vengono compilate una sola volta in un automa
+ * di Aho-Corasick, che trova tutte le parole contenute in un nome con una sola
+ * scansione. Tra più parole trovate vince la più lunga, poi quella che compare
+ * prima nel nome, poi quella elencata prima nella tabella, così il risultato
+ * non dipende dall'ordine di una HashMap. Il risultato viene memorizzato per
+ * identificativo del nome di ingrediente
+ */
+final class ClassificatoreCategorie {
+    static final String FILE_PREDEFINITO = "categorie.txt";
+    static final String CATEGORIA_ALTRI = " Altri Prodotti";
+    
+    private static final int NON_CALCOLATA = -2;
+    private static final int NESSUNA = -1;
+    
+    private final List<String> categorie = new ArrayList<>();
+    
+    // Per ogni parola chiave, nell'ordine della tabella: lunghezza e categoria
+    private final int[] lunghezzaParola;
+    private final int[] categoriaParola;
+    
+    // Automa: transizioni per stato, stato di fallimento e parole che terminano in ogni stato
+    private final List<Map<Character, Integer>> transizioni = new ArrayList<>();
+    private final int[] fallimento;
+    private final int[][] paroleFinali;
+    
+    // Categoria già calcolata per identificativo del nome, protetta da this
+    private int[] categoriaPerNome = new int[0];
+    
+    private ClassificatoreCategorie(Map<String, List<String>> tabella) {
+        List<String> parole = new ArrayList<>();
+        List<Integer> categoriaDi = new ArrayList<>();
+        for (Map.Entry<String, List<String>> voce : tabella.entrySet()) {
+            int categoria = categorie.size();
+            categorie.add(voce.getKey());
+            for (String parola : voce.getValue()) {
+                String normalizzata = parola.trim().toLowerCase(Locale.ROOT);
+                if (!normalizzata.isEmpty()) {
+                    parole.add(normalizzata);
+                    categoriaDi.add(categoria);
+                }
+            }
+        }
+        
+        lunghezzaParola = new int[parole.size()];
+        categoriaParola = new int[parole.size()];
+        
+        // Trie delle parole chiave
+        List<List<Integer>> finali = new ArrayList<>();
+        transizioni.add(new HashMap<>());
+        finali.add(new ArrayList<>());
+        for (int p = 0; p < parole.size(); p++) {
+            String parola = parole.get(p);
+            lunghezzaParola[p] = parola.length();
+            categoriaParola[p] = categoriaDi.get(p);
+            int stato = 0;
+            for (int i = 0; i < parola.length(); i++) {
+                Integer prossimo = transizioni.get(stato).get(parola.charAt(i));
+                if (prossimo == null) {
+                    prossimo = transizioni.size();
+                    transizioni.add(new HashMap<>());
+                    finali.add(new ArrayList<>());
+                    transizioni.get(stato).put(parola.charAt(i), prossimo);
+                }
+                stato = prossimo;
+            }
+            finali.get(stato).add(p);
+        }
+        
+        // Collegamenti di fallimento in ampiezza; ogni stato eredita le parole del suo fallimento
+        fallimento = new int[transizioni.size()];
+        Queue<Integer> coda = new ArrayDeque<>(transizioni.get(0).values());
+        while (!coda.isEmpty()) {
+            int stato = coda.remove();
+            for (Map.Entry<Character, Integer> transizione : transizioni.get(stato).entrySet()) {
+                int figlio = transizione.getValue();
+                int ripiego = fallimento[stato];
+                while (ripiego != 0 && !transizioni.get(ripiego).containsKey(transizione.getKey())) {
+                    ripiego = fallimento[ripiego];
+                }
+                Integer destinazione = transizioni.get(ripiego).get(transizione.getKey());
+                fallimento[figlio] = destinazione != null && destinazione != figlio ? destinazione : 0;
+                finali.get(figlio).addAll(finali.get(fallimento[figlio]));
+                coda.add(figlio);
+            }
+        }
+        
+        paroleFinali = new int[finali.size()][];
+        for (int s = 0; s < paroleFinali.length; s++) {
+            paroleFinali[s] = finali.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+    
+    /**
+     * Classificatore con la tabella indicata: per ogni categoria, in ordine, le sue parole chiave
+     */
+    static ClassificatoreCategorie di(Map<String, List<String>> tabella) {
+        return new ClassificatoreCategorie(tabella);
+    }
+    
+    /**
+     * Legge la tabella da un file con righe "Categoria: parola, parola, ...".
+     * Le righe vuote e quelle che iniziano con # vengono ignorate
+     */
+    static ClassificatoreCategorie daFile(Path file) throws IOException {
+        Map<String, List<String>> tabella = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                
+                int separatore = line.indexOf(':');
+                if (separatore <= 0) {
+                    System.err.println("Riga di categoria non valida: " + line);
+                    continue;
+                }
+                tabella.computeIfAbsent(line.substring(0, separatore).trim(), k -> new ArrayList<>())
+                    .addAll(Arrays.asList(line.substring(separatore + 1).split(",")));
+            }
+        }
+        return new ClassificatoreCategorie(tabella);
+    }
+    
+    /**
+     * Classificatore del file predefinito se presente, altrimenti della tabella incorporata
+     */
+    static ClassificatoreCategorie predefinito() {
+        Path file = Paths.get(FILE_PREDEFINITO);
+        if (Files.exists(file)) {
+            try {
+                return daFile(file);
+            } catch (IOException e) {
+                System.err.println("Impossibile leggere " + FILE_PREDEFINITO + ", uso le categorie predefinite: " + e.getMessage());
+            }
+        }
+        return new ClassificatoreCategorie(tabellaIncorporata());
+    }
+    
+    private static Map<String, List<String>> tabellaIncorporata() {
+        Map<String, List<String>> tabella = new LinkedHashMap<>();
+        tabella.put("Verdure", List.of("pomodoro", "carota", "cipolla", "insalata", "zucchina", "patata"));
+        tabella.put("Panetteria", List.of("pane", "pasta", "pizza"));
+        tabella.put("Carne", List.of("carne", "pollo", "manzo", "maiale"));
+        tabella.put("Pesce", List.of("pesce", "tonno", "salmone"));
+        tabella.put("Latticini", List.of("latte", "formaggio", "yogurt", "burro"));
+        tabella.put("Frutta", List.of("mela", "banana", "arancia", "pera"));
+        tabella.put("Condimenti", List.of("olio", "sale", "pepe", "zucchero"));
+        return tabella;
+    }
+    
+    /**
+     * Categoria di un ingrediente, calcolata una sola volta per nome
+     */
+    public synchronized String classifica(Ingrediente ingrediente) {
+        int idNome = ingrediente.getIdNome();
+        if (idNome >= categoriaPerNome.length) {
+            int vecchiaDimensione = categoriaPerNome.length;
+            categoriaPerNome = Arrays.copyOf(categoriaPerNome, Math.max(idNome + 1, vecchiaDimensione * 2));
+            Arrays.fill(categoriaPerNome, vecchiaDimensione, categoriaPerNome.length, NON_CALCOLATA);
+        }
+        if (categoriaPerNome[idNome] == NON_CALCOLATA) {
+            categoriaPerNome[idNome] = cercaCategoria(ingrediente.getNome());
+        }
+        int categoria = categoriaPerNome[idNome];
+        return categoria == NESSUNA ? CATEGORIA_ALTRI : categorie.get(categoria);
+    }
+    
+    /**
+     * Categoria di un nome qualsiasi, senza memorizzazione
+     */
+    public String classifica(String nome) {
+        int categoria = cercaCategoria(nome);
+        return categoria == NESSUNA ? CATEGORIA_ALTRI : categorie.get(categoria);
+    }
+    
+    public List<String> getCategorie() {
+        return Collections.unmodifiableList(categorie);
+    }
+    
+    private int cercaCategoria(String nome) {
+        int stato = 0;
+        int migliore = -1, inizioMigliore = 0;
+        for (int i = 0; i < nome.length(); i++) {
+            char c = Character.toLowerCase(nome.charAt(i));
+            Integer prossimo;
+            while ((prossimo = transizioni.get(stato).get(c)) == null && stato != 0) {
+                stato = fallimento[stato];
+            }
+            stato = prossimo == null ? 0 : prossimo;
+            
+            for (int parola : paroleFinali[stato]) {
+                int inizio = i - lunghezzaParola[parola] + 1;
+                if (migliore < 0 || preferibile(parola, inizio, migliore, inizioMigliore)) {
+                    migliore = parola;
+                    inizioMigliore = inizio;
+                }
+            }
+        }
+        return migliore < 0 ? NESSUNA : categoriaParola[migliore];
+    }
+    
+    private boolean preferibile(int parola, int inizio, int altra, int inizioAltra) {
+        if (lunghezzaParola[parola] != lunghezzaParola[altra]) {
+            return lunghezzaParola[parola] > lunghezzaParola[altra];
+        }
+        if (inizio != inizioAltra) {
+            return inizio < inizioAltra;
+        }
+        return parola < altra;
+    }
+}
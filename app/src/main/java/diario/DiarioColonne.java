@@ -0,0 +1,158 @@
+package diario;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Dove {@link GestoreRicette} tiene gli ingredienti delle ricette caricate
+ */
+enum ArchivioIngredienti {
+    // Un oggetto Ingrediente per riga, in una lista per ricetta
+    HEAP,
+    // Righe in colonne fuori heap, lette tramite viste
+    FUORI_HEAP;
+
+    /**
+     * Legge l'archivio dalla proprietà di sistema "diario.archivio",
+     * usando lo heap se non specificato
+     */
+    public static ArchivioIngredienti daProprietaDiSistema() {
+        return ProprietaDiSistema.leggiEnum("diario.archivio", ArchivioIngredienti.class, HEAP);
+    }
+}
+
+/**
+ * Righe di ingredienti memorizzate per colonne in buffer diretti, fuori dallo
+ * heap: per ogni riga l'identificativo della coppia (nome, unità), quello del
+ * nome e la quantità, 16 byte in tutto. Il prezzo non è una colonna perché
+ * dipende dal listino corrente, indicizzato per identificativo del nome.
+ * Le righe si aggiungono solo in coda e le ricette ne occupano intervalli
+ * contigui. I buffer sono blocchi di dimensione fissa, così la crescita non
+ * copia le righe esistenti; vengono liberati quando il contenitore non è più
+ * raggiungibile e contano nel limite -XX:MaxDirectMemorySize.
+ * Le aggiunte vanno fatte da un solo thread; le righe già pubblicate possono
+ * essere lette da più thread
+ */
+final class ColonneIngredienti {
+    private static final int BIT_RIGHE_PER_BLOCCO = 15;
+    private static final int RIGHE_PER_BLOCCO = 1 << BIT_RIGHE_PER_BLOCCO;
+    private static final int MASCHERA_RIGA = RIGHE_PER_BLOCCO - 1;
+
+    // Posizione di ogni colonna all'interno di un blocco
+    private static final int INIZIO_ID_COPPIA = 0;
+    private static final int INIZIO_ID_NOME = RIGHE_PER_BLOCCO * Integer.BYTES;
+    private static final int INIZIO_QUANTITA = INIZIO_ID_NOME + RIGHE_PER_BLOCCO * Integer.BYTES;
+    private static final int BYTE_PER_BLOCCO = INIZIO_QUANTITA + RIGHE_PER_BLOCCO * Double.BYTES;
+
+    private volatile ByteBuffer[] blocchi = new ByteBuffer[4];
+    private volatile int dimensione = 0;
+
+    /**
+     * Aggiunge una riga in coda
+     * @return la posizione della riga
+     */
+    public int aggiungi(Ingrediente ingrediente) {
+        int riga = dimensione;
+        int indiceBlocco = riga >>> BIT_RIGHE_PER_BLOCCO;
+        ByteBuffer[] correnti = blocchi;
+        if (indiceBlocco == correnti.length) {
+            correnti = Arrays.copyOf(correnti, correnti.length * 2);
+        }
+        if (correnti[indiceBlocco] == null) {
+            correnti[indiceBlocco] = ByteBuffer.allocateDirect(BYTE_PER_BLOCCO).order(ByteOrder.nativeOrder());
+        }
+        ByteBuffer blocco = correnti[indiceBlocco];
+        int posizione = riga & MASCHERA_RIGA;
+        blocco.putInt(INIZIO_ID_COPPIA + posizione * Integer.BYTES, ingrediente.getId());
+        blocco.putInt(INIZIO_ID_NOME + posizione * Integer.BYTES, ingrediente.getIdNome());
+        blocco.putDouble(INIZIO_QUANTITA + posizione * Double.BYTES, ingrediente.getQuantita());
+
+        // Le scritture volatili pubblicano la riga a chi legge la nuova dimensione
+        blocchi = correnti;
+        dimensione = riga + 1;
+        return riga;
+    }
+
+    /**
+     * Numero di righe memorizzate
+     */
+    public int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Byte allocati fuori heap, compresi quelli non ancora usati dell'ultimo blocco
+     */
+    public long byteAllocati() {
+        return (long) ((dimensione + MASCHERA_RIGA) >>> BIT_RIGHE_PER_BLOCCO) * BYTE_PER_BLOCCO;
+    }
+
+    public int getIdCoppia(int riga) {
+        return blocco(riga).getInt(INIZIO_ID_COPPIA + (riga & MASCHERA_RIGA) * Integer.BYTES);
+    }
+
+    public int getIdNome(int riga) {
+        return blocco(riga).getInt(INIZIO_ID_NOME + (riga & MASCHERA_RIGA) * Integer.BYTES);
+    }
+
+    public double getQuantita(int riga) {
+        return blocco(riga).getDouble(INIZIO_QUANTITA + (riga & MASCHERA_RIGA) * Double.BYTES);
+    }
+
+    /**
+     * Crea l'ingrediente di una riga
+     */
+    public Ingrediente getIngrediente(int riga) {
+        return new Ingrediente(getIdCoppia(riga), getQuantita(riga));
+    }
+
+    /**
+     * Vista in sola lettura di un intervallo di righe come lista di ingredienti;
+     * gli ingredienti vengono creati a ogni accesso
+     */
+    public List<Ingrediente> vista(int prima, int numero) {
+        return new VistaIngredienti(prima, numero);
+    }
+
+    /**
+     * Costo di un intervallo di righe secondo il listino, senza creare oggetti
+     */
+    public double costo(int prima, int numero, ListinoPrezzi listino) {
+        double valore = 0.0;
+        for (int riga = prima; riga < prima + numero; riga++) {
+            valore += getQuantita(riga) * listino.getPrezzo(getIdNome(riga));
+        }
+        return valore;
+    }
+
+    private ByteBuffer blocco(int riga) {
+        return blocchi[riga >>> BIT_RIGHE_PER_BLOCCO];
+    }
+
+    private final class VistaIngredienti extends AbstractList<Ingrediente> implements RandomAccess {
+        private final int prima;
+        private final int numero;
+
+        VistaIngredienti(int prima, int numero) {
+            this.prima = prima;
+            this.numero = numero;
+        }
+
+        @Override
+        public Ingrediente get(int indice) {
+            if (indice < 0 || indice >= numero) {
+                throw new IndexOutOfBoundsException("Indice " + indice + ", dimensione " + numero);
+            }
+            return getIngrediente(prima + indice);
+        }
+
+        @Override
+        public int size() {
+            return numero;
+        }
+    }
+}
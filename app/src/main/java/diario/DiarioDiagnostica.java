@@ -0,0 +1,254 @@
+package diario;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Come vengono trattati i file non validi durante il caricamento
+ */
+enum ModalitaImportazione {
+    // Le righe non valide vengono segnalate su System.err e un file illeggibile interrompe il caricamento
+    NORMALE,
+    // Le righe non valide vengono raccolte in un RapportoImportazione e i file illeggibili saltati
+    TOLLERANTE;
+
+    /**
+     * Legge la modalità dalla proprietà di sistema "diario.importazione",
+     * usando quella normale se non specificata
+     */
+    public static ModalitaImportazione daProprietaDiSistema() {
+        return ProprietaDiSistema.leggiEnum("diario.importazione", ModalitaImportazione.class, NORMALE);
+    }
+}
+
+/**
+ * Motivo per cui una riga o un file sono stati scartati, o segnalati
+ */
+enum MotivoScarto {
+    CAMPI_MANCANTI("campi mancanti"),
+    QUANTITA_NON_VALIDA("quantità non numerica"),
+    PREZZO_NON_VALIDO("prezzo non numerico"),
+    CONFEZIONE_NON_VALIDA("confezione non valida"),
+    // Il prezzo resta valido: la confezione non arrotonda le righe in un'altra unità
+    CONFEZIONE_IN_ALTRA_UNITA("confezione in un'altra unità"),
+    INGREDIENTE_SENZA_RICETTA("ingrediente prima di qualsiasi ricetta"),
+    FILE_NON_TROVATO("file non trovato"),
+    FILE_NON_LEGGIBILE("file non leggibile");
+
+    private final String descrizione;
+
+    MotivoScarto(String descrizione) {
+        this.descrizione = descrizione;
+    }
+
+    public String getDescrizione() {
+        return descrizione;
+    }
+}
+
+/**
+ * Segnalazione relativa a una posizione di un file. Righe e colonne partono
+ * da 1; la colonna è 0 quando la segnalazione riguarda l'intero file
+ */
+final class Diagnostica {
+    private final String file;
+    private final int riga;
+    private final int colonna;
+    private final MotivoScarto motivo;
+    private final String dettaglio;
+
+    Diagnostica(String file, int riga, int colonna, MotivoScarto motivo, String dettaglio) {
+        this.file = file;
+        this.riga = riga;
+        this.colonna = colonna;
+        this.motivo = motivo;
+        this.dettaglio = dettaglio;
+    }
+
+    /**
+     * Diagnostica di una riga di ingrediente già riconosciuta come non valida:
+     * la riga viene analizzata di nuovo solo per individuare campo e colonna
+     * @param riga il testo originale della riga, compreso l'indicatore iniziale
+     */
+    static Diagnostica perIngrediente(String file, int numeroRiga, String riga) {
+        int inizio = riga.indexOf('-') + 1;
+        String[] campi = riga.substring(inizio).split(",");
+        if (campi.length < 3 || campi[2].isBlank()) {
+            return new Diagnostica(file, numeroRiga, riga.stripTrailing().length() + 1, MotivoScarto.CAMPI_MANCANTI,
+                "attesi nome, quantità e unità");
+        }
+        return new Diagnostica(file, numeroRiga, colonnaCampo(riga, inizio, 1), MotivoScarto.QUANTITA_NON_VALIDA,
+            campi[1].trim());
+    }
+
+    /**
+     * Diagnostica di una riga di prezzo già riconosciuta come non valida
+     */
+    static Diagnostica perPrezzo(String file, int numeroRiga, String riga) {
+        String[] campi = riga.split(",");
+        if (campi.length < 2 || campi[1].isBlank()) {
+            return new Diagnostica(file, numeroRiga, riga.stripTrailing().length() + 1, MotivoScarto.CAMPI_MANCANTI,
+                "attesi nome e prezzo");
+        }
+        try {
+            Double.parseDouble(campi[1].trim());
+        } catch (NumberFormatException e) {
+            return new Diagnostica(file, numeroRiga, colonnaCampo(riga, 0, 1), MotivoScarto.PREZZO_NON_VALIDO,
+                campi[1].trim());
+        }
+        return new Diagnostica(file, numeroRiga, colonnaCampo(riga, 0, 2), MotivoScarto.CONFEZIONE_NON_VALIDA,
+            campi.length > 2 ? campi[2].trim() : "");
+    }
+
+    /**
+     * Diagnostica di un file che non è stato possibile leggere
+     */
+    static Diagnostica perFile(String file, IOException errore) {
+        MotivoScarto motivo = errore instanceof NoSuchFileException
+            ? MotivoScarto.FILE_NON_TROVATO : MotivoScarto.FILE_NON_LEGGIBILE;
+        return new Diagnostica(file, 0, 0, motivo, String.valueOf(errore.getMessage()));
+    }
+
+    /**
+     * Colonna del primo carattere non bianco di un campo separato da virgole,
+     * contando i campi a partire dalla posizione indicata
+     */
+    private static int colonnaCampo(String riga, int inizio, int campo) {
+        int posizione = inizio;
+        for (int i = 0; i < campo; i++) {
+            posizione = riga.indexOf(',', posizione) + 1;
+        }
+        while (posizione < riga.length() && Character.isWhitespace(riga.charAt(posizione))) {
+            posizione++;
+        }
+        return posizione + 1;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getRiga() {
+        return riga;
+    }
+
+    public int getColonna() {
+        return colonna;
+    }
+
+    public MotivoScarto getMotivo() {
+        return motivo;
+    }
+
+    public String getDettaglio() {
+        return dettaglio;
+    }
+
+    @Override
+    public String toString() {
+        String posizione = riga > 0 ? file + ":" + riga + ":" + colonna : file;
+        return posizione + ": " + motivo.getDescrizione() + (dettaglio.isEmpty() ? "" : " (" + dettaglio + ")");
+    }
+}
+
+/**
+ * Raccoglie le diagnostiche di un'importazione tollerante e i totali per file.
+ * Conserva solo le prime diagnostiche fino alla capacità indicata, ma conta
+ * tutte quelle ricevute per motivo. Le righe valide non passano di qui: i
+ * caricatori comunicano solo i totali a fine file e le righe scartate.
+ * Può essere condiviso dai caricamenti paralleli di più file
+ */
+class RapportoImportazione {
+    static final int CAPACITA_PREDEFINITA = 1000;
+
+    private final int capacita;
+    private final List<Diagnostica> diagnostiche = new ArrayList<>();
+    private final Map<MotivoScarto, Integer> perMotivo = new EnumMap<>(MotivoScarto.class);
+    private final Map<String, long[]> righePerFile = new LinkedHashMap<>(); // righe lette e scartate
+    private int totaleDiagnostiche = 0;
+
+    RapportoImportazione() {
+        this(CAPACITA_PREDEFINITA);
+    }
+
+    RapportoImportazione(int capacita) {
+        if (capacita < 0) {
+            throw new IllegalArgumentException("La capacità non può essere negativa: " + capacita);
+        }
+        this.capacita = capacita;
+    }
+
+    public synchronized void aggiungi(Diagnostica diagnostica) {
+        totaleDiagnostiche++;
+        perMotivo.merge(diagnostica.getMotivo(), 1, Integer::sum);
+        if (diagnostiche.size() < capacita) {
+            diagnostiche.add(diagnostica);
+        }
+    }
+
+    /**
+     * Registra i totali di un file al termine della sua lettura
+     */
+    public synchronized void fileLetto(String file, long righe, long scartate) {
+        long[] totali = righePerFile.computeIfAbsent(file, f -> new long[2]);
+        totali[0] += righe;
+        totali[1] += scartate;
+    }
+
+    /**
+     * Diagnostiche conservate, nell'ordine in cui sono state ricevute
+     */
+    public synchronized List<Diagnostica> getDiagnostiche() {
+        return Collections.unmodifiableList(new ArrayList<>(diagnostiche));
+    }
+
+    /**
+     * Numero di diagnostiche ricevute, comprese quelle oltre la capacità
+     */
+    public synchronized int getTotaleDiagnostiche() {
+        return totaleDiagnostiche;
+    }
+
+    public synchronized int getTotale(MotivoScarto motivo) {
+        return perMotivo.getOrDefault(motivo, 0);
+    }
+
+    public synchronized long getRigheLette() {
+        return righePerFile.values().stream().mapToLong(totali -> totali[0]).sum();
+    }
+
+    public synchronized long getRigheScartate() {
+        return righePerFile.values().stream().mapToLong(totali -> totali[1]).sum();
+    }
+
+    public synchronized boolean isVuoto() {
+        return totaleDiagnostiche == 0;
+    }
+
+    /**
+     * Totali per file e per motivo, seguiti dalle diagnostiche conservate
+     */
+    public synchronized String riepilogo() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> file : righePerFile.entrySet()) {
+            if (file.getValue()[0] == 0) continue; // file vuoti o non aperti, riportati dalle diagnostiche
+            sb.append(String.format("%s: %d righe, %d scartate%n", file.getKey(), file.getValue()[0], file.getValue()[1]));
+        }
+        for (Map.Entry<MotivoScarto, Integer> motivo : perMotivo.entrySet()) {
+            sb.append(String.format("%s: %d%n", motivo.getKey().getDescrizione(), motivo.getValue()));
+        }
+        for (Diagnostica diagnostica : diagnostiche) {
+            sb.append(diagnostica).append(System.lineSeparator());
+        }
+        if (totaleDiagnostiche > diagnostiche.size()) {
+            sb.append(String.format("... altre %d segnalazioni non conservate%n", totaleDiagnostiche - diagnostiche.size()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package diario;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Eventi JFR delle fasi principali. La durata è quella dell'evento, tra begin()
+ * ed end(), e il thread è quello che lo emette: in una registrazione si possono
+ * così confrontare le latenze con le pause del GC e con l'EDT. I campi vanno
+ * valorizzati solo se shouldCommit() è vero, così senza registrazioni attive
+ * gli eventi non hanno costi apprezzabili
+ */
+
+/**
+ * Caricamento o ricaricamento di un ricettario
+ */
+@Name("diario.CaricamentoRicettario")
+@Label("Caricamento ricettario")
+@Category("Diario Alimentare")
+@StackTrace(false)
+class EventoCaricamentoRicettario extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Tipo di pasto")
+    String tipo;
+
+    @Label("Dimensione")
+    @DataAmount
+    long dimensione;
+
+    @Label("Ricette")
+    @Description("Ricette aggiunte al ricettario")
+    int ricette;
+
+    @Label("Modalità")
+    String modalita;
+
+    @Label("Da snapshot")
+    boolean daSnapshot;
+}
+
+/**
+ * Lettura e pubblicazione di un file di prezzi
+ */
+@Name("diario.CaricamentoPrezzi")
+@Label("Caricamento prezzi")
+@Category("Diario Alimentare")
+@StackTrace(false)
+class EventoCaricamentoPrezzi extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Voci")
+    @Description("Prezzi letti dal file")
+    int voci;
+
+    @Label("Ingredienti modificati")
+    int ingredientiModificati;
+
+    @Label("Ricette coinvolte")
+    @Description("Ricette residenti il cui costo in cache è stato invalidato")
+    int ricetteCoinvolte;
+
+    @Label("Sostituzione")
+    @Description("Vero se il file sostituisce l'intero listino")
+    boolean sostituzione;
+
+    @Label("Da snapshot")
+    boolean daSnapshot;
+}
+
+/**
+ * Generazione di una lista della spesa
+ */
+@Name("diario.GenerazioneListaSpesa")
+@Label("Generazione lista della spesa")
+@Category("Diario Alimentare")
+@StackTrace(false)
+class EventoListaSpesa extends Event {
+    @Label("Ricette pianificate")
+    int ricette;
+
+    @Label("Ingredienti distinti")
+    int ingredienti;
+}
+
+/**
+ * Azione dell'interfaccia grafica eseguita sull'EDT
+ */
+@Name("diario.AzioneGui")
+@Label("Azione interfaccia")
+@Category("Diario Alimentare")
+@StackTrace(false)
+class EventoAzioneGui extends Event {
+    @Label("Azione")
+    String azione;
+}
@@ -0,0 +1,559 @@
+package diario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indice dei nomi delle ricette di un ricettario, confrontati senza distinzione
+ * tra maiuscole e minuscole. La ricerca esatta usa una tabella hash mantenuta
+ * a ogni inserimento; l'ordinamento per la ricerca per prefisso e i trigrammi
+ * per la ricerca per sottostringa vengono aggiornati solo alla prima ricerca
+ * che ne ha bisogno, così il caricamento paga soltanto la tabella hash.
+ * Non è thread-safe: l'accesso è protetto da {@link GestoreRicette}
+ */
+class IndiceNomiRicette {
+    private static final int[] VUOTO = new int[0];
+
+    // Ricettario indicizzato: l'id di una ricetta è la sua posizione nella lista
+    private List<Ricetta> ricettario = List.of();
+
+    // Nomi normalizzati nell'ordine del ricettario, indicizzati per id
+    private String[] nomi = new String[16];
+    private int dimensione = 0;
+
+    // Id della prima ricetta inserita per ogni nome normalizzato
+    private final Map<String, Integer> perNome = new HashMap<>();
+
+    // Id ordinati per nome; quelli da ordinare sono da numeroOrdinati in poi
+    private int[] ordinati = VUOTO;
+    private int numeroOrdinati = 0;
+
+    // Liste degli id che contengono ogni trigramma, in ordine crescente
+    private final Map<Long, ListaId> trigrammi = new HashMap<>();
+    private int numeroConTrigrammi = 0;
+
+    /**
+     * Crea l'indice di un ricettario, nell'ordine della lista
+     */
+    static IndiceNomiRicette di(List<Ricetta> ricettario) {
+        IndiceNomiRicette indice = new IndiceNomiRicette();
+        indice.aggiungiTutte(ricettario);
+        return indice;
+    }
+
+    /**
+     * Normalizza un nome carattere per carattere come {@link String#equalsIgnoreCase}
+     */
+    static String normalizza(String nome) {
+        char[] caratteri = null;
+        for (int i = 0; i < nome.length(); i++) {
+            char c = nome.charAt(i);
+            char normalizzato = Character.toLowerCase(Character.toUpperCase(c));
+            if (normalizzato != c) {
+                if (caratteri == null) {
+                    caratteri = nome.toCharArray();
+                }
+                caratteri[i] = normalizzato;
+            }
+        }
+        return caratteri == null ? nome : new String(caratteri);
+    }
+
+    /**
+     * Aggiunge le ricette della lista che non sono ancora nell'indice,
+     * supponendo che la lista sia cresciuta solo in coda. I nomi di un
+     * {@link RicettarioMappato} vengono letti senza materializzare le ricette
+     */
+    public void aggiungiTutte(List<Ricetta> ricettario) {
+        this.ricettario = ricettario;
+        RicettarioMappato mappato = ricettario instanceof RicettarioMappato ? (RicettarioMappato) ricettario : null;
+        for (int i = dimensione; i < ricettario.size(); i++) {
+            aggiungi(mappato != null ? mappato.getNome(i) : ricettario.get(i).getNome());
+        }
+    }
+
+    private void aggiungi(String nomeRicetta) {
+        if (dimensione == nomi.length) {
+            nomi = Arrays.copyOf(nomi, dimensione * 2);
+        }
+        String nome = normalizza(nomeRicetta);
+        nomi[dimensione] = nome;
+        perNome.putIfAbsent(nome, dimensione);
+        dimensione++;
+    }
+
+    public int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Ottiene la prima ricetta con il nome indicato o null se non esiste
+     */
+    public Ricetta cerca(String nome) {
+        Integer id = perNome.get(normalizza(nome));
+        return id == null ? null : ricettario.get(id);
+    }
+
+    /**
+     * Ricette il cui nome inizia con il prefisso, in ordine alfabetico
+     */
+    public List<Ricetta> cercaPerPrefisso(String prefisso, int limite) {
+        String chiave = normalizza(prefisso);
+        aggiornaOrdinamento();
+
+        // Ricerca binaria della prima posizione con nome >= prefisso
+        int basso = 0, alto = numeroOrdinati;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (nomi[ordinati[medio]].compareTo(chiave) < 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+
+        List<Ricetta> risultati = new ArrayList<>();
+        for (int i = basso; i < numeroOrdinati && risultati.size() < limite; i++) {
+            int id = ordinati[i];
+            if (!nomi[id].startsWith(chiave)) break;
+            risultati.add(ricettario.get(id));
+        }
+        return risultati;
+    }
+
+    /**
+     * Ricette il cui nome contiene il testo, nell'ordine del ricettario.
+     * Con almeno tre caratteri i candidati vengono presi dalla lista più corta
+     * tra quelle dei trigrammi del testo e poi verificati
+     */
+    public List<Ricetta> cercaPerSottostringa(String testo, int limite) {
+        String chiave = normalizza(testo);
+        List<Ricetta> risultati = new ArrayList<>();
+
+        if (chiave.length() < 3) {
+            for (int id = 0; id < dimensione && risultati.size() < limite; id++) {
+                if (nomi[id].contains(chiave)) {
+                    risultati.add(ricettario.get(id));
+                }
+            }
+            return risultati;
+        }
+
+        aggiornaTrigrammi();
+        ListaId candidati = null;
+        for (int i = 0; i + 3 <= chiave.length(); i++) {
+            ListaId lista = trigrammi.get(trigramma(chiave, i));
+            if (lista == null) {
+                return risultati;
+            }
+            if (candidati == null || lista.dimensione < candidati.dimensione) {
+                candidati = lista;
+            }
+        }
+        for (int i = 0; i < candidati.dimensione && risultati.size() < limite; i++) {
+            int id = candidati.valori[i];
+            if (nomi[id].contains(chiave)) {
+                risultati.add(ricettario.get(id));
+            }
+        }
+        return risultati;
+    }
+
+    /**
+     * Ordina gli id inseriti dall'ultima ricerca per prefisso e li fonde con quelli già ordinati
+     */
+    private void aggiornaOrdinamento() {
+        if (numeroOrdinati == dimensione) {
+            return;
+        }
+        Integer[] nuovi = new Integer[dimensione - numeroOrdinati];
+        for (int i = 0; i < nuovi.length; i++) {
+            nuovi[i] = numeroOrdinati + i;
+        }
+        // A parità di nome resta prima la ricetta inserita prima
+        Arrays.sort(nuovi, (a, b) -> nomi[a].compareTo(nomi[b]));
+
+        int[] fusi = new int[dimensione];
+        int i = 0, j = 0, k = 0;
+        while (i < numeroOrdinati && j < nuovi.length) {
+            fusi[k++] = nomi[nuovi[j]].compareTo(nomi[ordinati[i]]) < 0 ? nuovi[j++] : ordinati[i++];
+        }
+        while (i < numeroOrdinati) fusi[k++] = ordinati[i++];
+        while (j < nuovi.length) fusi[k++] = nuovi[j++];
+
+        ordinati = fusi;
+        numeroOrdinati = dimensione;
+    }
+
+    private void aggiornaTrigrammi() {
+        for (int id = numeroConTrigrammi; id < dimensione; id++) {
+            String nome = nomi[id];
+            for (int i = 0; i + 3 <= nome.length(); i++) {
+                // Gli id crescono, quindi basta controllare l'ultimo per evitare duplicati
+                ListaId lista = trigrammi.computeIfAbsent(trigramma(nome, i), t -> new ListaId());
+                if (lista.ultimo() != id) {
+                    lista.aggiungi(id);
+                }
+            }
+        }
+        numeroConTrigrammi = dimensione;
+    }
+
+    private static long trigramma(String nome, int inizio) {
+        return ((long) nome.charAt(inizio) << 32) | ((long) nome.charAt(inizio + 1) << 16) | nome.charAt(inizio + 2);
+    }
+}
+
+/**
+ * Lista di id crescenti su array primitivo, usata come lista di occorrenze
+ * negli indici. Le operazioni insiemistiche producono nuove liste
+ */
+final class ListaId {
+    static final ListaId VUOTA = new ListaId(new int[0], 0);
+
+    int[] valori;
+    int dimensione;
+
+    ListaId() {
+        this(new int[4], 0);
+    }
+
+    private ListaId(int[] valori, int dimensione) {
+        this.valori = valori;
+        this.dimensione = dimensione;
+    }
+
+    /**
+     * Lista con tutti gli id da 0 a n escluso
+     */
+    static ListaId intervallo(int n) {
+        int[] valori = new int[n];
+        for (int i = 0; i < n; i++) {
+            valori[i] = i;
+        }
+        return new ListaId(valori, n);
+    }
+
+    void aggiungi(int id) {
+        if (dimensione == valori.length) {
+            valori = Arrays.copyOf(valori, Math.max(4, dimensione * 2));
+        }
+        valori[dimensione++] = id;
+    }
+
+    int ultimo() {
+        return dimensione == 0 ? -1 : valori[dimensione - 1];
+    }
+
+    /**
+     * Id presenti in entrambe le liste. Scorre la lista più corta e cerca
+     * nell'altra per salti esponenziali, così il costo dipende dalla più corta
+     */
+    ListaId intersezione(ListaId altra) {
+        ListaId corta = dimensione <= altra.dimensione ? this : altra;
+        ListaId lunga = corta == this ? altra : this;
+        ListaId risultato = new ListaId(new int[corta.dimensione], 0);
+        int posizione = 0;
+        for (int i = 0; i < corta.dimensione && posizione < lunga.dimensione; i++) {
+            int id = corta.valori[i];
+            int passo = 1;
+            int limite = posizione;
+            while (limite < lunga.dimensione && lunga.valori[limite] < id) {
+                posizione = limite + 1;
+                limite += passo;
+                passo <<= 1;
+            }
+            int trovato = Arrays.binarySearch(lunga.valori, posizione, Math.min(limite + 1, lunga.dimensione), id);
+            if (trovato >= 0) {
+                risultato.valori[risultato.dimensione++] = id;
+                posizione = trovato + 1;
+            } else {
+                posizione = -trovato - 1;
+            }
+        }
+        return risultato;
+    }
+
+    ListaId unione(ListaId altra) {
+        ListaId risultato = new ListaId(new int[dimensione + altra.dimensione], 0);
+        int i = 0, j = 0;
+        while (i < dimensione || j < altra.dimensione) {
+            int id;
+            if (j == altra.dimensione || (i < dimensione && valori[i] < altra.valori[j])) {
+                id = valori[i++];
+            } else if (i == dimensione || altra.valori[j] < valori[i]) {
+                id = altra.valori[j++];
+            } else {
+                id = valori[i++];
+                j++;
+            }
+            risultato.valori[risultato.dimensione++] = id;
+        }
+        return risultato;
+    }
+
+    ListaId differenza(ListaId altra) {
+        ListaId risultato = new ListaId(new int[dimensione], 0);
+        int j = 0;
+        for (int i = 0; i < dimensione; i++) {
+            int id = valori[i];
+            while (j < altra.dimensione && altra.valori[j] < id) j++;
+            if (j == altra.dimensione || altra.valori[j] != id) {
+                risultato.valori[risultato.dimensione++] = id;
+            }
+        }
+        return risultato;
+    }
+}
+
+/**
+ * Interrogazione sugli ingredienti delle ricette: le ricette devono contenere
+ * tutti gli ingredienti di con(), almeno uno di conAlmenoUno() se indicati
+ * e nessuno di senza(). I nomi degli ingredienti sono confrontati esattamente
+ */
+class RicercaPerIngredienti {
+    private final Set<String> tutti = new LinkedHashSet<>();
+    private final Set<String> almenoUno = new LinkedHashSet<>();
+    private final Set<String> esclusi = new LinkedHashSet<>();
+
+    public RicercaPerIngredienti con(String... ingredienti) {
+        tutti.addAll(Arrays.asList(ingredienti));
+        return this;
+    }
+
+    public RicercaPerIngredienti conAlmenoUno(String... ingredienti) {
+        almenoUno.addAll(Arrays.asList(ingredienti));
+        return this;
+    }
+
+    public RicercaPerIngredienti senza(String... ingredienti) {
+        esclusi.addAll(Arrays.asList(ingredienti));
+        return this;
+    }
+
+    Set<String> getTutti() {
+        return tutti;
+    }
+
+    Set<String> getAlmenoUno() {
+        return almenoUno;
+    }
+
+    Set<String> getEsclusi() {
+        return esclusi;
+    }
+}
+
+/**
+ * Quanto una ricetta è coperta dagli ingredienti disponibili in dispensa
+ */
+final class CoperturaRicetta {
+    private final Ricetta ricetta;
+    private final int ingredientiPresenti;
+    private final int ingredientiTotali;
+
+    CoperturaRicetta(Ricetta ricetta, int ingredientiPresenti, int ingredientiTotali) {
+        this.ricetta = ricetta;
+        this.ingredientiPresenti = ingredientiPresenti;
+        this.ingredientiTotali = ingredientiTotali;
+    }
+
+    public Ricetta getRicetta() {
+        return ricetta;
+    }
+
+    public int getIngredientiPresenti() {
+        return ingredientiPresenti;
+    }
+
+    public int getIngredientiMancanti() {
+        return ingredientiTotali - ingredientiPresenti;
+    }
+
+    public double getCopertura() {
+        return (double) ingredientiPresenti / ingredientiTotali;
+    }
+
+    /**
+     * Ordine di classifica: copertura decrescente, poi meno ingredienti mancanti
+     */
+    static int confronta(CoperturaRicetta a, CoperturaRicetta b) {
+        int confronto = Long.compare((long) b.ingredientiPresenti * a.ingredientiTotali,
+                                     (long) a.ingredientiPresenti * b.ingredientiTotali);
+        return confronto != 0 ? confronto : Integer.compare(a.getIngredientiMancanti(), b.getIngredientiMancanti());
+    }
+
+    @Override
+    public String toString() {
+        return ricetta.getNome() + " (" + ingredientiPresenti + "/" + ingredientiTotali + ")";
+    }
+}
+
+/**
+ * Indice inverso dagli ingredienti alle ricette di un ricettario: per ogni nome
+ * di ingrediente la lista crescente degli id delle ricette che lo usano, dove
+ * l'id è la posizione della ricetta nel ricettario. Le liste vengono estese
+ * alla prima interrogazione dopo un inserimento.
+ * Non è thread-safe: l'accesso è protetto da {@link GestoreRicette}
+ */
+class IndiceIngredientiRicette {
+    // Ricettario indicizzato: l'id di una ricetta è la sua posizione nella lista
+    private List<Ricetta> ricettario = List.of();
+    private int dimensione = 0;
+
+    // Numero di nomi di ingredienti distinti per ricetta
+    private int[] ingredientiPerRicetta = new int[16];
+    private int numeroIndicizzate = 0;
+
+    // Liste di occorrenze indicizzate per identificativo del nome di ingrediente
+    private final List<ListaId> ricettePerIngrediente = new ArrayList<>();
+
+    // Contatori riutilizzati dalla classifica per dispensa
+    private int[] presenti = new int[0];
+
+    static IndiceIngredientiRicette di(List<Ricetta> ricettario) {
+        IndiceIngredientiRicette indice = new IndiceIngredientiRicette();
+        indice.aggiungiTutte(ricettario);
+        return indice;
+    }
+
+    /**
+     * Aggiunge le ricette della lista che non sono ancora nell'indice,
+     * supponendo che la lista sia cresciuta solo in coda
+     */
+    public void aggiungiTutte(List<Ricetta> ricettario) {
+        this.ricettario = ricettario;
+        dimensione = ricettario.size();
+    }
+
+    /**
+     * Ricette che usano l'ingrediente, nell'ordine del ricettario
+     */
+    public List<Ricetta> ricetteCon(String ingrediente) {
+        return materializza(occorrenze(ingrediente));
+    }
+
+    public List<Ricetta> cerca(RicercaPerIngredienti ricerca) {
+        ListaId risultato = null;
+        for (String ingrediente : ricerca.getTutti()) {
+            ListaId lista = occorrenze(ingrediente);
+            risultato = risultato == null ? lista : risultato.intersezione(lista);
+        }
+        if (!ricerca.getAlmenoUno().isEmpty()) {
+            ListaId unione = ListaId.VUOTA;
+            for (String ingrediente : ricerca.getAlmenoUno()) {
+                unione = unione.unione(occorrenze(ingrediente));
+            }
+            risultato = risultato == null ? unione : risultato.intersezione(unione);
+        }
+        if (risultato == null) {
+            aggiornaOccorrenze();
+            risultato = ListaId.intervallo(dimensione);
+        }
+        for (String ingrediente : ricerca.getEsclusi()) {
+            risultato = risultato.differenza(occorrenze(ingrediente));
+        }
+        return materializza(risultato);
+    }
+
+    /**
+     * Classifica le ricette che usano almeno un ingrediente della dispensa
+     * per copertura decrescente, a parità nell'ordine del ricettario
+     */
+    public List<CoperturaRicetta> classificaPerDispensa(Collection<String> dispensa, int limite) {
+        aggiornaOccorrenze();
+        if (presenti.length < dimensione) {
+            presenti = new int[dimensione];
+        }
+
+        ListaId toccate = ListaId.VUOTA;
+        for (String ingrediente : new LinkedHashSet<>(dispensa)) {
+            ListaId lista = occorrenze(ingrediente);
+            for (int i = 0; i < lista.dimensione; i++) {
+                presenti[lista.valori[i]]++;
+            }
+            toccate = toccate.unione(lista);
+        }
+
+        List<CoperturaRicetta> classifica = new ArrayList<>(toccate.dimensione);
+        for (int i = 0; i < toccate.dimensione; i++) {
+            int id = toccate.valori[i];
+            classifica.add(new CoperturaRicetta(ricettario.get(id), presenti[id], ingredientiPerRicetta[id]));
+            presenti[id] = 0;
+        }
+        // L'ordinamento è stabile, quindi a parità resta l'ordine del ricettario
+        classifica.sort(CoperturaRicetta::confronta);
+        return classifica.size() > limite ? new ArrayList<>(classifica.subList(0, limite)) : classifica;
+    }
+
+    private ListaId occorrenze(String ingrediente) {
+        aggiornaOccorrenze();
+        int idNome = DizionarioIngredienti.cercaIdNome(ingrediente);
+        if (idNome < 0 || idNome >= ricettePerIngrediente.size()) {
+            return ListaId.VUOTA;
+        }
+        ListaId lista = ricettePerIngrediente.get(idNome);
+        return lista == null ? ListaId.VUOTA : lista;
+    }
+
+    private void aggiornaOccorrenze() {
+        if (numeroIndicizzate == dimensione) {
+            return;
+        }
+        if (ingredientiPerRicetta.length < dimensione) {
+            ingredientiPerRicetta = Arrays.copyOf(ingredientiPerRicetta, Math.max(dimensione, ingredientiPerRicetta.length * 2));
+        }
+        // Le ricette di un ricettario mappato vengono lette dal file senza materializzarle
+        RicettarioMappato mappato = ricettario instanceof RicettarioMappato ? (RicettarioMappato) ricettario : null;
+        for (int id = numeroIndicizzate; id < dimensione; id++) {
+            int distinti = 0;
+            if (mappato != null) {
+                for (int idNome : mappato.getIdNomiIngredienti(id)) {
+                    if (registra(idNome, id)) distinti++;
+                }
+            } else {
+                Ricetta ricetta = ricettario.get(id);
+                for (int i = 0; i < ricetta.getNumeroIngredienti(); i++) {
+                    if (registra(ricetta.getIdNomeIngrediente(i), id)) distinti++;
+                }
+            }
+            ingredientiPerRicetta[id] = distinti;
+        }
+        numeroIndicizzate = dimensione;
+    }
+
+    /**
+     * Aggiunge la ricetta alla lista di un ingrediente
+     * @return false se la ricetta vi era già
+     */
+    private boolean registra(int idNome, int id) {
+        while (ricettePerIngrediente.size() <= idNome) {
+            ricettePerIngrediente.add(null);
+        }
+        ListaId lista = ricettePerIngrediente.get(idNome);
+        if (lista == null) {
+            lista = new ListaId();
+            ricettePerIngrediente.set(idNome, lista);
+        }
+        // Gli id crescono, quindi un ingrediente ripetuto ha già la ricetta in coda
+        if (lista.ultimo() == id) {
+            return false;
+        }
+        lista.aggiungi(id);
+        return true;
+    }
+
+    private List<Ricetta> materializza(ListaId lista) {
+        List<Ricetta> risultato = new ArrayList<>(lista.dimensione);
+        for (int i = 0; i < lista.dimensione; i++) {
+            risultato.add(ricettario.get(lista.valori[i]));
+        }
+        return risultato;
+    }
+}
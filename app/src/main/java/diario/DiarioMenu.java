@@ -0,0 +1,470 @@
+package diario;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Vincoli e preferenze per la compilazione automatica di un menu settimanale.
+ * Per ogni pasto si sceglie una ricetta al giorno, salvo diversa indicazione
+ */
+class VincoliMenu {
+    private double budget = Double.POSITIVE_INFINITY;
+    private final Map<TipoPasto, Integer> ricettePerPasto = new EnumMap<>(TipoPasto.class);
+    private boolean ripetizioniConsentite = false;
+    private double pesoCondivisione = 1.0;
+    private double pesoCosto = 0.1;
+    private long seme = 42;
+    private int iterazioni = 200_000;
+    private int candidatiPerPasto = 2_000;
+
+    VincoliMenu() {
+        for (TipoPasto tipo : TipoPasto.values()) {
+            ricettePerPasto.put(tipo, 1);
+        }
+    }
+
+    /**
+     * Spesa massima della settimana secondo il listino corrente
+     */
+    public VincoliMenu budget(double budget) {
+        this.budget = budget;
+        return this;
+    }
+
+    public VincoliMenu ricettePerPasto(TipoPasto tipo, int numero) {
+        if (numero < 0 || numero > tipo.getMaxRicette()) {
+            throw new IllegalArgumentException("Per " + tipo.getNome().toLowerCase()
+                + " si possono scegliere da 0 a " + tipo.getMaxRicette() + " ricette: " + numero);
+        }
+        ricettePerPasto.put(tipo, numero);
+        return this;
+    }
+
+    /**
+     * Se false, come da impostazione predefinita, ogni ricetta compare al più una volta nella settimana
+     */
+    public VincoliMenu ripetizioniConsentite(boolean consentite) {
+        this.ripetizioniConsentite = consentite;
+        return this;
+    }
+
+    /**
+     * Penalità per ogni ingrediente distinto da acquistare: più è alta, più il
+     * menu riusa gli stessi ingredienti tra le ricette e riduce gli avanzi
+     */
+    public VincoliMenu pesoCondivisione(double peso) {
+        this.pesoCondivisione = peso;
+        return this;
+    }
+
+    /**
+     * Penalità per ogni euro di spesa, a parità degli altri criteri
+     */
+    public VincoliMenu pesoCosto(double peso) {
+        this.pesoCosto = peso;
+        return this;
+    }
+
+    /**
+     * Seme della ricerca: con lo stesso seme e gli stessi ricettari il menu è lo stesso
+     */
+    public VincoliMenu seme(long seme) {
+        this.seme = seme;
+        return this;
+    }
+
+    /**
+     * Mosse tentate da ognuna delle ricerche parallele
+     */
+    public VincoliMenu iterazioni(int iterazioni) {
+        this.iterazioni = iterazioni;
+        return this;
+    }
+
+    /**
+     * Ricette per tipo di pasto tra cui scegliere; nei ricettari più grandi
+     * si prendono le più economiche e un campione casuale dipendente dal seme
+     */
+    public VincoliMenu candidatiPerPasto(int candidati) {
+        this.candidatiPerPasto = candidati;
+        return this;
+    }
+
+    double getBudget() {
+        return budget;
+    }
+
+    int getRicettePerPasto(TipoPasto tipo) {
+        return ricettePerPasto.get(tipo);
+    }
+
+    boolean isRipetizioniConsentite() {
+        return ripetizioniConsentite;
+    }
+
+    double getPesoCondivisione() {
+        return pesoCondivisione;
+    }
+
+    double getPesoCosto() {
+        return pesoCosto;
+    }
+
+    long getSeme() {
+        return seme;
+    }
+
+    int getIterazioni() {
+        return iterazioni;
+    }
+
+    int getCandidatiPerPasto() {
+        return candidatiPerPasto;
+    }
+}
+
+/**
+ * Menu di una settimana prodotto da {@link OttimizzatoreMenu}
+ */
+final class MenuSettimanale {
+    static final int GIORNI = 7;
+
+    private final List<Map<TipoPasto, List<Ricetta>>> giorni;
+    private final double costo;
+    private final int ingredientiDistinti;
+    private final boolean entroBudget;
+
+    MenuSettimanale(List<Map<TipoPasto, List<Ricetta>>> giorni, double costo, int ingredientiDistinti, boolean entroBudget) {
+        this.giorni = giorni;
+        this.costo = costo;
+        this.ingredientiDistinti = ingredientiDistinti;
+        this.entroBudget = entroBudget;
+    }
+
+    /**
+     * Ricette di un pasto, con giorno da 0 (il primo della settimana) a 6
+     */
+    public List<Ricetta> getRicette(int giorno, TipoPasto tipo) {
+        return Collections.unmodifiableList(giorni.get(giorno).get(tipo));
+    }
+
+    /**
+     * Costo della settimana secondo il listino usato per l'ottimizzazione
+     */
+    public double getCosto() {
+        return costo;
+    }
+
+    /**
+     * Numero di ingredienti diversi da acquistare
+     */
+    public int getIngredientiDistinti() {
+        return ingredientiDistinti;
+    }
+
+    public boolean isEntroBudget() {
+        return entroBudget;
+    }
+
+    /**
+     * Aggiunge il menu alle giornate di un nucleo a partire dalla data indicata
+     */
+    public void applica(PianoPasti piano, int nucleo, LocalDate inizio) {
+        for (int giorno = 0; giorno < GIORNI; giorno++) {
+            for (TipoPasto tipo : TipoPasto.values()) {
+                for (Ricetta ricetta : giorni.get(giorno).get(tipo)) {
+                    piano.aggiungiRicetta(nucleo, inizio.plusDays(giorno), tipo, ricetta);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("€ %.2f, %d ingredienti%s", costo, ingredientiDistinti, entroBudget ? "" : ", fuori budget");
+    }
+}
+
+/**
+ * Compila un menu settimanale con una ricerca per ricottura simulata. Ogni
+ * mossa sostituisce la ricetta di un posto con un'altra dello stesso tipo di
+ * pasto e viene valutata in modo incrementale su costi e identificativi degli
+ * ingredienti calcolati una volta per i candidati. L'energia da minimizzare
+ * somma una forte penalità per la spesa oltre il budget, il numero di
+ * ingredienti distinti e il costo, pesati secondo i vincoli.
+ * Più ricerche con semi diversi vengono eseguite in parallelo sul ForkJoinPool
+ * comune e vince la migliore, a parità la prima: il risultato non dipende dal
+ * numero di thread
+ */
+class OttimizzatoreMenu {
+    private static final int RICERCHE = 4;
+    private static final double PENALITA_BUDGET = 1_000.0;
+    private static final int TENTATIVI_MOSSA = 8;
+
+    private final VincoliMenu vincoli;
+
+    OttimizzatoreMenu(VincoliMenu vincoli) {
+        this.vincoli = vincoli;
+    }
+
+    /**
+     * Sceglie le ricette tra quelle dei ricettari indicati
+     * @throws IllegalArgumentException se un ricettario non ha abbastanza
+     *         ricette per riempire i suoi pasti senza ripetizioni
+     */
+    public MenuSettimanale ottimizza(Map<TipoPasto, List<Ricetta>> ricettari) {
+        ListinoPrezzi listino = IngredienteFactory.getListino();
+
+        // Candidati e posti da riempire, numerati per tipo di pasto
+        TipoPasto[] tipi = TipoPasto.values();
+        Candidati[] candidati = new Candidati[tipi.length];
+        List<Integer> tipoPosti = new ArrayList<>();
+        for (TipoPasto tipo : tipi) {
+            int posti = MenuSettimanale.GIORNI * vincoli.getRicettePerPasto(tipo);
+            List<Ricetta> ricettario = ricettari.getOrDefault(tipo, List.of());
+            candidati[tipo.ordinal()] = new Candidati(campione(ricettario, tipo, listino), listino);
+            int disponibili = candidati[tipo.ordinal()].ricette.length;
+            if (posti > 0 && (disponibili == 0 || (!vincoli.isRipetizioniConsentite() && disponibili < posti))) {
+                throw new IllegalArgumentException("Ricette insufficienti per " + tipo.getNome().toLowerCase()
+                    + ": ne servono " + posti + ", disponibili " + disponibili);
+            }
+            for (int i = 0; i < posti; i++) {
+                tipoPosti.add(tipo.ordinal());
+            }
+        }
+        int[] tipoPerPosto = tipoPosti.stream().mapToInt(Integer::intValue).toArray();
+        int numeroNomi = DizionarioIngredienti.numeroNomi();
+
+        Ricerca[] ricerche = IntStream.range(0, RICERCHE).parallel()
+            .mapToObj(i -> new Ricerca(candidati, tipoPerPosto, numeroNomi, vincoli.getSeme() + i).esegui())
+            .toArray(Ricerca[]::new);
+        Ricerca migliore = ricerche[0];
+        for (Ricerca ricerca : ricerche) {
+            if (ricerca.migliorEnergia < migliore.migliorEnergia) {
+                migliore = ricerca;
+            }
+        }
+        return migliore.menu(candidati, tipoPerPosto);
+    }
+
+    /**
+     * Tutte le ricette del ricettario o, se sono troppe, le più economiche per
+     * metà dei posti e un campione casuale per l'altra metà, nell'ordine del
+     * ricettario. Di un ricettario mappato si prende solo il campione casuale,
+     * per non materializzarne tutte le ricette
+     */
+    private List<Ricetta> campione(List<Ricetta> ricettario, TipoPasto tipo, ListinoPrezzi listino) {
+        int limite = vincoli.getCandidatiPerPasto();
+        int numero = ricettario.size();
+        if (numero <= limite) {
+            return ricettario;
+        }
+        boolean[] scelte = new boolean[numero];
+        int scelti = 0;
+        if (!(ricettario instanceof RicettarioMappato) && limite >= 2) {
+            double[] costi = new double[numero];
+            for (int i = 0; i < numero; i++) {
+                costi[i] = ricettario.get(i).getCostoTotale(listino);
+            }
+            double[] ordinati = costi.clone();
+            Arrays.sort(ordinati);
+            double soglia = ordinati[limite / 2 - 1];
+            for (int i = 0; i < numero && scelti < limite / 2; i++) {
+                if (costi[i] <= soglia) {
+                    scelte[i] = true;
+                    scelti++;
+                }
+            }
+        }
+        Random casuale = new Random(vincoli.getSeme() * 31 + tipo.ordinal());
+        while (scelti < limite) {
+            int i = casuale.nextInt(numero);
+            if (!scelte[i]) {
+                scelte[i] = true;
+                scelti++;
+            }
+        }
+        List<Ricetta> risultato = new ArrayList<>(limite);
+        for (int i = 0; i < numero; i++) {
+            if (scelte[i]) {
+                risultato.add(ricettario.get(i));
+            }
+        }
+        return risultato;
+    }
+
+    /**
+     * Costi e nomi distinti degli ingredienti dei candidati di un tipo di pasto
+     */
+    private static final class Candidati {
+        final Ricetta[] ricette;
+        final double[] costi;
+        final int[][] idNomi;
+
+        Candidati(List<Ricetta> ricettario, ListinoPrezzi listino) {
+            ricette = ricettario.toArray(new Ricetta[0]);
+            costi = new double[ricette.length];
+            idNomi = new int[ricette.length][];
+            for (int i = 0; i < ricette.length; i++) {
+                costi[i] = ricette[i].getCostoTotale(listino);
+                int[] nomi = new int[ricette[i].getNumeroIngredienti()];
+                for (int j = 0; j < nomi.length; j++) {
+                    nomi[j] = ricette[i].getIdNomeIngrediente(j);
+                }
+                idNomi[i] = Arrays.stream(nomi).sorted().distinct().toArray();
+            }
+        }
+    }
+
+    /**
+     * Una ricerca con il proprio generatore casuale e il proprio stato
+     */
+    private final class Ricerca {
+        private final Candidati[] candidati;
+        private final int[] tipoPerPosto;
+        private final Random casuale;
+
+        // Candidato scelto per ogni posto e candidati già usati per tipo di pasto
+        private final int[] scelte;
+        private final boolean[][] usati;
+
+        // Occorrenze di ogni nome di ingrediente tra le ricette scelte
+        private final int[] occorrenze;
+        private int distinti = 0;
+        private double costo = 0.0;
+
+        private int[] migliori;
+        private double migliorEnergia;
+
+        Ricerca(Candidati[] candidati, int[] tipoPerPosto, int numeroNomi, long seme) {
+            this.candidati = candidati;
+            this.tipoPerPosto = tipoPerPosto;
+            this.casuale = new Random(seme);
+            this.scelte = new int[tipoPerPosto.length];
+            this.usati = new boolean[candidati.length][];
+            for (int t = 0; t < candidati.length; t++) {
+                usati[t] = new boolean[candidati[t].ricette.length];
+            }
+            this.occorrenze = new int[numeroNomi];
+        }
+
+        Ricerca esegui() {
+            // Soluzione iniziale casuale che rispetta il divieto di ripetizioni
+            for (int posto = 0; posto < scelte.length; posto++) {
+                int tipo = tipoPerPosto[posto];
+                int candidato;
+                do {
+                    candidato = casuale.nextInt(usati[tipo].length);
+                } while (!vincoli.isRipetizioniConsentite() && usati[tipo][candidato]);
+                scelte[posto] = candidato;
+                usati[tipo][candidato] = true;
+                somma(tipo, candidato, 1);
+            }
+            double energia = energia();
+            migliori = scelte.clone();
+            migliorEnergia = energia;
+            if (scelte.length == 0) {
+                return this;
+            }
+
+            // Temperatura decrescente in modo geometrico, tarata sul peso di un ingrediente
+            double temperaturaIniziale = 2.0 * Math.max(vincoli.getPesoCondivisione(), 0.5);
+            double temperaturaFinale = temperaturaIniziale / 1_000.0;
+            double raffreddamento = Math.pow(temperaturaFinale / temperaturaIniziale, 1.0 / Math.max(1, vincoli.getIterazioni()));
+            double temperatura = temperaturaIniziale;
+
+            for (int iterazione = 0; iterazione < vincoli.getIterazioni(); iterazione++, temperatura *= raffreddamento) {
+                int posto = casuale.nextInt(scelte.length);
+                int tipo = tipoPerPosto[posto];
+                int nuovo = candidatoLibero(tipo);
+                if (nuovo < 0) continue;
+
+                int vecchio = scelte[posto];
+                sostituisci(posto, tipo, vecchio, nuovo);
+                double nuovaEnergia = energia();
+                double delta = nuovaEnergia - energia;
+                if (delta <= 0 || casuale.nextDouble() < Math.exp(-delta / temperatura)) {
+                    energia = nuovaEnergia;
+                    if (energia < migliorEnergia) {
+                        migliorEnergia = energia;
+                        System.arraycopy(scelte, 0, migliori, 0, scelte.length);
+                    }
+                } else {
+                    sostituisci(posto, tipo, nuovo, vecchio);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Candidato diverso da quelli già scelti, se le ripetizioni non sono
+         * consentite, o -1 se non trovato in pochi tentativi
+         */
+        private int candidatoLibero(int tipo) {
+            for (int tentativo = 0; tentativo < TENTATIVI_MOSSA; tentativo++) {
+                int candidato = casuale.nextInt(usati[tipo].length);
+                if (vincoli.isRipetizioniConsentite() || !usati[tipo][candidato]) {
+                    return candidato;
+                }
+            }
+            return -1;
+        }
+
+        private void sostituisci(int posto, int tipo, int vecchio, int nuovo) {
+            somma(tipo, vecchio, -1);
+            usati[tipo][vecchio] = false;
+            somma(tipo, nuovo, 1);
+            usati[tipo][nuovo] = true;
+            scelte[posto] = nuovo;
+        }
+
+        private void somma(int tipo, int candidato, int segno) {
+            costo += segno * candidati[tipo].costi[candidato];
+            for (int idNome : candidati[tipo].idNomi[candidato]) {
+                if (segno > 0 ? occorrenze[idNome]++ == 0 : --occorrenze[idNome] == 0) {
+                    distinti += segno;
+                }
+            }
+        }
+
+        private double energia() {
+            double eccesso = Math.max(0.0, costo - vincoli.getBudget());
+            return PENALITA_BUDGET * eccesso + vincoli.getPesoCondivisione() * distinti + vincoli.getPesoCosto() * costo;
+        }
+
+        MenuSettimanale menu(Candidati[] candidati, int[] tipoPerPosto) {
+            List<Map<TipoPasto, List<Ricetta>>> giorni = new ArrayList<>();
+            for (int giorno = 0; giorno < MenuSettimanale.GIORNI; giorno++) {
+                Map<TipoPasto, List<Ricetta>> pasti = new EnumMap<>(TipoPasto.class);
+                for (TipoPasto tipo : TipoPasto.values()) {
+                    pasti.put(tipo, new ArrayList<>());
+                }
+                giorni.add(pasti);
+            }
+
+            // I posti di un tipo di pasto sono consecutivi: si distribuiscono giorno per giorno
+            int[] postiVisti = new int[TipoPasto.values().length];
+            double costoTotale = 0.0;
+            int[] conteggio = new int[occorrenze.length];
+            int nomiDistinti = 0;
+            for (int posto = 0; posto < migliori.length; posto++) {
+                int tipo = tipoPerPosto[posto];
+                int candidato = migliori[posto];
+                int giorno = postiVisti[tipo]++ % MenuSettimanale.GIORNI;
+                giorni.get(giorno).get(TipoPasto.values()[tipo]).add(candidati[tipo].ricette[candidato]);
+                costoTotale += candidati[tipo].costi[candidato];
+                for (int idNome : candidati[tipo].idNomi[candidato]) {
+                    if (conteggio[idNome]++ == 0) nomiDistinti++;
+                }
+            }
+            return new MenuSettimanale(giorni, costoTotale, nomiDistinti, costoTotale <= vincoli.getBudget() + 1e-9);
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package diario;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Registro delle metriche dell'applicazione, identificate per nome.
+ * Le metriche vanno ottenute una volta, di solito in un campo statico, e
+ * aggiornate dai percorsi caldi senza lock: contatori e istogrammi usano
+ * solo somme atomiche. Il registro si esporta come testo o JSON, da
+ * {@link EsportatoreMetriche}, e come evento JFR periodico
+ */
+final class Metriche {
+    // Ordinate per nome, così le esportazioni successive sono confrontabili riga per riga
+    private static final Map<String, Metrica> registro = new ConcurrentSkipListMap<>();
+
+    private Metriche() {}
+
+    public static Contatore contatore(String nome) {
+        return registra(nome, Contatore.class, Contatore::new);
+    }
+
+    public static Istogramma istogramma(String nome) {
+        return registra(nome, Istogramma.class, Istogramma::new);
+    }
+
+    public static Cronometro cronometro(String nome) {
+        return registra(nome, Cronometro.class, Cronometro::new);
+    }
+
+    public static RapportoCache cache(String nome) {
+        return registra(nome, RapportoCache.class, RapportoCache::new);
+    }
+
+    private static <M extends Metrica> M registra(String nome, Class<M> tipo, Function<String, M> crea) {
+        Metrica metrica = registro.computeIfAbsent(nome, crea);
+        if (!tipo.isInstance(metrica)) {
+            throw new IllegalArgumentException("La metrica " + nome + " è già registrata come " + metrica.tipo());
+        }
+        return tipo.cast(metrica);
+    }
+
+    /**
+     * Valori correnti in righe "nome.campo valore", una per campo
+     */
+    public static String comeTesto() {
+        StringBuilder sb = new StringBuilder("# metriche ").append(Instant.now()).append('\n');
+        for (Metrica metrica : registro.values()) {
+            for (Map.Entry<String, Number> valore : metrica.valori().entrySet()) {
+                sb.append(metrica.getNome()).append('.').append(valore.getKey()).append(' ')
+                  .append(formatta(valore.getValue())).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Valori correnti come oggetto JSON con un oggetto per metrica
+     */
+    public static String comeJson() {
+        StringBuilder sb = new StringBuilder("{\"istante\":\"").append(Instant.now()).append("\",\"metriche\":{");
+        boolean prima = true;
+        for (Metrica metrica : registro.values()) {
+            sb.append(prima ? "\n" : ",\n");
+            prima = false;
+            sb.append(EsecuzioneBatch.stringaJson(metrica.getNome()))
+              .append(":{\"tipo\":\"").append(metrica.tipo()).append('"');
+            for (Map.Entry<String, Number> valore : metrica.valori().entrySet()) {
+                sb.append(",\"").append(valore.getKey()).append("\":").append(formatta(valore.getValue()));
+            }
+            sb.append('}');
+        }
+        return sb.append("\n}}\n").toString();
+    }
+
+    private static String formatta(Number valore) {
+        if (valore instanceof Double) {
+            double numero = valore.doubleValue();
+            return Double.isFinite(numero) ? String.format(Locale.ROOT, "%.3f", numero) : "0";
+        }
+        return valore.toString();
+    }
+
+    /**
+     * Emette un evento JFR per metrica a ogni periodo di una registrazione
+     * che abilita "diario.Metrica". Senza registrazioni attive non costa nulla
+     */
+    public static void registraEventoJfr() {
+        FlightRecorder.addPeriodicEvent(EventoMetrica.class, () -> {
+            for (Metrica metrica : registro.values()) {
+                EventoMetrica evento = new EventoMetrica();
+                evento.nome = metrica.getNome();
+                evento.tipo = metrica.tipo();
+                metrica.compila(evento);
+                evento.commit();
+            }
+        });
+    }
+}
+
+/**
+ * Metrica con nome, esportabile come insieme di valori
+ */
+abstract class Metrica {
+    private final String nome;
+
+    Metrica(String nome) {
+        this.nome = nome;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    abstract String tipo();
+
+    /**
+     * Valori correnti per nome del campo, nell'ordine di esportazione
+     */
+    abstract Map<String, Number> valori();
+
+    abstract void compila(EventoMetrica evento);
+}
+
+/**
+ * Contatore monotono, adatto a incrementi concorrenti frequenti
+ */
+final class Contatore extends Metrica {
+    private final LongAdder valore = new LongAdder();
+
+    Contatore(String nome) {
+        super(nome);
+    }
+
+    public void incrementa() {
+        valore.increment();
+    }
+
+    public void aggiungi(long quantita) {
+        valore.add(quantita);
+    }
+
+    public long valore() {
+        return valore.sum();
+    }
+
+    @Override
+    String tipo() {
+        return "contatore";
+    }
+
+    @Override
+    Map<String, Number> valori() {
+        return Map.of("valore", valore());
+    }
+
+    @Override
+    void compila(EventoMetrica evento) {
+        evento.numero = valore();
+    }
+}
+
+/**
+ * Istogramma di valori non negativi in intervalli logaritmici: quattro
+ * intervalli per ogni potenza di due, quindi i percentili hanno un errore
+ * relativo massimo del 25% con memoria costante e registrazioni senza lock
+ */
+class Istogramma extends Metrica {
+    private static final int SUDDIVISIONI = 4;
+    private static final int BIT_SUDDIVISIONI = 2;
+
+    private final AtomicLongArray intervalli = new AtomicLongArray(SUDDIVISIONI * 63);
+    private final LongAdder numero = new LongAdder();
+    private final LongAdder somma = new LongAdder();
+    private final LongAccumulator massimo = new LongAccumulator(Math::max, 0);
+
+    Istogramma(String nome) {
+        super(nome);
+    }
+
+    public void registra(long valore) {
+        long positivo = Math.max(0, valore);
+        intervalli.incrementAndGet(intervallo(positivo));
+        numero.increment();
+        somma.add(positivo);
+        massimo.accumulate(positivo);
+    }
+
+    public long numero() {
+        return numero.sum();
+    }
+
+    public long somma() {
+        return somma.sum();
+    }
+
+    public long massimo() {
+        return massimo.get();
+    }
+
+    /**
+     * Limite superiore dell'intervallo che contiene il percentile indicato,
+     * tra 0 e 1, senza superare il massimo registrato
+     */
+    public long percentile(double frazione) {
+        long totale = 0;
+        long[] conteggi = new long[intervalli.length()];
+        for (int i = 0; i < conteggi.length; i++) {
+            conteggi[i] = intervalli.get(i);
+            totale += conteggi[i];
+        }
+        if (totale == 0) {
+            return 0;
+        }
+        long soglia = Math.max(1, (long) Math.ceil(frazione * totale));
+        long cumulato = 0;
+        for (int i = 0; i < conteggi.length; i++) {
+            cumulato += conteggi[i];
+            if (cumulato >= soglia) {
+                return Math.min(limiteSuperiore(i), massimo());
+            }
+        }
+        return massimo();
+    }
+
+    private static int intervallo(long valore) {
+        if (valore < SUDDIVISIONI) {
+            return (int) valore;
+        }
+        int esponente = 63 - Long.numberOfLeadingZeros(valore);
+        int suddivisione = (int) (valore >>> (esponente - BIT_SUDDIVISIONI)) & (SUDDIVISIONI - 1);
+        return SUDDIVISIONI * (esponente - 1) + suddivisione;
+    }
+
+    private static long limiteSuperiore(int intervallo) {
+        if (intervallo < SUDDIVISIONI) {
+            return intervallo;
+        }
+        int esponente = intervallo / SUDDIVISIONI + 1;
+        int suddivisione = intervallo % SUDDIVISIONI;
+        return ((long) (SUDDIVISIONI + suddivisione + 1) << (esponente - BIT_SUDDIVISIONI)) - 1;
+    }
+
+    @Override
+    String tipo() {
+        return "istogramma";
+    }
+
+    /**
+     * Fattore con cui i valori registrati vengono esportati
+     */
+    double scala() {
+        return 1.0;
+    }
+
+    @Override
+    Map<String, Number> valori() {
+        long conteggio = numero();
+        double scala = scala();
+        Map<String, Number> valori = new LinkedHashMap<>();
+        valori.put("numero", conteggio);
+        valori.put("somma", somma() * scala);
+        valori.put("media", conteggio > 0 ? somma() * scala / conteggio : 0.0);
+        valori.put("p50", percentile(0.50) * scala);
+        valori.put("p95", percentile(0.95) * scala);
+        valori.put("p99", percentile(0.99) * scala);
+        valori.put("massimo", massimo() * scala);
+        return valori;
+    }
+
+    @Override
+    void compila(EventoMetrica evento) {
+        long conteggio = numero();
+        double scala = scala();
+        evento.numero = conteggio;
+        evento.valore = conteggio > 0 ? somma() * scala / conteggio : 0.0;
+        evento.p50 = percentile(0.50) * scala;
+        evento.p99 = percentile(0.99) * scala;
+        evento.massimo = massimo() * scala;
+    }
+}
+
+/**
+ * Istogramma di durate misurate in nanosecondi ed esportate in millisecondi
+ */
+final class Cronometro extends Istogramma {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    Cronometro(String nome) {
+        super(nome);
+    }
+
+    /**
+     * Istante di inizio da passare a {@link #ferma}
+     */
+    public long avvia() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra il tempo trascorso dall'inizio
+     * @return la durata in nanosecondi
+     */
+    public long ferma(long inizio) {
+        long durata = System.nanoTime() - inizio;
+        registra(durata);
+        return durata;
+    }
+
+    @Override
+    String tipo() {
+        return "cronometro";
+    }
+
+    @Override
+    double scala() {
+        return 1 / NANOS_PER_MILLI;
+    }
+}
+
+/**
+ * Successi e mancati di una cache, esportati con il tasso di successo
+ */
+final class RapportoCache extends Metrica {
+    private final LongAdder successi = new LongAdder();
+    private final LongAdder mancati = new LongAdder();
+
+    RapportoCache(String nome) {
+        super(nome);
+    }
+
+    public void successo() {
+        successi.increment();
+    }
+
+    public void mancato() {
+        mancati.increment();
+    }
+
+    /**
+     * Frazione delle richieste servite dalla cache, zero se non ce ne sono state
+     */
+    public double tassoSuccesso() {
+        long trovati = successi.sum();
+        long totale = trovati + mancati.sum();
+        return totale > 0 ? (double) trovati / totale : 0.0;
+    }
+
+    @Override
+    String tipo() {
+        return "cache";
+    }
+
+    @Override
+    Map<String, Number> valori() {
+        Map<String, Number> valori = new LinkedHashMap<>();
+        valori.put("successi", successi.sum());
+        valori.put("mancati", mancati.sum());
+        valori.put("tassoSuccesso", tassoSuccesso());
+        return valori;
+    }
+
+    @Override
+    void compila(EventoMetrica evento) {
+        evento.numero = successi.sum() + mancati.sum();
+        evento.valore = tassoSuccesso();
+    }
+}
+
+/**
+ * Evento JFR periodico con i valori di una metrica. Per i cronometri i
+ * valori sono in millisecondi; per le cache il valore è il tasso di successo
+ */
+@Name("diario.Metrica")
+@Label("Metrica")
+@Category("Diario Alimentare")
+@Description("Valori correnti di una metrica dell'applicazione")
+@Period("10 s")
+@StackTrace(false)
+class EventoMetrica extends Event {
+    @Label("Nome")
+    String nome;
+
+    @Label("Tipo")
+    String tipo;
+
+    @Label("Numero")
+    long numero;
+
+    @Label("Valore")
+    @Description("Media per istogrammi e cronometri, tasso di successo per le cache")
+    double valore;
+
+    @Label("Percentile 50")
+    double p50;
+
+    @Label("Percentile 99")
+    double p99;
+
+    @Label("Massimo")
+    double massimo;
+}
+
+/**
+ * Scrive periodicamente le metriche in un file, come JSON se il nome termina
+ * con ".json" e come testo altrimenti. Il file viene sostituito atomicamente,
+ * così chi lo legge non vede mai una scrittura parziale
+ */
+class EsportatoreMetriche {
+    private final Path file;
+    private final boolean json;
+    private final long intervalloSecondi;
+    private ScheduledExecutorService esecutore;
+
+    EsportatoreMetriche(Path file, long intervalloSecondi) {
+        this.file = file;
+        this.json = file.getFileName().toString().endsWith(".json");
+        this.intervalloSecondi = intervalloSecondi;
+    }
+
+    /**
+     * Registra l'evento JFR e avvia l'esportazione nel file indicato dalla
+     * proprietà "diario.metriche", ogni "diario.metriche.intervallo" secondi
+     * (60 se non specificato). Senza la proprietà non scrive alcun file
+     * @return l'esportatore avviato, o null
+     */
+    public static EsportatoreMetriche avviaDaProprietaDiSistema() {
+        Metriche.registraEventoJfr();
+        String valore = System.getProperty("diario.metriche");
+        if (valore == null || valore.isBlank()) {
+            return null;
+        }
+        EsportatoreMetriche esportatore = new EsportatoreMetriche(Paths.get(valore.trim()),
+            Long.getLong("diario.metriche.intervallo", 60));
+        esportatore.avvia();
+        return esportatore;
+    }
+
+    /**
+     * Avvia le scritture periodiche; l'ultima avviene alla chiusura della JVM
+     */
+    public synchronized void avvia() {
+        if (esecutore != null) {
+            return;
+        }
+        esecutore = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "esportazione-metriche");
+            t.setDaemon(true);
+            return t;
+        });
+        esecutore.scheduleAtFixedRate(this::scriviSilenziosamente, intervalloSecondi, intervalloSecondi, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::scriviSilenziosamente, "esportazione-metriche-finale"));
+    }
+
+    /**
+     * Scrive subito le metriche correnti
+     */
+    public void scrivi() throws IOException {
+        Path temporaneo = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temporaneo, StandardCharsets.UTF_8)) {
+            out.write(json ? Metriche.comeJson() : Metriche.comeTesto());
+        }
+        Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void scriviSilenziosamente() {
+        try {
+            scrivi();
+        } catch (IOException e) {
+            // Un'esportazione mancata non deve interrompere le successive
+            System.err.println("Impossibile scrivere le metriche in " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,2452 @@
+package diario;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Dizionario canonico degli ingredienti costruito durante il caricamento.
+ * Assegna un identificativo intero denso a ogni nome di ingrediente e a ogni
+ * coppia (nome, unità), così che prezzi e lista della spesa possano essere
+ * indicizzati con array invece che con chiavi String
+ */
+final class DizionarioIngredienti {
+    // Le ricerche non prendono il lock: le mappe vengono aggiornate sotto lock,
+    // solo dopo aver pubblicato nelle tabelle il nome o la coppia registrati
+    private static final Map<String, Integer> idPerNome = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> idPerUnita = new ConcurrentHashMap<>();
+    private static final Map<Long, Integer> idPerCoppia = new ConcurrentHashMap<>();
+    
+    private static final List<String> unita = new ArrayList<>();
+    private static final List<int[]> coppiePerNome = new ArrayList<>();
+    
+    // Tabelle in sola lettura per identificativo, sostituite a ogni registrazione
+    private static volatile Tabelle tabelle = new Tabelle(new String[64], 0, new int[64], new String[64],
+        new String[64], 0);
+    
+    private DizionarioIngredienti() {} // Costruttore privato per class utility
+    
+    /**
+     * Ottiene l'identificativo del nome di un ingrediente, registrandolo se nuovo
+     */
+    public static int idNome(String nome) {
+        Integer id = idPerNome.get(nome);
+        return id != null ? id : registraNome(nome);
+    }
+    
+    private static synchronized int registraNome(String nome) {
+        Integer id = idPerNome.get(nome);
+        if (id != null) {
+            return id;
+        }
+        Tabelle t = tabelle;
+        int nuovo = t.numeroNomi;
+        String[] nomi = t.nomi.length > nuovo ? t.nomi : Arrays.copyOf(t.nomi, nuovo * 2);
+        nomi[nuovo] = nome;
+        coppiePerNome.add(new int[0]);
+        tabelle = new Tabelle(nomi, nuovo + 1, t.nomePerCoppia, t.unitaPerCoppia, t.chiavi, t.numeroCoppie);
+        idPerNome.put(nome, nuovo);
+        return nuovo;
+    }
+    
+    /**
+     * Ottiene l'identificativo del nome di un ingrediente senza registrarlo
+     * @return l'identificativo o -1 se il nome non è mai stato registrato
+     */
+    public static int cercaIdNome(String nome) {
+        Integer id = idPerNome.get(nome);
+        return id == null ? -1 : id;
+    }
+    
+    /**
+     * Ottiene gli identificativi della coppia (nome, unità), registrandola se
+     * nuova. Le coppie già note non prendono il lock
+     * @return gli identificativi della coppia e del nome, da separare con
+     *         {@link #idCoppiaDi(long)} e {@link #idNomeDi(long)}
+     */
+    public static long registraCoppia(String nome, String unitaMisura) {
+        Integer idNome = idPerNome.get(nome);
+        Integer idUnita = idPerUnita.get(unitaMisura);
+        if (idNome != null && idUnita != null) {
+            Integer id = idPerCoppia.get(chiaveCoppia(idNome, idUnita));
+            if (id != null) {
+                return identificativi(idNome, id);
+            }
+        }
+        return registraCoppiaNuova(nome, unitaMisura);
+    }
+    
+    public static int idCoppiaDi(long identificativi) {
+        return (int) identificativi;
+    }
+    
+    public static int idNomeDi(long identificativi) {
+        return (int) (identificativi >>> 32);
+    }
+    
+    private static long identificativi(int idNome, int idCoppia) {
+        return ((long) idNome << 32) | idCoppia;
+    }
+    
+    private static long chiaveCoppia(int idNome, int idUnita) {
+        return ((long) idNome << 32) | idUnita;
+    }
+    
+    private static synchronized long registraCoppiaNuova(String nome, String unitaMisura) {
+        int idNome = idNome(nome);
+        Integer idUnita = idPerUnita.get(unitaMisura);
+        if (idUnita == null) {
+            idUnita = unita.size();
+            unita.add(unitaMisura);
+            idPerUnita.put(unitaMisura, idUnita);
+        }
+        
+        long chiave = chiaveCoppia(idNome, idUnita);
+        Integer id = idPerCoppia.get(chiave);
+        if (id != null) {
+            return identificativi(idNome, id);
+        }
+        
+        Tabelle t = tabelle;
+        int nuovo = t.numeroCoppie;
+        int[] nomePerCoppia = t.nomePerCoppia;
+        String[] unitaPerCoppia = t.unitaPerCoppia;
+        String[] chiavi = t.chiavi;
+        if (nuovo == nomePerCoppia.length) {
+            nomePerCoppia = Arrays.copyOf(nomePerCoppia, nuovo * 2);
+            unitaPerCoppia = Arrays.copyOf(unitaPerCoppia, nuovo * 2);
+            chiavi = Arrays.copyOf(chiavi, nuovo * 2);
+        }
+        nomePerCoppia[nuovo] = idNome;
+        unitaPerCoppia[nuovo] = unita.get(idUnita);
+        // La chiave testuale viene costruita una sola volta per coppia
+        chiavi[nuovo] = t.nomi[idNome] + "_" + unitaMisura;
+        
+        int[] coppie = coppiePerNome.get(idNome);
+        coppie = Arrays.copyOf(coppie, coppie.length + 1);
+        coppie[coppie.length - 1] = nuovo;
+        coppiePerNome.set(idNome, coppie);
+        
+        tabelle = new Tabelle(t.nomi, t.numeroNomi, nomePerCoppia, unitaPerCoppia, chiavi, nuovo + 1);
+        idPerCoppia.put(chiave, nuovo);
+        return identificativi(idNome, nuovo);
+    }
+    
+    /**
+     * Ottiene l'identificativo del nome a cui appartiene una coppia
+     */
+    public static int getIdNome(int idCoppia) {
+        return tabelle.nomePerCoppia[idCoppia];
+    }
+    
+    /**
+     * Coppie (nome, unità) registrate per un nome. L'array non va modificato
+     */
+    public static synchronized int[] getCoppie(int idNome) {
+        return coppiePerNome.get(idNome);
+    }
+    
+    public static String getNome(int idNome) {
+        return tabelle.nomi[idNome];
+    }
+    
+    public static String getUnita(int idCoppia) {
+        return tabelle.unitaPerCoppia[idCoppia];
+    }
+    
+    public static String getChiave(int idCoppia) {
+        return tabelle.chiavi[idCoppia];
+    }
+    
+    /**
+     * Numero di coppie (nome, unità) registrate, utile per dimensionare gli array
+     */
+    public static int numeroCoppie() {
+        return tabelle.numeroCoppie;
+    }
+    
+    /**
+     * Numero di nomi di ingredienti registrati
+     */
+    public static int numeroNomi() {
+        return tabelle.numeroNomi;
+    }
+    
+    /**
+     * Tabelle per identificativo di nomi e coppie. Gli array vengono copiati
+     * solo quando si riempiono: le posizioni oltre i conteggi possono essere
+     * scritte dalle registrazioni successive, ma chi legge un identificativo
+     * ottenuto dal dizionario vede una pubblicazione che lo comprende
+     */
+    private static final class Tabelle {
+        final String[] nomi;
+        final int numeroNomi;
+        final int[] nomePerCoppia;
+        final String[] unitaPerCoppia;
+        final String[] chiavi;
+        final int numeroCoppie;
+        
+        Tabelle(String[] nomi, int numeroNomi, int[] nomePerCoppia, String[] unitaPerCoppia,
+                String[] chiavi, int numeroCoppie) {
+            this.nomi = nomi;
+            this.numeroNomi = numeroNomi;
+            this.nomePerCoppia = nomePerCoppia;
+            this.unitaPerCoppia = unitaPerCoppia;
+            this.chiavi = chiavi;
+            this.numeroCoppie = numeroCoppie;
+        }
+    }
+}
+
+/**
+ * Listino prezzi immutabile con numero di versione. Ogni pubblicazione di nuovi
+ * prezzi produce un nuovo listino, così che chi legge possa usare un insieme di
+ * prezzi coerente senza sincronizzazione
+ */
+final class ListinoPrezzi {
+    private final long versione;
+    private final double[] prezziPerNome; // indicizzati per identificativo del nome, NaN se assenti
+    private final double[] confezioniPerNome; // in unità base, zero se venduti sfusi
+    private final String[] unitaConfezionePerNome; // unità base delle confezioni, null se non nota
+    
+    ListinoPrezzi(long versione, double[] prezziPerNome, double[] confezioniPerNome, String[] unitaConfezionePerNome) {
+        this.versione = versione;
+        this.prezziPerNome = prezziPerNome;
+        this.confezioniPerNome = confezioniPerNome;
+        this.unitaConfezionePerNome = unitaConfezionePerNome;
+    }
+    
+    public long getVersione() {
+        return versione;
+    }
+    
+    /**
+     * Prezzo unitario dell'ingrediente, zero se non presente nel listino
+     */
+    public double getPrezzo(int idNome) {
+        double prezzo = getPrezzoRegistrato(idNome);
+        return Double.isNaN(prezzo) ? 0.0 : prezzo;
+    }
+    
+    public boolean contiene(int idNome) {
+        return !Double.isNaN(getPrezzoRegistrato(idNome));
+    }
+    
+    /**
+     * Quantità di una confezione in unità base, zero se l'ingrediente è venduto sfuso
+     */
+    public double getConfezione(int idNome) {
+        return idNome < confezioniPerNome.length ? confezioniPerNome[idNome] : 0.0;
+    }
+    
+    /**
+     * Unità base della confezione, null se l'ingrediente è venduto sfuso o
+     * l'unità della confezione non è stata riconosciuta
+     */
+    public String getUnitaConfezione(int idNome) {
+        return idNome < unitaConfezionePerNome.length ? unitaConfezionePerNome[idNome] : null;
+    }
+    
+    /**
+     * Se la confezione si applica a una quantità nell'unità base indicata:
+     * una confezione in millilitri non arrotonda una riga in grammi
+     */
+    public boolean confezioneApplicabile(int idNome, String unita) {
+        if (getConfezione(idNome) <= 0) {
+            return false;
+        }
+        String unitaConfezione = getUnitaConfezione(idNome);
+        return unitaConfezione == null || unitaConfezione.equals(unita);
+    }
+    
+    /**
+     * Costo per acquistare almeno la quantità indicata: le confezioni intere
+     * necessarie, o la quantità esatta se l'ingrediente è venduto sfuso o la
+     * confezione è in un'altra unità
+     */
+    public double getCostoAcquisto(int idNome, String unita, double quantita) {
+        long confezioni = getNumeroConfezioni(idNome, unita, quantita);
+        if (confezioni == 0) {
+            return quantita * getPrezzo(idNome);
+        }
+        return confezioni * getConfezione(idNome) * getPrezzo(idNome);
+    }
+    
+    /**
+     * Confezioni intere da acquistare per la quantità indicata, zero se
+     * l'ingrediente è venduto sfuso o la confezione è in un'altra unità
+     */
+    public long getNumeroConfezioni(int idNome, String unita, double quantita) {
+        if (quantita <= 0 || !confezioneApplicabile(idNome, unita)) {
+            return 0;
+        }
+        double confezione = getConfezione(idNome);
+        // La tolleranza evita una confezione in più per errori di arrotondamento
+        return (long) Math.ceil(quantita / confezione - 1e-9);
+    }
+    
+    /**
+     * Numero di ingredienti con un prezzo nel listino
+     */
+    public int numeroPrezzi() {
+        int prezzi = 0;
+        for (double prezzo : prezziPerNome) {
+            if (!Double.isNaN(prezzo)) prezzi++;
+        }
+        return prezzi;
+    }
+    
+    /**
+     * Numero di identificativi coperti dal listino (alcuni possono essere assenti)
+     */
+    int dimensione() {
+        return prezziPerNome.length;
+    }
+    
+    double getPrezzoRegistrato(int idNome) {
+        return idNome < prezziPerNome.length ? prezziPerNome[idNome] : Double.NaN;
+    }
+}
+
+/**
+ * Differenza tra due versioni consecutive del listino: gli identificativi dei
+ * nomi il cui prezzo è cambiato, con il listino precedente e quello nuovo
+ */
+final class VariazionePrezzi {
+    private final ListinoPrezzi precedente;
+    private final ListinoPrezzi nuovo;
+    private final int[] idNomiModificati;
+    private final int ricetteInvalidate;
+    
+    VariazionePrezzi(ListinoPrezzi precedente, ListinoPrezzi nuovo, int[] idNomiModificati, int ricetteInvalidate) {
+        this.precedente = precedente;
+        this.nuovo = nuovo;
+        this.idNomiModificati = idNomiModificati;
+        this.ricetteInvalidate = ricetteInvalidate;
+    }
+    
+    public ListinoPrezzi getPrecedente() {
+        return precedente;
+    }
+    
+    public ListinoPrezzi getNuovo() {
+        return nuovo;
+    }
+    
+    /**
+     * Identificativi dei nomi modificati. L'array non va modificato
+     */
+    public int[] getIdNomiModificati() {
+        return idNomiModificati;
+    }
+    
+    public boolean isVuota() {
+        return idNomiModificati.length == 0;
+    }
+    
+    /**
+     * Numero di ricette distinte il cui costo in cache è stato invalidato
+     */
+    public int getRicetteInvalidate() {
+        return ricetteInvalidate;
+    }
+}
+
+/**
+ * Factory per gli ingredienti che garantisce la coerenza nella creazione e
+ * semplifica la gestione dei prezzi.
+ * I prezzi sono conservati in un {@link ListinoPrezzi} immutabile sostituito
+ * atomicamente a ogni pubblicazione: le letture non richiedono lock, mentre le
+ * pubblicazioni sono serializzate
+ */
+class IngredienteFactory {
+    private static final AtomicReference<ListinoPrezzi> listino =
+        new AtomicReference<>(new ListinoPrezzi(0, new double[0], new double[0], new String[0]));
+    
+    // Indice inverso: per ogni nome di ingrediente le ricette che lo utilizzano.
+    // Ogni ricetta conosce la propria posizione in ogni elenco, così che
+    // toglierla costi quanto i suoi ingredienti e non quanto gli elenchi
+    private static final List<UtilizziIngrediente> ricettePerNome = new ArrayList<>();
+    
+    /**
+     * Crea un nuovo ingrediente; il prezzo viene letto dal listino corrente.
+     * Le quantità in unità riconosciute vengono convertite nell'unità base
+     * della loro grandezza, le altre restano invariate
+     */
+    public static Ingrediente crea(String nome, double quantita, String unita) {
+        UnitaMisura misura = UnitaMisura.cerca(unita);
+        if (misura == null) {
+            return new Ingrediente(nome, quantita, unita);
+        }
+        return new Ingrediente(nome, misura.inUnitaBase(quantita), misura.getUnitaBase());
+    }
+    
+    /**
+     * Listino corrente. Chi ha bisogno di prezzi coerenti tra più letture
+     * deve ottenerlo una volta e usarlo per tutti i calcoli
+     */
+    public static ListinoPrezzi getListino() {
+        return listino.get();
+    }
+    
+    /**
+     * Registra il prezzo per unità base di un ingrediente sfuso pubblicando un nuovo listino
+     */
+    public static void registraPrezzo(String nomeIngrediente, double prezzo) {
+        pubblicaPrezzi(Map.of(nomeIngrediente, PrezzoIngrediente.sfuso(prezzo)));
+    }
+    
+    /**
+     * Pubblica in un'unica versione un insieme di prezzi, che si aggiungono o
+     * sostituiscono quelli correnti. Il costo in cache viene invalidato solo per
+     * le ricette che usano un ingrediente il cui prezzo è cambiato
+     * @return le differenze rispetto al listino precedente, con il listino pubblicato
+     */
+    public static VariazionePrezzi pubblicaPrezzi(Map<String, PrezzoIngrediente> prezzi) {
+        return pubblica(prezzi, false);
+    }
+    
+    /**
+     * Sostituisce l'intero listino con i prezzi indicati: gli ingredienti non
+     * presenti perdono il prezzo. Pubblica solo le differenze rispetto al listino
+     * corrente e le restituisce, così da propagarle a ricette e liste aperte
+     */
+    public static VariazionePrezzi sostituisciPrezzi(Map<String, PrezzoIngrediente> prezzi) {
+        return pubblica(prezzi, true);
+    }
+    
+    private static synchronized VariazionePrezzi pubblica(Map<String, PrezzoIngrediente> prezzi, boolean sostituisci) {
+        ListinoPrezzi corrente = listino.get();
+        long nuovaVersione = corrente.getVersione() + 1;
+        
+        // Prezzi e confezioni del nuovo listino indicizzati per identificativo
+        double[] nuoviPrezzi;
+        double[] nuoveConfezioni;
+        String[] nuoveUnita;
+        if (sostituisci) {
+            nuoviPrezzi = new double[DizionarioIngredienti.numeroNomi()];
+            nuoveConfezioni = new double[nuoviPrezzi.length];
+            nuoveUnita = new String[nuoviPrezzi.length];
+            Arrays.fill(nuoviPrezzi, Double.NaN);
+        } else {
+            nuoviPrezzi = copiaPrezzi(corrente, DizionarioIngredienti.numeroNomi());
+            nuoveConfezioni = copiaConfezioni(corrente, nuoviPrezzi.length);
+            nuoveUnita = copiaUnitaConfezione(corrente, nuoviPrezzi.length);
+        }
+        for (Map.Entry<String, PrezzoIngrediente> prezzo : prezzi.entrySet()) {
+            int idNome = DizionarioIngredienti.idNome(prezzo.getKey());
+            if (idNome >= nuoviPrezzi.length) {
+                int vecchiaLunghezza = nuoviPrezzi.length;
+                nuoviPrezzi = Arrays.copyOf(nuoviPrezzi, DizionarioIngredienti.numeroNomi());
+                nuoveConfezioni = Arrays.copyOf(nuoveConfezioni, nuoviPrezzi.length);
+                nuoveUnita = Arrays.copyOf(nuoveUnita, nuoviPrezzi.length);
+                Arrays.fill(nuoviPrezzi, vecchiaLunghezza, nuoviPrezzi.length, Double.NaN);
+            }
+            nuoviPrezzi[idNome] = prezzo.getValue().getPrezzo();
+            nuoveConfezioni[idNome] = prezzo.getValue().getConfezione();
+            nuoveUnita[idNome] = prezzo.getValue().getUnitaConfezione();
+        }
+        
+        // Differenze rispetto al listino corrente, di prezzo o di confezione (quantità o unità)
+        int[] modificati = new int[16];
+        int numeroModificati = 0;
+        int ricetteInvalidate = 0;
+        int limite = Math.max(nuoviPrezzi.length, corrente.dimensione());
+        for (int idNome = 0; idNome < limite; idNome++) {
+            double nuovo = idNome < nuoviPrezzi.length ? nuoviPrezzi[idNome] : Double.NaN;
+            double nuovaConfezione = idNome < nuoveConfezioni.length ? nuoveConfezioni[idNome] : 0.0;
+            String nuovaUnita = idNome < nuoveUnita.length ? nuoveUnita[idNome] : null;
+            if (Double.compare(corrente.getPrezzoRegistrato(idNome), nuovo) != 0
+                    || Double.compare(corrente.getConfezione(idNome), nuovaConfezione) != 0
+                    || !Objects.equals(corrente.getUnitaConfezione(idNome), nuovaUnita)) {
+                if (numeroModificati == modificati.length) {
+                    modificati = Arrays.copyOf(modificati, numeroModificati * 2);
+                }
+                modificati[numeroModificati++] = idNome;
+                ricetteInvalidate += invalidaRicette(idNome, nuovaVersione);
+            }
+        }
+        
+        if (numeroModificati == 0) {
+            return new VariazionePrezzi(corrente, corrente, new int[0], 0);
+        }
+        
+        // Le ricette sono già state invalidate: chi vede il nuovo listino
+        // non può ottenere un costo calcolato con i prezzi precedenti
+        ListinoPrezzi pubblicato = new ListinoPrezzi(nuovaVersione, nuoviPrezzi, nuoveConfezioni, nuoveUnita);
+        listino.set(pubblicato);
+        return new VariazionePrezzi(corrente, pubblicato, Arrays.copyOf(modificati, numeroModificati),
+            ricetteInvalidate);
+    }
+    
+    /**
+     * Ottiene il prezzo di un ingrediente
+     */
+    public static double getPrezzo(String nomeIngrediente) {
+        return getPrezzo(DizionarioIngredienti.idNome(nomeIngrediente));
+    }
+    
+    /**
+     * Ottiene il prezzo di un ingrediente dato l'identificativo del nome
+     */
+    public static double getPrezzo(int idNome) {
+        return listino.get().getPrezzo(idNome);
+    }
+    
+    /**
+     * Registra nell'indice inverso tutti gli ingredienti di una ricetta con un
+     * solo lock, prima che il suo costo venga tenuto in cache: finché il costo
+     * non è in cache non c'è nulla da invalidare. Da qui la ricetta risulta
+     * modificata dal listino corrente, così che un costo calcolato con un
+     * listino precedente, di cui non ha ricevuto le invalidazioni, non resti in cache
+     */
+    static synchronized void registraRicetta(Ricetta ricetta) {
+        if (ricetta.isRegistrata()) {
+            return;
+        }
+        for (int i = 0; i < ricetta.getNumeroIngredienti(); i++) {
+            registraUtilizzo(ricetta.getIdNomeIngrediente(i), ricetta);
+        }
+        ricetta.segnaRegistrata(listino.get().getVersione());
+    }
+    
+    /**
+     * Registra nell'indice inverso che una ricetta usa l'ingrediente indicato
+     */
+    public static synchronized void registraUtilizzo(int idNome, Ricetta ricetta) {
+        if (ricetta.getPosizioneIndice(idNome) >= 0) {
+            return;
+        }
+        while (ricettePerNome.size() <= idNome) {
+            ricettePerNome.add(null);
+        }
+        UtilizziIngrediente utilizzi = ricettePerNome.get(idNome);
+        if (utilizzi == null) {
+            utilizzi = new UtilizziIngrediente();
+            ricettePerNome.set(idNome, utilizzi);
+        }
+        ricetta.aggiungiPosizioneIndice(idNome, utilizzi.aggiungi(ricetta));
+    }
+    
+    /**
+     * Rimuove dall'indice inverso ricette non più presenti nei ricettari.
+     * Il loro costo non viene più tenuto in cache, perché non riceveranno
+     * altre invalidazioni, ma resta calcolabile per le pianificazioni che le usano.
+     * Costa quanto gli ingredienti delle ricette rimosse
+     */
+    public static synchronized void dismettiRicette(Collection<Ricetta> ricette) {
+        for (Ricetta ricetta : ricette) {
+            ricetta.invalidaCosto(Long.MAX_VALUE);
+            // Senza costo in cache la ricetta non deve più entrare nell'indice
+            ricetta.segnaRegistrata(Long.MAX_VALUE);
+            for (int i = 0; i < ricetta.getNumeroNomiIndice(); i++) {
+                int idNome = ricetta.getNomeIndice(i);
+                Ricetta spostata = ricettePerNome.get(idNome).rimuovi(ricetta.getPosizioneIndiceDi(i));
+                if (spostata != null) {
+                    spostata.aggiornaPosizioneIndice(idNome, ricetta.getPosizioneIndiceDi(i));
+                }
+            }
+            ricetta.svuotaIndice();
+        }
+    }
+    
+    /**
+     * Pulisce la cache dei prezzi pubblicando un listino vuoto
+     */
+    public static synchronized void reset() {
+        long nuovaVersione = listino.get().getVersione() + 1;
+        for (int idNome = 0; idNome < ricettePerNome.size(); idNome++) {
+            invalidaRicette(idNome, nuovaVersione);
+        }
+        listino.set(new ListinoPrezzi(nuovaVersione, new double[0], new double[0], new String[0]));
+    }
+    
+    /**
+     * Invalida le ricette che usano l'ingrediente
+     * @return quante non erano già state invalidate per la stessa versione
+     */
+    private static int invalidaRicette(int idNome, long versione) {
+        if (idNome >= ricettePerNome.size() || ricettePerNome.get(idNome) == null) {
+            return 0;
+        }
+        UtilizziIngrediente utilizzi = ricettePerNome.get(idNome);
+        int invalidate = 0;
+        for (int i = 0; i < utilizzi.numero; i++) {
+            if (utilizzi.ricette[i].invalidaCosto(versione)) {
+                invalidate++;
+            }
+        }
+        return invalidate;
+    }
+    
+    /**
+     * Ricette che usano un ingrediente, in ordine qualsiasi
+     */
+    private static final class UtilizziIngrediente {
+        Ricetta[] ricette = new Ricetta[4];
+        int numero = 0;
+        
+        /**
+         * @return la posizione della ricetta
+         */
+        int aggiungi(Ricetta ricetta) {
+            if (numero == ricette.length) {
+                ricette = Arrays.copyOf(ricette, numero * 2);
+            }
+            ricette[numero] = ricetta;
+            return numero++;
+        }
+        
+        /**
+         * Toglie la ricetta in posizione indicata spostandovi l'ultima
+         * @return la ricetta spostata, o null se era l'ultima
+         */
+        Ricetta rimuovi(int posizione) {
+            int ultima = --numero;
+            Ricetta spostata = ultima != posizione ? ricette[ultima] : null;
+            ricette[posizione] = ricette[ultima];
+            ricette[ultima] = null;
+            return spostata;
+        }
+    }
+    
+    private static double[] copiaPrezzi(ListinoPrezzi corrente, int dimensioneMinima) {
+        double[] prezzi = new double[Math.max(dimensioneMinima, corrente.dimensione())];
+        for (int idNome = 0; idNome < prezzi.length; idNome++) {
+            prezzi[idNome] = corrente.getPrezzoRegistrato(idNome);
+        }
+        return prezzi;
+    }
+    
+    private static double[] copiaConfezioni(ListinoPrezzi corrente, int dimensione) {
+        double[] confezioni = new double[dimensione];
+        for (int idNome = 0; idNome < dimensione; idNome++) {
+            confezioni[idNome] = corrente.getConfezione(idNome);
+        }
+        return confezioni;
+    }
+    
+    private static String[] copiaUnitaConfezione(ListinoPrezzi corrente, int dimensione) {
+        String[] unita = new String[dimensione];
+        for (int idNome = 0; idNome < dimensione; idNome++) {
+            unita[idNome] = corrente.getUnitaConfezione(idNome);
+        }
+        return unita;
+    }
+}
+
+/**
+ * Classe che rappresenta un ingrediente con nome, quantità e unità di misura
+ */
+class Ingrediente {
+    private final int id; // identificativo della coppia (nome, unità)
+    private final int idNome;
+    private final String nome;
+    private final double quantita;
+    private final String unita;
+
+    public Ingrediente(String nome, double quantita, String unita) {
+        // Un'unica registrazione restituisce entrambi gli identificativi
+        long identificativi = DizionarioIngredienti.registraCoppia(nome, unita);
+        this.id = DizionarioIngredienti.idCoppiaDi(identificativi);
+        this.idNome = DizionarioIngredienti.idNomeDi(identificativi);
+        this.nome = nome;
+        this.quantita = quantita;
+        this.unita = unita;
+    }
+    
+    /**
+     * Ingrediente di una coppia (nome, unità) già registrata, per le righe fuori heap
+     */
+    Ingrediente(int id, double quantita) {
+        this.id = id;
+        this.idNome = DizionarioIngredienti.getIdNome(id);
+        this.nome = DizionarioIngredienti.getNome(idNome);
+        this.quantita = quantita;
+        this.unita = DizionarioIngredienti.getUnita(id);
+    }
+    
+    /**
+     * Costruttore per le copie: riusa gli identificativi senza interrogare il dizionario
+     */
+    private Ingrediente(Ingrediente modello, double quantita) {
+        this.id = modello.id;
+        this.idNome = modello.idNome;
+        this.nome = modello.nome;
+        this.quantita = quantita;
+        this.unita = modello.unita;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public int getIdNome() {
+        return idNome;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public double getQuantita() {
+        return quantita;
+    }
+
+    public String getUnita() {
+        return unita;
+    }
+    
+    /**
+     * Prezzo unitario secondo il listino corrente
+     */
+    public double getPrezzo() {
+        return getPrezzo(IngredienteFactory.getListino());
+    }
+    
+    public double getPrezzo(ListinoPrezzi listino) {
+        return listino.getPrezzo(idNome);
+    }
+    
+    /**
+     * Crea una copia dell'ingrediente
+     */
+    public Ingrediente copia() {
+        return new Ingrediente(this, this.quantita);
+    }
+    
+    /**
+     * Crea un nuovo ingrediente con quantità modificata ma stessi valori per gli altri campi
+     */
+    public Ingrediente conQuantita(double nuovaQuantita) {
+        return new Ingrediente(this, nuovaQuantita);
+    }
+    
+    /**
+     * Calcola costo totale dell'ingrediente secondo il listino corrente
+     */
+    public double getCostoTotale() {
+        return getCostoTotale(IngredienteFactory.getListino());
+    }
+    
+    public double getCostoTotale(ListinoPrezzi listino) {
+        return quantita * listino.getPrezzo(idNome);
+    }
+    
+    /**
+     * Costo per acquistare la quantità dell'ingrediente, arrotondata alle
+     * confezioni intere se il listino ne indica una
+     */
+    public double getCostoAcquisto(ListinoPrezzi listino) {
+        return listino.getCostoAcquisto(idNome, unita, quantita);
+    }
+    
+    /**
+     * Confezioni intere da acquistare, zero se l'ingrediente è venduto sfuso
+     * o la confezione del listino è in un'altra unità
+     */
+    public long getNumeroConfezioni(ListinoPrezzi listino) {
+        return listino.getNumeroConfezioni(idNome, unita, quantita);
+    }
+    
+    /**
+     * Chiave univoca per l'ingrediente basata su nome e unità, costruita una sola
+     * volta dal dizionario
+     */
+    public String getChiave() {
+        return DizionarioIngredienti.getChiave(id);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %.2f %s", nome, quantita, unita);
+    }
+}
+
+/**
+ * Classe che rappresenta una ricetta con nome e lista di ingredienti.
+ * Gli ingredienti possono stare in una lista sullo heap oppure in un
+ * intervallo contiguo di righe di {@link ColonneIngredienti}
+ */
+class Ricetta {
+    private static final RapportoCache CACHE_COSTO = Metriche.cache("cache.costoRicette");
+    
+    private final String nome;
+    private final List<Ingrediente> ingredienti; // null se fuori heap
+    
+    // Righe fuori heap degli ingredienti
+    private final ColonneIngredienti colonne;
+    private final int primaRiga;
+    private int numeroRighe = 0;
+    
+    // Costo totale in cache con la versione del listino usata per calcolarlo
+    private volatile CostoInCache costo;
+    // Versione del listino da cui valgono i prezzi attuali degli ingredienti
+    private volatile long versioneModifica = 0;
+    // Vettore compatto degli ingredienti (identificativi e quantità), creato una sola volta
+    private volatile VettoreIngredienti vettore;
+    // Se gli ingredienti sono nell'indice inverso dei prezzi, dove entrano al primo costo in cache
+    private volatile boolean registrata = false;
+    // Nomi registrati nell'indice inverso e posizione della ricetta nel loro elenco,
+    // usati solo sotto il lock di IngredienteFactory
+    private int[] nomiIndice = new int[0];
+    private int[] posizioniIndice = new int[0];
+    private int numeroNomiIndice = 0;
+
+    public Ricetta(String nome) {
+        this(nome, null);
+    }
+    
+    /**
+     * Crea una ricetta i cui ingredienti vengono aggiunti in coda alle colonne,
+     * o sullo heap se colonne è null. Gli ingredienti di una ricetta fuori heap
+     * vanno aggiunti prima di creare la ricetta successiva sulle stesse colonne
+     */
+    public Ricetta(String nome, ColonneIngredienti colonne) {
+        this.nome = nome;
+        this.colonne = colonne;
+        this.ingredienti = colonne == null ? new ArrayList<>() : null;
+        this.primaRiga = colonne == null ? 0 : colonne.dimensione();
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * Ingredienti in sola lettura; per le ricette fuori heap è una vista sulle
+     * colonne che crea gli ingredienti a ogni accesso
+     */
+    public List<Ingrediente> getIngredienti() {
+        if (colonne != null) {
+            return colonne.vista(primaRiga, numeroRighe);
+        }
+        return Collections.unmodifiableList(ingredienti);
+    }
+    
+    /**
+     * Colonne con gli ingredienti o null se la ricetta li tiene sullo heap
+     */
+    ColonneIngredienti getColonne() {
+        return colonne;
+    }
+    
+    int getPrimaRiga() {
+        return primaRiga;
+    }
+    
+    int getNumeroIngredienti() {
+        return colonne != null ? numeroRighe : ingredienti.size();
+    }
+    
+    /**
+     * Identificativo (nome, unità) dell'ingrediente in posizione indicata, senza creare l'ingrediente
+     */
+    int getIdIngrediente(int indice) {
+        return colonne != null ? colonne.getIdCoppia(primaRiga + indice) : ingredienti.get(indice).getId();
+    }
+    
+    /**
+     * Identificativo del nome dell'ingrediente in posizione indicata, senza creare l'ingrediente
+     */
+    int getIdNomeIngrediente(int indice) {
+        return colonne != null ? colonne.getIdNome(primaRiga + indice) : ingredienti.get(indice).getIdNome();
+    }
+    
+    /**
+     * Quantità dell'ingrediente in posizione indicata, senza creare l'ingrediente
+     */
+    double getQuantitaIngrediente(int indice) {
+        return colonne != null ? colonne.getQuantita(primaRiga + indice) : ingredienti.get(indice).getQuantita();
+    }
+    
+    /**
+     * Ingrediente in posizione indicata; per le ricette fuori heap viene creato a ogni chiamata
+     */
+    Ingrediente getIngrediente(int indice) {
+        return colonne != null ? colonne.getIngrediente(primaRiga + indice) : ingredienti.get(indice);
+    }
+    
+    boolean isRegistrata() {
+        return registrata;
+    }
+    
+    /**
+     * Posizione della ricetta nell'elenco dell'indice inverso per il nome, -1 se non registrata
+     */
+    int getPosizioneIndice(int idNome) {
+        for (int i = 0; i < numeroNomiIndice; i++) {
+            if (nomiIndice[i] == idNome) {
+                return posizioniIndice[i];
+            }
+        }
+        return -1;
+    }
+    
+    int getNumeroNomiIndice() {
+        return numeroNomiIndice;
+    }
+    
+    int getNomeIndice(int i) {
+        return nomiIndice[i];
+    }
+    
+    int getPosizioneIndiceDi(int i) {
+        return posizioniIndice[i];
+    }
+    
+    void aggiungiPosizioneIndice(int idNome, int posizione) {
+        if (numeroNomiIndice == nomiIndice.length) {
+            nomiIndice = Arrays.copyOf(nomiIndice, Math.max(4, numeroNomiIndice * 2));
+            posizioniIndice = Arrays.copyOf(posizioniIndice, nomiIndice.length);
+        }
+        nomiIndice[numeroNomiIndice] = idNome;
+        posizioniIndice[numeroNomiIndice++] = posizione;
+    }
+    
+    void aggiornaPosizioneIndice(int idNome, int posizione) {
+        for (int i = 0; i < numeroNomiIndice; i++) {
+            if (nomiIndice[i] == idNome) {
+                posizioniIndice[i] = posizione;
+                return;
+            }
+        }
+    }
+    
+    void svuotaIndice() {
+        nomiIndice = new int[0];
+        posizioniIndice = new int[0];
+        numeroNomiIndice = 0;
+    }
+    
+    /**
+     * Invocato da IngredienteFactory, sotto il suo lock, dopo aver registrato gli ingredienti
+     */
+    void segnaRegistrata(long versioneListino) {
+        if (versioneModifica < versioneListino) {
+            versioneModifica = versioneListino;
+        }
+        registrata = true;
+    }
+
+    public void aggiungiIngrediente(Ingrediente ingrediente) {
+        if (colonne != null) {
+            if (colonne.dimensione() != primaRiga + numeroRighe) {
+                throw new IllegalStateException("Le righe della ricetta " + nome + " non sono più in coda alle colonne");
+            }
+            colonne.aggiungi(ingrediente);
+            numeroRighe++;
+        } else {
+            ingredienti.add(ingrediente);
+        }
+        // Le ricette in costruzione vengono registrate una volta sola, al primo costo in cache
+        if (registrata && versioneModifica != Long.MAX_VALUE) {
+            IngredienteFactory.registraUtilizzo(ingrediente.getIdNome(), this);
+        }
+        vettore = null;
+        costo = null;
+    }
+    
+    /**
+     * Costo totale della ricetta secondo il listino corrente
+     */
+    public double getCostoTotale() {
+        return getCostoTotale(IngredienteFactory.getListino());
+    }
+    
+    /**
+     * Costo totale della ricetta secondo il listino indicato, calcolato una volta
+     * e tenuto in cache finché non cambia il prezzo di uno dei suoi ingredienti
+     */
+    public double getCostoTotale(ListinoPrezzi listino) {
+        if (!registrata) {
+            IngredienteFactory.registraRicetta(this);
+        }
+        
+        // Il costo va letto prima della versione di modifica: chi ha scritto un
+        // valore calcolato con un listino più recente ha visto anche le sue invalidazioni
+        CostoInCache inCache = costo;
+        long modifica = versioneModifica;
+        
+        // Il valore in cache è valido per ogni listino successivo all'ultima
+        // modifica dei prezzi usati dalla ricetta
+        if (inCache != null && inCache.versione >= modifica && listino.getVersione() >= modifica) {
+            CACHE_COSTO.successo();
+            return inCache.valore;
+        }
+        CACHE_COSTO.mancato();
+        
+        double valore = 0.0;
+        if (colonne != null) {
+            valore = colonne.costo(primaRiga, numeroRighe, listino);
+        } else {
+            for (Ingrediente ingrediente : ingredienti) {
+                valore += ingrediente.getCostoTotale(listino);
+            }
+        }
+        if (listino.getVersione() >= versioneModifica) {
+            costo = new CostoInCache(listino.getVersione(), valore);
+        }
+        return valore;
+    }
+    
+    /**
+     * Invalida il costo in cache, invocato da IngredienteFactory prima di
+     * pubblicare un listino che cambia il prezzo di un ingrediente usato dalla ricetta.
+     * Con Long.MAX_VALUE il costo non viene più tenuto in cache
+     * @return false se la ricetta era già invalidata per la stessa versione
+     */
+    boolean invalidaCosto(long versioneListino) {
+        if (versioneModifica == versioneListino) {
+            return false;
+        }
+        versioneModifica = versioneListino;
+        return true;
+    }
+    
+    /**
+     * Identificativi (nome, unità) degli ingredienti, nello stesso ordine di
+     * getIngredienti(). L'array è condiviso e non va modificato; per le ricette
+     * fuori heap è una copia nuova a ogni chiamata
+     */
+    public int[] getIdIngredienti() {
+        return getVettore().id;
+    }
+    
+    /**
+     * Quantità degli ingredienti, nello stesso ordine di getIngredienti().
+     * L'array è condiviso e non va modificato; per le ricette fuori heap
+     * è una copia nuova a ogni chiamata
+     */
+    public double[] getQuantitaIngredienti() {
+        return getVettore().quantita;
+    }
+    
+    private VettoreIngredienti getVettore() {
+        if (colonne != null) {
+            // Tenere il vettore in cache riporterebbe le righe sullo heap
+            return new VettoreIngredienti(colonne, primaRiga, numeroRighe);
+        }
+        VettoreIngredienti v = vettore;
+        if (v == null) {
+            v = new VettoreIngredienti(ingredienti);
+            vettore = v;
+        }
+        return v;
+    }
+
+    @Override
+    public String toString() {
+        return nome;
+    }
+    
+    /**
+     * Costo calcolato con una specifica versione del listino
+     */
+    private static final class CostoInCache {
+        final long versione;
+        final double valore;
+        
+        CostoInCache(long versione, double valore) {
+            this.versione = versione;
+            this.valore = valore;
+        }
+    }
+    
+    /**
+     * Copia immutabile di identificativi e quantità degli ingredienti
+     */
+    private static final class VettoreIngredienti {
+        final int[] id;
+        final double[] quantita;
+        
+        VettoreIngredienti(List<Ingrediente> ingredienti) {
+            id = new int[ingredienti.size()];
+            quantita = new double[ingredienti.size()];
+            for (int i = 0; i < id.length; i++) {
+                id[i] = ingredienti.get(i).getId();
+                quantita[i] = ingredienti.get(i).getQuantita();
+            }
+        }
+        
+        /**
+         * Legge un intervallo di righe direttamente dalle colonne
+         */
+        VettoreIngredienti(ColonneIngredienti colonne, int prima, int numero) {
+            id = new int[numero];
+            quantita = new double[numero];
+            for (int i = 0; i < numero; i++) {
+                id[i] = colonne.getIdCoppia(prima + i);
+                quantita[i] = colonne.getQuantita(prima + i);
+            }
+        }
+    }
+}
+
+/**
+ * Aggregatore riutilizzabile per la lista della spesa. Somma le quantità in un
+ * array di double indicizzato per identificativo di ingrediente e tiene traccia
+ * delle sole posizioni toccate, così che lo svuotamento costi quanto gli
+ * ingredienti effettivamente aggregati. Non è thread-safe
+ */
+class AggregatoreListaSpesa {
+    private double[] quantita = new double[0];
+    private Ingrediente[] modelli = new Ingrediente[0]; // primo ingrediente visto per id
+    private int[] toccati = new int[64];
+    private int numeroToccati = 0;
+    
+    /**
+     * Aggiunge tutti gli ingredienti di una ricetta
+     */
+    public void aggiungi(Ricetta ricetta) {
+        ColonneIngredienti colonne = ricetta.getColonne();
+        if (colonne != null) {
+            // Legge le colonne direttamente, creando solo i modelli dei nuovi ingredienti
+            int fine = ricetta.getPrimaRiga() + ricetta.getNumeroIngredienti();
+            for (int riga = ricetta.getPrimaRiga(); riga < fine; riga++) {
+                int id = colonne.getIdCoppia(riga);
+                if (id < modelli.length && modelli[id] != null) {
+                    quantita[id] += colonne.getQuantita(riga);
+                } else {
+                    aggiungi(colonne.getIngrediente(riga));
+                }
+            }
+            return;
+        }
+        int[] id = ricetta.getIdIngredienti();
+        double[] quantitaRicetta = ricetta.getQuantitaIngredienti();
+        for (int i = 0; i < id.length; i++) {
+            if (id[i] < modelli.length && modelli[id[i]] != null) {
+                quantita[id[i]] += quantitaRicetta[i];
+            } else {
+                aggiungi(ricetta.getIngrediente(i));
+            }
+        }
+    }
+    
+    /**
+     * Somma la quantità di un ingrediente senza allocare oggetti
+     */
+    public void aggiungi(Ingrediente ingrediente) {
+        somma(ingrediente, ingrediente.getQuantita());
+    }
+    
+    private void somma(Ingrediente modello, double quantitaDaSommare) {
+        int id = modello.getId();
+        if (id >= quantita.length) {
+            ingrandisci(id + 1);
+        }
+        
+        if (modelli[id] == null) {
+            modelli[id] = modello;
+            quantita[id] = quantitaDaSommare;
+            if (numeroToccati == toccati.length) {
+                toccati = Arrays.copyOf(toccati, numeroToccati * 2);
+            }
+            toccati[numeroToccati++] = id;
+        } else {
+            quantita[id] += quantitaDaSommare;
+        }
+    }
+    
+    /**
+     * Somma un risultato parziale. Fondendo i parziali nell'ordine delle parti
+     * del piano l'ordine degli ingredienti è lo stesso dell'aggregazione sequenziale
+     */
+    public void aggiungi(ParzialeListaSpesa parziale) {
+        for (int i = 0; i < parziale.id.length; i++) {
+            somma(parziale.modelli[i], parziale.quantita[i]);
+        }
+    }
+    
+    /**
+     * Copia le quantità aggregate in un parziale compatto e svuota l'aggregatore
+     */
+    public ParzialeListaSpesa estraiParziale() {
+        ParzialeListaSpesa parziale = new ParzialeListaSpesa(numeroToccati);
+        for (int i = 0; i < numeroToccati; i++) {
+            int id = toccati[i];
+            parziale.id[i] = id;
+            parziale.quantita[i] = quantita[id];
+            parziale.modelli[i] = modelli[id];
+        }
+        svuota();
+        return parziale;
+    }
+    
+    /**
+     * Crea la lista della spesa, nell'ordine in cui gli ingredienti sono stati visti
+     */
+    public Map<String, Ingrediente> getListaSpesa() {
+        Map<String, Ingrediente> listaSpesa = new LinkedHashMap<>(numeroToccati * 2);
+        for (int i = 0; i < numeroToccati; i++) {
+            int id = toccati[i];
+            listaSpesa.put(modelli[id].getChiave(), modelli[id].conQuantita(quantita[id]));
+        }
+        return listaSpesa;
+    }
+    
+    /**
+     * Azzera le sole posizioni usate, rendendo l'aggregatore pronto per un nuovo utilizzo
+     */
+    public void svuota() {
+        for (int i = 0; i < numeroToccati; i++) {
+            int id = toccati[i];
+            modelli[id] = null;
+            quantita[id] = 0.0;
+        }
+        numeroToccati = 0;
+    }
+    
+    private void ingrandisci(int dimensioneMinima) {
+        int nuovaDimensione = Math.max(dimensioneMinima, Math.max(DizionarioIngredienti.numeroCoppie(), quantita.length * 2));
+        quantita = Arrays.copyOf(quantita, nuovaDimensione);
+        modelli = Arrays.copyOf(modelli, nuovaDimensione);
+    }
+}
+
+/**
+ * Quantità aggregate da una parte del piano, in array compatti nell'ordine in
+ * cui gli ingredienti sono stati visti. È immutabile dopo la creazione
+ */
+final class ParzialeListaSpesa {
+    final int[] id;
+    final double[] quantita;
+    final Ingrediente[] modelli;
+    
+    ParzialeListaSpesa(int dimensione) {
+        id = new int[dimensione];
+        quantita = new double[dimensione];
+        modelli = new Ingrediente[dimensione];
+    }
+    
+    /**
+     * Crea la lista della spesa, nell'ordine in cui gli ingredienti sono stati visti
+     */
+    public Map<String, Ingrediente> getListaSpesa() {
+        Map<String, Ingrediente> listaSpesa = new LinkedHashMap<>(id.length * 2);
+        for (int i = 0; i < id.length; i++) {
+            listaSpesa.put(modelli[i].getChiave(), modelli[i].conQuantita(quantita[i]));
+        }
+        return listaSpesa;
+    }
+}
+
+/**
+ * Aggregazione fork/join della lista della spesa. L'intervallo di posizioni
+ * viene diviso a metà fino a una soglia fissa, quindi l'albero delle parti
+ * dipende solo dalla dimensione del piano e non dal numero di thread. Ogni
+ * foglia somma in un aggregatore primitivo del proprio thread e ne estrae un
+ * parziale compatto; i parziali vengono fusi sempre come sinistra + destra,
+ * così ogni quantità viene sommata nello stesso ordine a ogni esecuzione
+ */
+class AggregazioneParallela extends RecursiveTask<ParzialeListaSpesa> {
+    /**
+     * Aggiunge all'aggregatore le ricette di una posizione del piano
+     */
+    @FunctionalInterface
+    interface Sorgente {
+        void aggiungi(int posizione, AggregatoreListaSpesa aggregatore);
+    }
+    
+    // Aggregatore di lavoro di ogni thread, vuoto tra un utilizzo e l'altro
+    private static final ThreadLocal<AggregatoreListaSpesa> aggregatori =
+        ThreadLocal.withInitial(AggregatoreListaSpesa::new);
+    
+    private final Sorgente sorgente;
+    private final int da;
+    private final int a;
+    private final int soglia;
+    
+    private AggregazioneParallela(Sorgente sorgente, int da, int a, int soglia) {
+        this.sorgente = sorgente;
+        this.da = da;
+        this.a = a;
+        this.soglia = soglia;
+    }
+    
+    /**
+     * Aggrega le posizioni da 0 a dimensione esclusa. Sotto la soglia
+     * l'aggregazione avviene nel thread chiamante senza usare il pool
+     */
+    static ParzialeListaSpesa aggrega(Sorgente sorgente, int dimensione, int soglia) {
+        AggregazioneParallela radice = new AggregazioneParallela(sorgente, 0, dimensione, soglia);
+        return dimensione <= soglia ? radice.compute() : ForkJoinPool.commonPool().invoke(radice);
+    }
+    
+    @Override
+    protected ParzialeListaSpesa compute() {
+        if (a - da <= soglia) {
+            AggregatoreListaSpesa aggregatore = aggregatori.get();
+            try {
+                for (int posizione = da; posizione < a; posizione++) {
+                    sorgente.aggiungi(posizione, aggregatore);
+                }
+                return aggregatore.estraiParziale();
+            } finally {
+                aggregatore.svuota();
+            }
+        }
+        
+        int meta = (da + a) >>> 1;
+        AggregazioneParallela sinistra = new AggregazioneParallela(sorgente, da, meta, soglia);
+        AggregazioneParallela destra = new AggregazioneParallela(sorgente, meta, a, soglia);
+        sinistra.fork();
+        ParzialeListaSpesa parzialeDestra = destra.compute();
+        ParzialeListaSpesa parzialeSinistra = sinistra.join();
+        
+        // L'aggregatore del thread è libero: nessuna foglia lo tiene occupato durante una join
+        AggregatoreListaSpesa aggregatore = aggregatori.get();
+        try {
+            aggregatore.aggiungi(parzialeSinistra);
+            aggregatore.aggiungi(parzialeDestra);
+            return aggregatore.estraiParziale();
+        } finally {
+            aggregatore.svuota();
+        }
+    }
+}
+
+/**
+ * Lista della spesa mantenuta in modo incrementale: ogni ricetta aggiunta o
+ * rimossa dalla pianificazione applica solo le variazioni dei propri ingredienti
+ * ai totali correnti, così che quantità e costo totale siano sempre aggiornati
+ * in tempo proporzionale agli ingredienti della ricetta modificata
+ */
+class ListaSpesaIncrementale {
+    private double[] quantita = new double[0];
+    private int[] contributi = new int[0]; // quante righe ingrediente contribuiscono a ogni id
+    private Ingrediente[] modelli = new Ingrediente[0];
+    
+    // Identificativi presenti nella lista, con la posizione di ognuno per rimozioni O(1)
+    private int[] presenti = new int[64];
+    private int[] posizioni = new int[0];
+    private int numeroPresenti = 0;
+    
+    private double costoTotale = 0.0;
+    private ListinoPrezzi listinoCosto = IngredienteFactory.getListino(); // listino usato per costoTotale
+    
+    /**
+     * Applica alla lista gli ingredienti di una ricetta aggiunta alla pianificazione
+     */
+    public void aggiungiRicetta(Ricetta ricetta) {
+        ListinoPrezzi listino = allineaListino();
+        for (int i = 0; i < ricetta.getNumeroIngredienti(); i++) {
+            applica(ricetta, i, 1, listino);
+        }
+    }
+    
+    /**
+     * Sottrae dalla lista gli ingredienti di una ricetta rimossa dalla pianificazione
+     */
+    public void rimuoviRicetta(Ricetta ricetta) {
+        ListinoPrezzi listino = allineaListino();
+        for (int i = 0; i < ricetta.getNumeroIngredienti(); i++) {
+            applica(ricetta, i, -1, listino);
+        }
+        
+        // Senza ingredienti il costo è esattamente zero, evitando residui di arrotondamento
+        if (numeroPresenti == 0) {
+            costoTotale = 0.0;
+        }
+    }
+    
+    /**
+     * Applica la riga in posizione indicata della ricetta, creando l'ingrediente
+     * solo quando il suo identificativo entra nella lista
+     */
+    private void applica(Ricetta ricetta, int indice, int segno, ListinoPrezzi listino) {
+        int id = ricetta.getIdIngrediente(indice);
+        if (id >= quantita.length) {
+            ingrandisci(id + 1);
+        }
+        
+        if (segno > 0 && contributi[id]++ == 0) {
+            modelli[id] = ricetta.getIngrediente(indice);
+            quantita[id] = 0.0;
+            aggiungiPresente(id);
+        }
+        
+        // Con le confezioni il costo non è proporzionale alla quantità:
+        // si sostituisce il costo d'acquisto della riga con quello nuovo
+        int idNome = DizionarioIngredienti.getIdNome(id);
+        String unita = DizionarioIngredienti.getUnita(id);
+        costoTotale -= listino.getCostoAcquisto(idNome, unita, quantita[id]);
+        quantita[id] += segno * ricetta.getQuantitaIngrediente(indice);
+        
+        if (segno < 0 && --contributi[id] == 0) {
+            modelli[id] = null;
+            quantita[id] = 0.0;
+            rimuoviPresente(id);
+        }
+        costoTotale += listino.getCostoAcquisto(idNome, unita, quantita[id]);
+    }
+    
+    /**
+     * Costo totale corrente, equivalente a GestoreRicette.calcolaCostoTotale
+     * sulla lista generata dall'intera pianificazione
+     */
+    public double getCostoTotale() {
+        allineaListino();
+        return costoTotale;
+    }
+    
+    /**
+     * Listino con cui è calcolato il costo totale corrente
+     */
+    public ListinoPrezzi getListino() {
+        return allineaListino();
+    }
+    
+    /**
+     * Applica al costo totale solo le variazioni dei prezzi cambiati, in tempo
+     * proporzionale agli ingredienti modificati presenti nella lista
+     */
+    public void applicaVariazione(VariazionePrezzi variazione) {
+        if (listinoCosto != variazione.getPrecedente()) {
+            // La lista non era allineata al listino precedente: ricalcolo completo
+            allineaListino();
+            return;
+        }
+        
+        ListinoPrezzi precedente = variazione.getPrecedente();
+        ListinoPrezzi nuovo = variazione.getNuovo();
+        for (int idNome : variazione.getIdNomiModificati()) {
+            for (int id : DizionarioIngredienti.getCoppie(idNome)) {
+                if (id < contributi.length && contributi[id] > 0) {
+                    String unita = modelli[id].getUnita();
+                    costoTotale += nuovo.getCostoAcquisto(idNome, unita, quantita[id])
+                        - precedente.getCostoAcquisto(idNome, unita, quantita[id]);
+                }
+            }
+        }
+        listinoCosto = nuovo;
+    }
+    
+    /**
+     * Se nel frattempo è stato pubblicato un nuovo listino, ricalcola il costo
+     * totale sulle quantità correnti
+     */
+    private ListinoPrezzi allineaListino() {
+        ListinoPrezzi listino = IngredienteFactory.getListino();
+        if (listino != listinoCosto) {
+            double costo = 0.0;
+            for (int i = 0; i < numeroPresenti; i++) {
+                int id = presenti[i];
+                costo += listino.getCostoAcquisto(modelli[id].getIdNome(), modelli[id].getUnita(), quantita[id]);
+            }
+            costoTotale = costo;
+            listinoCosto = listino;
+        }
+        return listino;
+    }
+    
+    public boolean isVuota() {
+        return numeroPresenti == 0;
+    }
+    
+    /**
+     * Crea la vista della lista della spesa con le quantità correnti
+     */
+    public Map<String, Ingrediente> getListaSpesa() {
+        Map<String, Ingrediente> listaSpesa = new LinkedHashMap<>(numeroPresenti * 2);
+        for (int i = 0; i < numeroPresenti; i++) {
+            int id = presenti[i];
+            listaSpesa.put(modelli[id].getChiave(), modelli[id].conQuantita(quantita[id]));
+        }
+        return listaSpesa;
+    }
+    
+    private void aggiungiPresente(int id) {
+        if (numeroPresenti == presenti.length) {
+            presenti = Arrays.copyOf(presenti, numeroPresenti * 2);
+        }
+        posizioni[id] = numeroPresenti;
+        presenti[numeroPresenti++] = id;
+    }
+    
+    private void rimuoviPresente(int id) {
+        int posizione = posizioni[id];
+        int ultimo = presenti[--numeroPresenti];
+        presenti[posizione] = ultimo;
+        posizioni[ultimo] = posizione;
+    }
+    
+    private void ingrandisci(int dimensioneMinima) {
+        int nuovaDimensione = Math.max(dimensioneMinima, Math.max(DizionarioIngredienti.numeroCoppie(), quantita.length * 2));
+        quantita = Arrays.copyOf(quantita, nuovaDimensione);
+        contributi = Arrays.copyOf(contributi, nuovaDimensione);
+        modelli = Arrays.copyOf(modelli, nuovaDimensione);
+        posizioni = Arrays.copyOf(posizioni, nuovaDimensione);
+    }
+}
+
+/**
+ * Enum per rappresentare i pasti della giornata
+ */
+enum TipoPasto {
+    COLAZIONE("Colazione", 2),
+    PRANZO("Pranzo", 3),
+    CENA("Cena", 3);
+    
+    private final String nome;
+    private final int maxRicette;
+    
+    TipoPasto(String nome, int maxRicette) {
+        this.nome = nome;
+        this.maxRicette = maxRicette;
+    }
+    
+    public String getNome() {
+        return nome;
+    }
+    
+    public int getMaxRicette() {
+        return maxRicette;
+    }
+    
+    /**
+     * Ottiene il nome del file associato a questo tipo di pasto
+     */
+    public String getNomeFile() {
+        return nome.toLowerCase() + ".txt";
+    }
+}
+
+/**
+ * Rappresenta una giornata alimentare con colazione, pranzo e cena
+ */
+class PianificazioneGiornaliera {
+    private final Map<TipoPasto, List<Ricetta>> pasti;
+    
+    public PianificazioneGiornaliera() {
+        // Utilizzo di EnumMap per ottimizzare le performance con le enum
+        pasti = new EnumMap<>(TipoPasto.class);
+        
+        // Inizializza con liste vuote per ogni tipo di pasto
+        for (TipoPasto tipo : TipoPasto.values()) {
+            pasti.put(tipo, new ArrayList<>());
+        }
+    }
+    
+    /**
+     * Ottiene la lista di ricette per un determinato pasto
+     */
+    public List<Ricetta> getRicette(TipoPasto tipo) {
+        return pasti.get(tipo);
+    }
+    
+    /**
+     * Aggiunge una ricetta a un pasto se non si è raggiunto il limite
+     * @return true se la ricetta è stata aggiunta, false altrimenti
+     */
+    public boolean aggiungiRicetta(TipoPasto tipo, Ricetta ricetta) {
+        List<Ricetta> ricette = pasti.get(tipo);
+        
+        // Controlla se abbiamo raggiunto il limite di ricette per questo pasto
+        if (ricette.size() < tipo.getMaxRicette()) {
+            ricette.add(ricetta);
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Rimuove una ricetta da un pasto
+     * @return true se la ricetta è stata rimossa, false se non esisteva
+     */
+    public boolean rimuoviRicetta(TipoPasto tipo, Ricetta ricetta) {
+        return pasti.get(tipo).remove(ricetta);
+    }
+    
+    /**
+     * Copia della giornata con liste di ricette indipendenti
+     */
+    public PianificazioneGiornaliera copia() {
+        PianificazioneGiornaliera copia = new PianificazioneGiornaliera();
+        pasti.forEach((tipo, ricette) -> copia.pasti.get(tipo).addAll(ricette));
+        return copia;
+    }
+    
+    /**
+     * Ottiene tutti gli ingredienti di tutte le ricette in questa giornata
+     */
+    public List<Ingrediente> getTuttiIngredienti() {
+        return pasti.values().stream()
+                .flatMap(List::stream)
+                .flatMap(ricetta -> ricetta.getIngredienti().stream())
+                .collect(Collectors.toList());
+    }
+}
+
+/**
+ * Classe per gestire le ricette e la lista della spesa
+ */
+class GestoreRicette {
+    // Mappa che associa ogni tipo di pasto alla sua lista di ricette
+    private final Map<TipoPasto, List<Ricetta>> ricettariPerTipo;
+    
+    // Indice dei nomi di ogni ricettario, per la ricerca senza scorrere le ricette
+    private final Map<TipoPasto, IndiceNomiRicette> indiciPerTipo;
+    
+    // Indice inverso dagli ingredienti alle ricette di ogni ricettario
+    private final Map<TipoPasto, IndiceIngredientiRicette> indiciIngredientiPerTipo;
+    
+    // Costanti per il caricamento dei file
+    private static final String DELIMITATORE_CSV = ",";
+    private static final String INDICATORE_INGREDIENTE = "-";
+    
+    // Parti più piccole di queste vengono aggregate senza dividerle ulteriormente
+    private static final int SOGLIA_RICETTE_PARALLELE = 4096;
+    private static final int SOGLIA_GIORNATE_PARALLELE = 512;
+    
+    // Metriche di caricamento e generazione; le righe vengono contate anche dal caricatore mappato
+    static final Contatore RIGHE_LETTE = Metriche.contatore("caricamento.righe");
+    static final Contatore RIGHE_MALFORMATE = Metriche.contatore("caricamento.righeMalformate");
+    private static final Contatore RIGHE_PREZZI = Metriche.contatore("prezzi.righe");
+    private static final Contatore RIGHE_PREZZI_MALFORMATE = Metriche.contatore("prezzi.righeMalformate");
+    private static final RapportoCache CACHE_SNAPSHOT = Metriche.cache("cache.snapshot");
+    private static final Cronometro TEMPO_LISTA_SPESA = Metriche.cronometro("listaSpesa.generazione");
+    private static final Istogramma INGREDIENTI_LISTA_SPESA = Metriche.istogramma("listaSpesa.ingredienti");
+    private static final Contatore RICETTE_AGGREGATE = Metriche.contatore("listaSpesa.ricetteAggregate");
+    
+    // Modalità di lettura dei file dei ricettari
+    private ModalitaCaricamento modalitaCaricamento = ModalitaCaricamento.TESTO;
+    
+    // Ricette materializzate tenute in memoria da ogni ricettario in modalità STREAMING
+    private int capacitaRicetteMaterializzate = RicettarioMappato.CAPACITA_PREDEFINITA;
+    
+    // Dove vengono tenuti gli ingredienti delle ricette caricate
+    private ArchivioIngredienti archivioIngredienti = ArchivioIngredienti.HEAP;
+    
+    // Colonne fuori heap in cui vengono aggiunte le ricette di ogni ricettario
+    private final Map<TipoPasto, ColonneIngredienti> colonnePerTipo = new EnumMap<>(TipoPasto.class);
+    
+    // Impronte dei sorgenti prese prima di leggerli, solo per i ricettari letti
+    // interamente da un unico file; servono a salvare lo snapshot binario
+    private final Map<TipoPasto, ImprontaFile> impronteRicettari = new EnumMap<>(TipoPasto.class);
+    
+    // Ultimi prezzi letti per intero dal volantino, con l'impronta del file; null se sconosciuti
+    private Map<String, PrezzoIngrediente> prezziCaricati;
+    private ImprontaFile improntaPrezzi;
+    
+    // Se i caricamenti prendono le impronte dei sorgenti: solo quando lo snapshot verrà salvato
+    private volatile boolean snapshotDaSalvare = false;
+    
+    // Ultimo file di prezzi letto e confezioni già segnalate come in un'altra unità
+    private String filePrezzi;
+    private final Set<String> confezioniSegnalate = new HashSet<>();
+    
+    // Dove raccogliere le righe scartate; null per segnalarle su System.err
+    private volatile RapportoImportazione rapportoImportazione;
+
+    public GestoreRicette() {
+        // Utilizziamo EnumMap per ottimizzare l'uso di enum come chiavi
+        ricettariPerTipo = new EnumMap<>(TipoPasto.class);
+        indiciPerTipo = new EnumMap<>(TipoPasto.class);
+        indiciIngredientiPerTipo = new EnumMap<>(TipoPasto.class);
+        
+        // Inizializza liste vuote per ogni tipo di pasto
+        for (TipoPasto tipo : TipoPasto.values()) {
+            ricettariPerTipo.put(tipo, new ArrayList<>());
+            indiciPerTipo.put(tipo, new IndiceNomiRicette());
+            indiciIngredientiPerTipo.put(tipo, new IndiceIngredientiRicette());
+        }
+    }
+
+    /**
+     * Imposta la modalità con cui verranno letti i file dei ricettari
+     */
+    public void setModalitaCaricamento(ModalitaCaricamento modalitaCaricamento) {
+        this.modalitaCaricamento = modalitaCaricamento;
+    }
+    
+    /**
+     * Imposta dove tenere gli ingredienti delle ricette caricate da qui in poi.
+     * In modalità STREAMING le ricette materializzate restano sullo heap,
+     * perché quelle espulse dalla cache non lascino righe nelle colonne
+     */
+    public void setArchivioIngredienti(ArchivioIngredienti archivioIngredienti) {
+        this.archivioIngredienti = archivioIngredienti;
+    }
+    
+    /**
+     * Raccoglie nel rapporto le righe scartate dai caricamenti successivi,
+     * invece di segnalarle su System.err; null ripristina le segnalazioni.
+     * In modalità STREAMING gli ingredienti vengono letti solo quando servono
+     * e le loro righe non vengono segnalate
+     */
+    public void setRapportoImportazione(RapportoImportazione rapportoImportazione) {
+        this.rapportoImportazione = rapportoImportazione;
+    }
+    
+    public RapportoImportazione getRapportoImportazione() {
+        return rapportoImportazione;
+    }
+    
+    /**
+     * Indica se i caricamenti successivi verranno salvati nello snapshot binario.
+     * Senza snapshot da salvare i sorgenti non vengono esaminati per l'impronta
+     */
+    public void setSnapshotDaSalvare(boolean snapshotDaSalvare) {
+        this.snapshotDaSalvare = snapshotDaSalvare;
+    }
+    
+    /**
+     * Imposta quante ricette per ricettario restano materializzate in modalità STREAMING
+     */
+    public void setCapacitaRicetteMaterializzate(int capacita) {
+        if (capacita <= 0) {
+            throw new IllegalArgumentException("La capacità deve essere positiva: " + capacita);
+        }
+        this.capacitaRicetteMaterializzate = capacita;
+    }
+
+    /**
+     * Ottiene il ricettario per un determinato tipo di pasto
+     */
+    public synchronized List<Ricetta> getRicettario(TipoPasto tipo) {
+        return Collections.unmodifiableList(ricettariPerTipo.get(tipo));
+    }
+    
+    /**
+     * Ottiene la lista completa di tutte le ricette.
+     * In modalità STREAMING materializza ogni ricetta: per contarle usare {@link #numeroRicette()}
+     */
+    public synchronized List<Ricetta> getTutteLeRicette() {
+        return ricettariPerTipo.values().stream()
+               .flatMap(List::stream)
+               .collect(Collectors.toList());
+    }
+    
+    /**
+     * Numero di ricette di tutti i ricettari, senza materializzarle
+     */
+    public synchronized int numeroRicette() {
+        int totale = 0;
+        for (List<Ricetta> ricettario : ricettariPerTipo.values()) {
+            totale += ricettario.size();
+        }
+        return totale;
+    }
+    
+    /**
+     * Toglie tutte le ricette dall'indice inverso dei prezzi, quando il gestore non serve più
+     */
+    public synchronized void dismettiRicettari() {
+        for (List<Ricetta> ricettario : ricettariPerTipo.values()) {
+            dismetti(ricettario);
+        }
+    }
+
+    /**
+     * Carica le ricette da un file di testo specifico per un tipo di pasto.
+     * Può essere invocato in parallelo per tipi di pasto diversi, purché i prezzi
+     * vengano caricati solo al termine di tutti i caricamenti.
+     * In modalità STREAMING il ricettario viene sostituito invece che esteso
+     */
+    public void caricaRicettePerTipo(TipoPasto tipo, String nomeFile) throws IOException {
+        if (modalitaCaricamento == ModalitaCaricamento.STREAMING) {
+            ricaricaRicettePerTipo(tipo, nomeFile);
+            return;
+        }
+        EventoCaricamentoRicettario evento = new EventoCaricamentoRicettario();
+        evento.begin();
+        long inizio = System.nanoTime();
+        List<Ricetta> ricettario = inizioCaricamento(tipo);
+        int ricettePrecedenti = ricettario.size();
+        leggiRicette(nomeFile, ricettario, colonneDi(tipo));
+        indicizza(tipo);
+        fineCaricamento(evento, inizio, tipo, nomeFile, ricettario.size() - ricettePrecedenti, false);
+    }
+    
+    /**
+     * Carica le ricette di un tipo di pasto dallo snapshot binario se il file
+     * sorgente non è cambiato, altrimenti dal file di testo
+     * @return true se le ricette sono state lette dallo snapshot
+     */
+    public boolean caricaRicettePerTipo(TipoPasto tipo, String nomeFile, SnapshotRicettario snapshot) throws IOException {
+        if (modalitaCaricamento == ModalitaCaricamento.STREAMING) {
+            // Lo snapshot contiene tutte le ricette, che in streaming non devono stare in memoria
+            caricaRicettePerTipo(tipo, nomeFile);
+            return false;
+        }
+        EventoCaricamentoRicettario evento = new EventoCaricamentoRicettario();
+        evento.begin();
+        long inizio = System.nanoTime();
+        Path sorgente = Paths.get(nomeFile);
+        List<Ricetta> ricettario = inizioCaricamento(tipo);
+        int ricettePrecedenti = ricettario.size();
+        ColonneIngredienti colonne = colonneDi(tipo);
+        boolean daSnapshot = snapshot != null && snapshot.caricaRicette(tipo, sorgente, ricettario, colonne);
+        ImprontaFile impronta;
+        if (daSnapshot) {
+            impronta = snapshot.getImprontaRicette(tipo);
+        } else {
+            impronta = improntaSorgente(sorgente);
+            leggiRicette(nomeFile, ricettario, colonne);
+        }
+        if (ricettePrecedenti == 0) {
+            // Un ricettario esteso da più file non corrisponde a un unico sorgente
+            registraImpronta(tipo, impronta);
+        }
+        indicizza(tipo);
+        fineCaricamento(evento, inizio, tipo, nomeFile, ricettario.size() - ricettePrecedenti, daSnapshot);
+        registraSnapshot(snapshot, daSnapshot);
+        return daSnapshot;
+    }
+    
+    /**
+     * Registra la durata di un caricamento di ricettario ed emette il suo evento JFR
+     */
+    private void fineCaricamento(EventoCaricamentoRicettario evento, long inizio, TipoPasto tipo,
+                                 String nomeFile, int ricette, boolean daSnapshot) throws IOException {
+        tempoCaricamento(nomeFile).ferma(inizio);
+        segnalaConfezioniIncompatibili();
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.file = nomeFile;
+            evento.tipo = tipo.getNome();
+            evento.dimensione = Files.size(Paths.get(nomeFile));
+            evento.ricette = ricette;
+            evento.modalita = modalitaCaricamento.name();
+            evento.daSnapshot = daSnapshot;
+            evento.commit();
+        }
+    }
+    
+    /**
+     * Cronometro dei caricamenti di un file, identificato dal nome senza cartella
+     */
+    private static Cronometro tempoCaricamento(String nomeFile) {
+        return Metriche.cronometro("caricamento." + Paths.get(nomeFile).getFileName());
+    }
+    
+    private static void registraSnapshot(SnapshotRicettario snapshot, boolean daSnapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        if (daSnapshot) {
+            CACHE_SNAPSHOT.successo();
+        } else {
+            CACHE_SNAPSHOT.mancato();
+        }
+    }
+    
+    private synchronized List<Ricetta> inizioCaricamento(TipoPasto tipo) {
+        // Finché il caricamento non termina il ricettario non corrisponde a nessuna impronta
+        impronteRicettari.remove(tipo);
+        return ricettariPerTipo.get(tipo);
+    }
+    
+    private synchronized void registraImpronta(TipoPasto tipo, ImprontaFile impronta) {
+        if (impronta != null) {
+            impronteRicettari.put(tipo, impronta);
+        } else {
+            impronteRicettari.remove(tipo);
+        }
+    }
+    
+    /**
+     * Impronta di un sorgente presa prima di leggerlo, o null se non verrà salvato nessuno snapshot
+     */
+    private ImprontaFile improntaSorgente(Path sorgente) throws IOException {
+        return snapshotDaSalvare ? ImprontaFile.di(sorgente) : null;
+    }
+    
+    /**
+     * Colonne in cui aggiungere le ricette di un ricettario, o null se gli ingredienti stanno sullo heap
+     */
+    private synchronized ColonneIngredienti colonneDi(TipoPasto tipo) {
+        if (archivioIngredienti != ArchivioIngredienti.FUORI_HEAP) {
+            return null;
+        }
+        return colonnePerTipo.computeIfAbsent(tipo, t -> new ColonneIngredienti());
+    }
+    
+    /**
+     * Aggiunge agli indici le ricette caricate in coda al ricettario
+     */
+    private synchronized void indicizza(TipoPasto tipo) {
+        indiciPerTipo.get(tipo).aggiungiTutte(ricettariPerTipo.get(tipo));
+        indiciIngredientiPerTipo.get(tipo).aggiungiTutte(ricettariPerTipo.get(tipo));
+    }
+    
+    /**
+     * Rilegge il file di un ricettario e lo sostituisce atomicamente a quello
+     * corrente. Le ricette precedenti restano valide per le pianificazioni che
+     * le contengono ma non vengono più invalidate dai cambi di prezzo
+     */
+    public void ricaricaRicettePerTipo(TipoPasto tipo, String nomeFile) throws IOException {
+        EventoCaricamentoRicettario evento = new EventoCaricamentoRicettario();
+        evento.begin();
+        long inizio = System.nanoTime();
+        List<Ricetta> nuovoRicettario;
+        ColonneIngredienti nuoveColonne = null;
+        ImprontaFile impronta = null; // in STREAMING lo snapshot non viene salvato
+        if (modalitaCaricamento == ModalitaCaricamento.STREAMING) {
+            // Il costo delle ricette viene calcolato quando vengono materializzate
+            nuovoRicettario = new CaricatoreRicetteMappato().mappaRicettario(Paths.get(nomeFile),
+                capacitaRicetteMaterializzate);
+        } else {
+            nuovoRicettario = new ArrayList<>();
+            if (archivioIngredienti == ArchivioIngredienti.FUORI_HEAP) {
+                nuoveColonne = new ColonneIngredienti();
+            }
+            impronta = improntaSorgente(Paths.get(nomeFile));
+            leggiRicette(nomeFile, nuovoRicettario, nuoveColonne);
+            
+            ListinoPrezzi listino = IngredienteFactory.getListino();
+            for (Ricetta ricetta : nuovoRicettario) {
+                ricetta.getCostoTotale(listino);
+            }
+        }
+        IndiceNomiRicette nuovoIndice = IndiceNomiRicette.di(nuovoRicettario);
+        IndiceIngredientiRicette nuovoIndiceIngredienti = IndiceIngredientiRicette.di(nuovoRicettario);
+        
+        List<Ricetta> vecchioRicettario;
+        synchronized (this) {
+            vecchioRicettario = ricettariPerTipo.put(tipo, nuovoRicettario);
+            indiciPerTipo.put(tipo, nuovoIndice);
+            indiciIngredientiPerTipo.put(tipo, nuovoIndiceIngredienti);
+            if (impronta != null) {
+                impronteRicettari.put(tipo, impronta);
+            } else {
+                impronteRicettari.remove(tipo);
+            }
+            // Le colonne precedenti restano raggiungibili dalle ricette dismesse ancora pianificate
+            if (nuoveColonne != null) {
+                colonnePerTipo.put(tipo, nuoveColonne);
+            } else {
+                colonnePerTipo.remove(tipo);
+            }
+        }
+        dismetti(vecchioRicettario);
+        fineCaricamento(evento, inizio, tipo, nomeFile, nuovoRicettario.size(), false);
+    }
+    
+    /**
+     * Toglie un ricettario dall'indice inverso dei prezzi; di un ricettario
+     * mappato vengono tolte solo le ricette materializzate
+     */
+    private static void dismetti(List<Ricetta> ricettario) {
+        if (ricettario instanceof RicettarioMappato) {
+            ((RicettarioMappato) ricettario).dismetti();
+        } else {
+            IngredienteFactory.dismettiRicette(ricettario);
+        }
+    }
+    
+    private void leggiRicette(String nomeFile, List<Ricetta> ricettario, ColonneIngredienti colonne) throws IOException {
+        RapportoImportazione rapporto = rapportoImportazione;
+        if (modalitaCaricamento == ModalitaCaricamento.MAPPATO) {
+            new CaricatoreRicetteMappato(colonne, rapporto).carica(Paths.get(nomeFile), ricettario);
+            return;
+        }
+        
+        // Le righe vengono contate localmente e registrate una volta per file;
+        // solo quelle scartate vengono analizzate di nuovo per il rapporto
+        long righe = 0;
+        long malformate = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(nomeFile))) {
+            String line;
+            Ricetta ricettaCorrente = null;
+
+            while ((line = reader.readLine()) != null) {
+                righe++;
+                String contenuto = line.trim();
+                if (contenuto.isEmpty()) continue;
+
+                if (!contenuto.startsWith(INDICATORE_INGREDIENTE)) {
+                    // Nuova ricetta
+                    ricettaCorrente = new Ricetta(contenuto, colonne);
+                    ricettario.add(ricettaCorrente);
+                } else if (ricettaCorrente == null) {
+                    malformate++;
+                    if (rapporto != null) {
+                        rapporto.aggiungi(new Diagnostica(nomeFile, (int) righe, line.indexOf(INDICATORE_INGREDIENTE) + 1,
+                            MotivoScarto.INGREDIENTE_SENZA_RICETTA, ""));
+                    }
+                } else if (!processaRigaIngrediente(contenuto.substring(1).trim(), ricettaCorrente, rapporto == null)) {
+                    // Ingrediente della ricetta corrente non valido
+                    malformate++;
+                    if (rapporto != null) {
+                        rapporto.aggiungi(Diagnostica.perIngrediente(nomeFile, (int) righe, line));
+                    }
+                }
+            }
+        } finally {
+            RIGHE_LETTE.aggiungi(righe);
+            RIGHE_MALFORMATE.aggiungi(malformate);
+            if (rapporto != null) {
+                rapporto.fileLetto(nomeFile, righe, malformate);
+            }
+        }
+    }
+    
+    /**
+     * Metodo di utilità per caricare le ricette per tutti i tipi di pasto
+     */
+    public void caricaTutteLeRicette() throws IOException {
+        for (TipoPasto tipo : TipoPasto.values()) {
+            caricaRicettePerTipo(tipo, tipo.getNomeFile());
+        }
+    }
+    
+    /**
+     * Processa una riga ingrediente e la aggiunge alla ricetta
+     * @param segnala se stampare su System.err le quantità non numeriche
+     * @return false se la riga è stata scartata
+     */
+    private boolean processaRigaIngrediente(String riga, Ricetta ricetta, boolean segnala) {
+        String[] parti = riga.split(DELIMITATORE_CSV);
+        if (parti.length < 3) return false;
+        
+        try {
+            String nomeIngrediente = parti[0].trim();
+            double quantita = Double.parseDouble(parti[1].trim());
+            String unita = parti[2].trim();
+            
+            // Usa il factory method per creare l'ingrediente
+            Ingrediente ingrediente = IngredienteFactory.crea(nomeIngrediente, quantita, unita);
+            ricetta.aggiungiIngrediente(ingrediente);
+            return true;
+        } catch (NumberFormatException e) {
+            if (segnala) {
+                System.err.println("Errore di formato nei dati dell'ingrediente: " + riga);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Carica i prezzi degli ingredienti da un file di testo e li pubblica
+     * come un'unica nuova versione del listino
+     */
+    public void caricaPrezzi(String nomeFile) throws IOException {
+        EventoCaricamentoPrezzi evento = new EventoCaricamentoPrezzi();
+        evento.begin();
+        long inizio = System.nanoTime();
+        Map<String, PrezzoIngrediente> prezzi = leggiPrezzi(nomeFile, rapportoImportazione);
+        VariazionePrezzi variazione = applicaPrezzi(prezzi);
+        // I prezzi vengono aggiunti al listino esistente: il file non basta più a descriverlo
+        registraPrezzi(nomeFile, null, null);
+        fineCaricamentoPrezzi(evento, inizio, nomeFile, prezzi.size(), variazione, false, false);
+    }
+    
+    /**
+     * Carica i prezzi dallo snapshot binario se il file sorgente non è cambiato,
+     * altrimenti dal file di testo
+     * @return true se i prezzi sono stati letti dallo snapshot
+     */
+    public boolean caricaPrezzi(String nomeFile, SnapshotRicettario snapshot) throws IOException {
+        EventoCaricamentoPrezzi evento = new EventoCaricamentoPrezzi();
+        evento.begin();
+        long inizio = System.nanoTime();
+        Path sorgente = Paths.get(nomeFile);
+        Map<String, PrezzoIngrediente> prezzi = snapshot != null ? snapshot.leggiPrezzi(sorgente) : null;
+        boolean daSnapshot = prezzi != null;
+        ImprontaFile impronta;
+        if (daSnapshot) {
+            impronta = snapshot.getImprontaPrezzi();
+        } else {
+            impronta = improntaSorgente(sorgente);
+            prezzi = leggiPrezzi(nomeFile, rapportoImportazione);
+        }
+        VariazionePrezzi variazione = applicaPrezzi(prezzi);
+        registraPrezzi(nomeFile, prezzi, impronta);
+        fineCaricamentoPrezzi(evento, inizio, nomeFile, prezzi.size(), variazione, false, daSnapshot);
+        registraSnapshot(snapshot, daSnapshot);
+        return daSnapshot;
+    }
+    
+    private VariazionePrezzi applicaPrezzi(Map<String, PrezzoIngrediente> prezzi) {
+        VariazionePrezzi variazione = IngredienteFactory.pubblicaPrezzi(prezzi);
+        ListinoPrezzi listino = variazione.getNuovo();
+        
+        // Il costo di ogni ricetta viene calcolato una volta qui e resta in cache;
+        // le ricette dei ricettari mappati lo calcolano quando vengono materializzate
+        for (Ricetta ricetta : ricetteResidenti()) {
+            ricetta.getCostoTotale(listino);
+        }
+        return variazione;
+    }
+    
+    /**
+     * Registra la durata di un caricamento di prezzi ed emette il suo evento JFR
+     */
+    private static void fineCaricamentoPrezzi(EventoCaricamentoPrezzi evento, long inizio, String nomeFile, int voci,
+                                              VariazionePrezzi variazione, boolean sostituzione, boolean daSnapshot) {
+        tempoCaricamento(nomeFile).ferma(inizio);
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.file = nomeFile;
+            evento.voci = voci;
+            evento.ingredientiModificati = variazione.getIdNomiModificati().length;
+            evento.ricetteCoinvolte = variazione.getRicetteInvalidate();
+            evento.sostituzione = sostituzione;
+            evento.daSnapshot = daSnapshot;
+            evento.commit();
+        }
+    }
+    
+    private synchronized List<Ricetta> ricetteResidenti() {
+        List<Ricetta> ricette = new ArrayList<>();
+        for (List<Ricetta> ricettario : ricettariPerTipo.values()) {
+            if (!(ricettario instanceof RicettarioMappato)) {
+                ricette.addAll(ricettario);
+            }
+        }
+        return ricette;
+    }
+    
+    private synchronized void registraPrezzi(String nomeFile, Map<String, PrezzoIngrediente> prezzi,
+                                             ImprontaFile impronta) {
+        prezziCaricati = prezzi;
+        improntaPrezzi = impronta;
+        filePrezzi = nomeFile;
+        segnalaConfezioniIncompatibili();
+    }
+    
+    /**
+     * Segnala, una sola volta per coppia, gli ingredienti delle ricette la cui
+     * confezione nel listino è in un'altra unità base: la loro riga della lista
+     * della spesa viene pagata a quantità, senza arrotondare alle confezioni
+     */
+    private synchronized void segnalaConfezioniIncompatibili() {
+        if (filePrezzi == null) {
+            return;
+        }
+        ListinoPrezzi listino = IngredienteFactory.getListino();
+        RapportoImportazione rapporto = rapportoImportazione;
+        for (int idNome = 0; idNome < Math.min(listino.dimensione(), DizionarioIngredienti.numeroNomi()); idNome++) {
+            String unitaConfezione = listino.getUnitaConfezione(idNome);
+            if (unitaConfezione == null) continue;
+            
+            for (int id : DizionarioIngredienti.getCoppie(idNome)) {
+                String unita = DizionarioIngredienti.getUnita(id);
+                if (unita.equals(unitaConfezione)
+                        || !confezioniSegnalate.add(DizionarioIngredienti.getChiave(id) + "/" + unitaConfezione)) {
+                    continue;
+                }
+                String nome = DizionarioIngredienti.getNome(idNome);
+                if (rapporto != null) {
+                    rapporto.aggiungi(new Diagnostica(filePrezzi, 0, 0, MotivoScarto.CONFEZIONE_IN_ALTRA_UNITA,
+                        nome + ": confezione in " + unitaConfezione + ", ricette in " + unita));
+                } else {
+                    System.err.println("Confezione di " + nome + " in " + unitaConfezione
+                        + " non applicabile alle quantità in " + unita + ": costo senza arrotondamento");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Salva uno snapshot binario dei ricettari e dei prezzi caricati, ognuno con
+     * l'impronta del sorgente presa prima di leggerlo, da usare al prossimo avvio
+     * al posto dei file di testo non modificati. Non rianalizza nessun file: i
+     * sorgenti letti dal testo vengono solo scorsi per l'hash, e quelli cambiati
+     * dopo la lettura non vengono salvati. In modalità STREAMING non salva nulla
+     */
+    public synchronized void salvaSnapshot(String fileSnapshot) throws IOException {
+        if (modalitaCaricamento == ModalitaCaricamento.STREAMING) {
+            return;
+        }
+        Map<TipoPasto, List<Ricetta>> ricettari = new EnumMap<>(TipoPasto.class);
+        Map<TipoPasto, ImprontaFile> impronte = new EnumMap<>(TipoPasto.class);
+        for (Map.Entry<TipoPasto, ImprontaFile> impronta : impronteRicettari.entrySet()) {
+            ImprontaFile completa = impronta.getValue().conHash();
+            if (completa != null) {
+                ricettari.put(impronta.getKey(), ricettariPerTipo.get(impronta.getKey()));
+                impronte.put(impronta.getKey(), completa);
+            }
+        }
+        ImprontaFile prezzi = improntaPrezzi != null ? improntaPrezzi.conHash() : null;
+        SnapshotRicettario.salva(Paths.get(fileSnapshot), ricettari, impronte,
+            prezzi != null ? prezziCaricati : null, prezzi);
+    }
+    
+    /**
+     * Rilegge un file di prezzi che sostituisce il listino corrente e pubblica
+     * solo i prezzi cambiati: vengono invalidate solo le ricette coinvolte
+     * @return le variazioni da propagare alle liste della spesa aperte
+     */
+    public VariazionePrezzi ricaricaPrezzi(String nomeFile) throws IOException {
+        EventoCaricamentoPrezzi evento = new EventoCaricamentoPrezzi();
+        evento.begin();
+        long inizio = System.nanoTime();
+        ImprontaFile impronta = improntaSorgente(Paths.get(nomeFile));
+        Map<String, PrezzoIngrediente> prezzi = leggiPrezzi(nomeFile, rapportoImportazione);
+        VariazionePrezzi variazione = IngredienteFactory.sostituisciPrezzi(prezzi);
+        registraPrezzi(nomeFile, prezzi, impronta);
+        fineCaricamentoPrezzi(evento, inizio, nomeFile, prezzi.size(), variazione, true, false);
+        return variazione;
+    }
+    
+    /**
+     * Legge un file di prezzi nel formato "nome, prezzo" per gli ingredienti
+     * sfusi, con il prezzo per unità base, o "nome, prezzo, quantità unità"
+     * per quelli venduti in confezione, con il prezzo della confezione
+     * (ad esempio "farina, 1.20, 1 kg")
+     * @param rapporto dove raccogliere le righe scartate, null per segnalarle su System.err
+     */
+    static Map<String, PrezzoIngrediente> leggiPrezzi(String nomeFile, RapportoImportazione rapporto) throws IOException {
+        Map<String, PrezzoIngrediente> prezzi = new LinkedHashMap<>();
+        long righe = 0;
+        long malformate = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(nomeFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                righe++;
+                String contenuto = line.trim();
+                if (contenuto.isEmpty()) continue;
+                
+                String[] parti = contenuto.split(DELIMITATORE_CSV);
+                if (parti.length < 2) {
+                    malformate++;
+                    if (rapporto != null) {
+                        rapporto.aggiungi(Diagnostica.perPrezzo(nomeFile, (int) righe, line));
+                    }
+                    continue;
+                }
+                try {
+                    String nomeIngrediente = parti[0].trim();
+                    double prezzo = Double.parseDouble(parti[1].trim());
+                    prezzi.put(nomeIngrediente, parti.length >= 3
+                        ? leggiConfezione(prezzo, parti[2].trim())
+                        : PrezzoIngrediente.sfuso(prezzo));
+                } catch (IllegalArgumentException e) {
+                    malformate++;
+                    if (rapporto != null) {
+                        rapporto.aggiungi(Diagnostica.perPrezzo(nomeFile, (int) righe, line));
+                    } else {
+                        System.err.println("Errore di formato nel prezzo: " + String.join(",", parti));
+                    }
+                }
+            }
+        } finally {
+            RIGHE_PREZZI.aggiungi(righe);
+            RIGHE_PREZZI_MALFORMATE.aggiungi(malformate);
+            if (rapporto != null) {
+                rapporto.fileLetto(nomeFile, righe, malformate);
+            }
+        }
+        return prezzi;
+    }
+    
+    /**
+     * Interpreta una confezione come "1 kg" o "500g": quantità seguita
+     * dall'unità, con o senza spazio
+     */
+    private static PrezzoIngrediente leggiConfezione(double prezzo, String confezione) {
+        int fineQuantita = 0;
+        while (fineQuantita < confezione.length()
+                && (Character.isDigit(confezione.charAt(fineQuantita)) || confezione.charAt(fineQuantita) == '.')) {
+            fineQuantita++;
+        }
+        double quantita = Double.parseDouble(confezione.substring(0, fineQuantita));
+        return PrezzoIngrediente.perConfezione(prezzo, quantita, confezione.substring(fineQuantita).trim());
+    }
+
+    /**
+     * Genera una lista della spesa aggregata dalle ricette selezionate in modo più efficiente.
+     * Le quantità vengono sommate in aggregatori a array primitivi; oltre la soglia
+     * le ricette vengono divise tra i thread del ForkJoinPool comune, con un
+     * risultato che non dipende dal numero di thread
+     */
+    public Map<String, Ingrediente> generaListaSpesa(Map<String, Map<TipoPasto, List<Ricetta>>> pianificazione) {
+        EventoListaSpesa evento = new EventoListaSpesa();
+        evento.begin();
+        long inizio = System.nanoTime();
+        List<Ricetta> ricette = new ArrayList<>();
+        for (Map<TipoPasto, List<Ricetta>> pastiGiorno : pianificazione.values()) {
+            for (List<Ricetta> ricettePasto : pastiGiorno.values()) {
+                ricette.addAll(ricettePasto);
+            }
+        }
+        Map<String, Ingrediente> listaSpesa = AggregazioneParallela.aggrega(
+                (posizione, aggregatore) -> aggregatore.aggiungi(ricette.get(posizione)),
+                ricette.size(), SOGLIA_RICETTE_PARALLELE)
+            .getListaSpesa();
+        registraGenerazione(evento, inizio, ricette.size(), listaSpesa);
+        return listaSpesa;
+    }
+    
+    /**
+     * Genera la lista della spesa di un piano su più settimane e più nuclei,
+     * dividendo le giornate tra i thread del ForkJoinPool comune. Gli ingredienti
+     * sono elencati nello stesso ordine dell'aggregazione sequenziale
+     */
+    public Map<String, Ingrediente> generaListaSpesa(PianoPasti piano) {
+        EventoListaSpesa evento = new EventoListaSpesa();
+        evento.begin();
+        long inizio = System.nanoTime();
+        Map<String, Ingrediente> listaSpesa = AggregazioneParallela.aggrega((posizione, aggregatore) -> {
+                PianificazioneGiornaliera giornata = piano.giornataIn(posizione);
+                if (giornata == null) return;
+                for (TipoPasto tipo : TipoPasto.values()) {
+                    for (Ricetta ricetta : giornata.getRicette(tipo)) {
+                        aggregatore.aggiungi(ricetta);
+                    }
+                }
+            }, piano.numeroPosizioni(), SOGLIA_GIORNATE_PARALLELE)
+            .getListaSpesa();
+        registraGenerazione(evento, inizio, piano.numeroRicette(), listaSpesa);
+        return listaSpesa;
+    }
+    
+    private static void registraGenerazione(EventoListaSpesa evento, long inizio, int ricette,
+                                            Map<String, Ingrediente> listaSpesa) {
+        TEMPO_LISTA_SPESA.ferma(inizio);
+        RICETTE_AGGREGATE.aggiungi(ricette);
+        INGREDIENTI_LISTA_SPESA.registra(listaSpesa.size());
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.ricette = ricette;
+            evento.ingredienti = listaSpesa.size();
+            evento.commit();
+        }
+    }
+
+    /**
+     * Compila automaticamente il menu di una settimana rispettando i vincoli,
+     * con i prezzi del listino corrente
+     */
+    public MenuSettimanale ottimizzaMenu(VincoliMenu vincoli) {
+        Map<TipoPasto, List<Ricetta>> ricettari = new EnumMap<>(TipoPasto.class);
+        synchronized (this) {
+            ricettari.putAll(ricettariPerTipo);
+        }
+        return new OttimizzatoreMenu(vincoli).ottimizza(ricettari);
+    }
+
+    /**
+     * Calcola il costo totale della lista della spesa in modo più efficiente
+     */
+    public double calcolaCostoTotale(Map<String, Ingrediente> listaSpesa) {
+        return calcolaCostoTotale(listaSpesa, IngredienteFactory.getListino());
+    }
+    
+    /**
+     * Calcola il costo totale della lista della spesa con un listino specifico,
+     * arrotondando alle confezioni intere gli ingredienti venduti in confezione
+     */
+    public double calcolaCostoTotale(Map<String, Ingrediente> listaSpesa, ListinoPrezzi listino) {
+        return listaSpesa.values().stream()
+               .mapToDouble(ingrediente -> ingrediente.getCostoAcquisto(listino))
+               .sum();
+    }
+    
+    /**
+     * Ottiene una ricetta per nome, senza distinguere maiuscole e minuscole.
+     * Se più ricette hanno lo stesso nome restituisce la prima nell'ordine dei tipi di pasto
+     */
+    public synchronized Optional<Ricetta> getRicettaPerNome(String nome) {
+        for (IndiceNomiRicette indice : indiciPerTipo.values()) {
+            Ricetta ricetta = indice.cerca(nome);
+            if (ricetta != null) {
+                return Optional.of(ricetta);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Ottiene una ricetta di un tipo di pasto per nome, senza distinguere maiuscole e minuscole
+     */
+    public synchronized Optional<Ricetta> getRicettaPerNome(TipoPasto tipo, String nome) {
+        return Optional.ofNullable(indiciPerTipo.get(tipo).cerca(nome));
+    }
+    
+    /**
+     * Cerca fino a limite ricette il cui nome inizia con il prefisso,
+     * in ordine alfabetico all'interno di ogni tipo di pasto
+     */
+    public synchronized List<Ricetta> cercaPerPrefisso(String prefisso, int limite) {
+        List<Ricetta> risultati = new ArrayList<>();
+        for (IndiceNomiRicette indice : indiciPerTipo.values()) {
+            if (risultati.size() >= limite) break;
+            risultati.addAll(indice.cercaPerPrefisso(prefisso, limite - risultati.size()));
+        }
+        return risultati;
+    }
+    
+    /**
+     * Cerca fino a limite ricette il cui nome contiene il testo, nell'ordine dei ricettari
+     */
+    public synchronized List<Ricetta> cercaPerSottostringa(String testo, int limite) {
+        List<Ricetta> risultati = new ArrayList<>();
+        for (IndiceNomiRicette indice : indiciPerTipo.values()) {
+            if (risultati.size() >= limite) break;
+            risultati.addAll(indice.cercaPerSottostringa(testo, limite - risultati.size()));
+        }
+        return risultati;
+    }
+    
+    /**
+     * Cerca fino a limite ricette di un tipo di pasto per il selettore con
+     * completamento: prima quelle il cui nome inizia con il testo, in ordine
+     * alfabetico, poi quelle che lo contengono, nell'ordine del ricettario
+     */
+    public synchronized List<Ricetta> cercaRicette(TipoPasto tipo, String testo, int limite) {
+        IndiceNomiRicette indice = indiciPerTipo.get(tipo);
+        List<Ricetta> risultati = indice.cercaPerPrefisso(testo, limite);
+        if (risultati.size() < limite) {
+            Set<Ricetta> trovate = Collections.newSetFromMap(new IdentityHashMap<>());
+            trovate.addAll(risultati);
+            // Ne servono al più limite in più, perché alcune possono essere già tra quelle trovate
+            for (Ricetta ricetta : indice.cercaPerSottostringa(testo, limite)) {
+                if (risultati.size() >= limite) break;
+                if (trovate.add(ricetta)) {
+                    risultati.add(ricetta);
+                }
+            }
+        }
+        return risultati;
+    }
+    
+    /**
+     * Ricette che usano un ingrediente, nell'ordine dei ricettari
+     */
+    public synchronized List<Ricetta> getRicetteConIngrediente(String ingrediente) {
+        List<Ricetta> risultati = new ArrayList<>();
+        for (IndiceIngredientiRicette indice : indiciIngredientiPerTipo.values()) {
+            risultati.addAll(indice.ricetteCon(ingrediente));
+        }
+        return risultati;
+    }
+    
+    /**
+     * Ricette che soddisfano una ricerca per ingredienti, nell'ordine dei ricettari
+     */
+    public synchronized List<Ricetta> cercaPerIngredienti(RicercaPerIngredienti ricerca) {
+        List<Ricetta> risultati = new ArrayList<>();
+        for (IndiceIngredientiRicette indice : indiciIngredientiPerTipo.values()) {
+            risultati.addAll(indice.cerca(ricerca));
+        }
+        return risultati;
+    }
+    
+    /**
+     * Le ricette più coperte dagli ingredienti della dispensa, tra tutti i tipi di pasto
+     */
+    public synchronized List<CoperturaRicetta> classificaPerDispensa(Collection<String> dispensa, int limite) {
+        List<CoperturaRicetta> classifica = new ArrayList<>();
+        for (IndiceIngredientiRicette indice : indiciIngredientiPerTipo.values()) {
+            classifica.addAll(indice.classificaPerDispensa(dispensa, limite));
+        }
+        classifica.sort(CoperturaRicetta::confronta);
+        return classifica.size() > limite ? new ArrayList<>(classifica.subList(0, limite)) : classifica;
+    }
+}
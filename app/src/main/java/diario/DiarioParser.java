@@ -0,0 +1,716 @@
+package diario;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+/**
+ * Modalità con cui {@link GestoreRicette} legge i file dei ricettari
+ */
+enum ModalitaCaricamento {
+    TESTO,
+    MAPPATO,
+    // Tiene in memoria solo l'elenco delle ricette e le legge dal file mappato quando servono
+    STREAMING;
+    
+    /**
+     * Legge la modalità dalla proprietà di sistema "diario.caricamento",
+     * usando il caricamento testuale se non specificata
+     */
+    public static ModalitaCaricamento daProprietaDiSistema() {
+        return ProprietaDiSistema.leggiEnum("diario.caricamento", ModalitaCaricamento.class, TESTO);
+    }
+}
+
+/**
+ * Lettura delle proprietà di sistema "diario.*" che scelgono una costante di un enum
+ */
+final class ProprietaDiSistema {
+    private ProprietaDiSistema() {
+    }
+    
+    /**
+     * Costante indicata dalla proprietà, senza distinguere maiuscole e minuscole,
+     * o quella predefinita se la proprietà non è specificata
+     * @throws IllegalArgumentException con i valori ammessi se il valore non è riconosciuto
+     */
+    static <E extends Enum<E>> E leggiEnum(String proprieta, Class<E> tipo, E predefinito) {
+        String valore = System.getProperty(proprieta);
+        if (valore == null || valore.isBlank()) {
+            return predefinito;
+        }
+        try {
+            return Enum.valueOf(tipo, valore.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            String ammessi = Arrays.stream(tipo.getEnumConstants())
+                .map(costante -> costante.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", "));
+            throw new IllegalArgumentException(proprieta + "=" + valore.trim() + " (valori ammessi: " + ammessi + ")");
+        }
+    }
+}
+
+/**
+ * Caricatore dei ricettari che mappa il file in memoria e ne analizza direttamente
+ * i byte, senza creare stringhe intermedie per righe, campi e quantità.
+ * Produce le stesse ricette e gli stessi ingredienti del caricamento testuale.
+ * Ogni istanza va usata da un solo thread
+ */
+class CaricatoreRicetteMappato {
+    private static final byte INDICATORE_INGREDIENTE = '-';
+    private static final byte DELIMITATORE_CSV = ',';
+    
+    // Potenze di dieci rappresentabili esattamente come double
+    private static final double[] POTENZE_DIECI = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final InternatoreByte internatore = new InternatoreByte();
+    private final ColonneIngredienti colonne;
+    private final RapportoImportazione rapporto;
+    private FileMappato mappatura;
+    
+    public CaricatoreRicetteMappato() {
+        this(null, null);
+    }
+    
+    /**
+     * Caricatore che aggiunge gli ingredienti delle ricette lette da {@link #carica}
+     * in coda alle colonne, o sullo heap se colonne è null, e raccoglie le righe
+     * scartate nel rapporto, o le segnala su System.err se rapporto è null
+     */
+    public CaricatoreRicetteMappato(ColonneIngredienti colonne, RapportoImportazione rapporto) {
+        this.colonne = colonne;
+        this.rapporto = rapporto;
+    }
+    
+    /**
+     * Carica le ricette del file aggiungendole al ricettario
+     */
+    public void carica(Path file, List<Ricetta> ricettario) throws IOException {
+        mappatura = FileMappato.mappa(file);
+        try {
+            analizza(file.toString(), mappatura.dimensione(), ricettario);
+        } catch (InternalError e) {
+            // Accesso a pagine non più presenti: il file è stato troncato durante la lettura
+            throw new IOException("File modificato durante la lettura: " + file, e);
+        } finally {
+            mappatura = null;
+        }
+    }
+    
+    /**
+     * Mappa il file e ne legge soltanto i nomi delle ricette con le loro posizioni;
+     * gli ingredienti vengono letti dal file mappato quando una ricetta viene richiesta.
+     * Il caricatore resta legato al ricettario restituito e non va più usato
+     * @param capacita numero massimo di ricette materializzate tenute in memoria
+     */
+    public RicettarioMappato mappaRicettario(Path file, int capacita) throws IOException {
+        mappatura = FileMappato.mappa(file);
+        long dimensione = mappatura.dimensione();
+        String[] nomi = new String[64];
+        long[] inizi = new long[64];
+        int numero = 0;
+        
+        long posizione = 0;
+        while (posizione < dimensione) {
+            long fineRiga = fineRiga(posizione, dimensione);
+            long inizioRiga = saltaSpaziIniziali(posizione, fineRiga);
+            long fineContenuto = saltaSpaziFinali(inizioRiga, fineRiga);
+            posizione = inizioRigaSuccessiva(fineRiga, dimensione);
+            
+            if (inizioRiga < fineContenuto && mappatura.get(inizioRiga) != INDICATORE_INGREDIENTE) {
+                if (numero == nomi.length) {
+                    nomi = Arrays.copyOf(nomi, numero * 2);
+                    inizi = Arrays.copyOf(inizi, numero * 2);
+                }
+                nomi[numero] = decodifica(inizioRiga, fineContenuto);
+                // Gli ingredienti iniziano dalla riga successiva al nome
+                inizi[numero] = posizione;
+                numero++;
+            }
+        }
+        return new RicettarioMappato(this, Arrays.copyOf(nomi, numero), Arrays.copyOf(inizi, numero),
+            dimensione, capacita);
+    }
+    
+    /**
+     * Se il file mappato con {@link #mappaRicettario} non è cambiato dalla mappatura
+     */
+    boolean isMappaturaInvariata() {
+        return mappatura.invariato();
+    }
+    
+    Path getFileMappato() {
+        return mappatura.getFile();
+    }
+    
+    /**
+     * Crea una ricetta leggendo le righe di ingredienti comprese tra le due posizioni
+     * di un file mappato con {@link #mappaRicettario}
+     */
+    Ricetta leggiRicetta(String nome, long inizio, long fine) {
+        Ricetta ricetta = new Ricetta(nome);
+        long posizione = inizio;
+        while (posizione < fine) {
+            long fineRiga = fineRiga(posizione, fine);
+            long inizioRiga = saltaSpaziIniziali(posizione, fineRiga);
+            long fineContenuto = saltaSpaziFinali(inizioRiga, fineRiga);
+            posizione = inizioRigaSuccessiva(fineRiga, fine);
+            
+            if (inizioRiga < fineContenuto && mappatura.get(inizioRiga) == INDICATORE_INGREDIENTE) {
+                processaRigaIngrediente(inizioRiga + 1, fineContenuto, ricetta);
+            }
+        }
+        return ricetta;
+    }
+    
+    /**
+     * Identificativi dei nomi degli ingredienti tra le due posizioni, nell'ordine
+     * del file, senza creare la ricetta e senza registrarla per i cambi di prezzo.
+     * Viene letto solo il nome: le righe con tre campi entrano nell'indice anche
+     * se la quantità non è numerica, e non vengono segnalate di nuovo
+     */
+    int[] leggiIdNomi(long inizio, long fine) {
+        int[] idNomi = new int[8];
+        int numero = 0;
+        long posizione = inizio;
+        while (posizione < fine) {
+            long fineRiga = fineRiga(posizione, fine);
+            long inizioRiga = saltaSpaziIniziali(posizione, fineRiga);
+            long fineContenuto = saltaSpaziFinali(inizioRiga, fineRiga);
+            posizione = inizioRigaSuccessiva(fineRiga, fine);
+            
+            if (inizioRiga < fineContenuto && mappatura.get(inizioRiga) == INDICATORE_INGREDIENTE) {
+                long inizioNome = inizioRiga + 1;
+                long primaVirgola = trovaVirgola(inizioNome, fineContenuto);
+                if (!haTreCampi(primaVirgola, fineContenuto)) continue;
+                if (numero == idNomi.length) {
+                    idNomi = Arrays.copyOf(idNomi, numero * 2);
+                }
+                idNomi[numero++] = DizionarioIngredienti.idNome(interna(inizioNome, primaVirgola));
+            }
+        }
+        return Arrays.copyOf(idNomi, numero);
+    }
+    
+    private void analizza(String file, long fine, List<Ricetta> ricettario) {
+        Ricetta ricettaCorrente = null;
+        long posizione = 0;
+        long righe = 0;
+        long malformate = 0;
+        
+        while (posizione < fine) {
+            righe++;
+            long primoByte = posizione;
+            long fineRiga = fineRiga(posizione, fine);
+            long inizioRiga = saltaSpaziIniziali(posizione, fineRiga);
+            long fineContenuto = saltaSpaziFinali(inizioRiga, fineRiga);
+            posizione = inizioRigaSuccessiva(fineRiga, fine);
+            if (inizioRiga == fineContenuto) continue;
+            
+            if (mappatura.get(inizioRiga) != INDICATORE_INGREDIENTE) {
+                // Nuova ricetta
+                ricettaCorrente = new Ricetta(decodifica(inizioRiga, fineContenuto), colonne);
+                ricettario.add(ricettaCorrente);
+            } else if (ricettaCorrente == null) {
+                malformate++;
+                if (rapporto != null) {
+                    String riga = decodifica(primoByte, fineRiga);
+                    rapporto.aggiungi(new Diagnostica(file, (int) righe, riga.indexOf(INDICATORE_INGREDIENTE) + 1,
+                        MotivoScarto.INGREDIENTE_SENZA_RICETTA, ""));
+                }
+            } else if (!processaRigaIngrediente(inizioRiga + 1, fineContenuto, ricettaCorrente)) {
+                // Ingrediente della ricetta corrente non valido: solo qui la riga diventa una stringa
+                malformate++;
+                if (rapporto != null) {
+                    rapporto.aggiungi(Diagnostica.perIngrediente(file, (int) righe, decodifica(primoByte, fineRiga)));
+                }
+            }
+        }
+        GestoreRicette.RIGHE_LETTE.aggiungi(righe);
+        GestoreRicette.RIGHE_MALFORMATE.aggiungi(malformate);
+        if (rapporto != null) {
+            rapporto.fileLetto(file, righe, malformate);
+        }
+    }
+    
+    /**
+     * Fine della riga che inizia nella posizione, accettando \n, \r e \r\n come terminatori
+     */
+    private long fineRiga(long posizione, long fine) {
+        while (posizione < fine && mappatura.get(posizione) != '\n' && mappatura.get(posizione) != '\r') {
+            posizione++;
+        }
+        return posizione;
+    }
+    
+    private long inizioRigaSuccessiva(long fineRiga, long fine) {
+        long posizione = fineRiga + 1;
+        if (fineRiga < fine && mappatura.get(fineRiga) == '\r' && posizione < fine && mappatura.get(posizione) == '\n') {
+            posizione++;
+        }
+        return posizione;
+    }
+    
+    /**
+     * Analizza "nome, quantità, unità" con le stesse regole di String.split:
+     * le righe con meno di tre campi non vuoti vengono ignorate
+     * @return false se la riga è stata scartata
+     */
+    private boolean processaRigaIngrediente(long inizio, long fine, Ricetta ricetta) {
+        Ingrediente ingrediente = leggiIngrediente(inizio, fine);
+        if (ingrediente == null) {
+            return false;
+        }
+        ricetta.aggiungiIngrediente(ingrediente);
+        return true;
+    }
+    
+    /**
+     * Ingrediente di una riga o null se la riga va ignorata
+     */
+    private Ingrediente leggiIngrediente(long inizio, long fine) {
+        long primaVirgola = trovaVirgola(inizio, fine);
+        if (!haTreCampi(primaVirgola, fine)) return null;
+        long secondaVirgola = trovaVirgola(primaVirgola + 1, fine);
+        long terzaVirgola = trovaVirgola(secondaVirgola + 1, fine);
+        
+        double quantita;
+        try {
+            quantita = leggiQuantita(primaVirgola + 1, secondaVirgola);
+        } catch (NumberFormatException e) {
+            if (rapporto == null) {
+                System.err.println("Errore di formato nei dati dell'ingrediente: "
+                    + decodifica(saltaSpaziIniziali(inizio, fine), fine));
+            }
+            return null;
+        }
+        
+        String nomeIngrediente = interna(inizio, primaVirgola);
+        String unita = interna(secondaVirgola + 1, terzaVirgola);
+        
+        // Usa il factory method per creare l'ingrediente
+        return IngredienteFactory.crea(nomeIngrediente, quantita, unita);
+    }
+    
+    /**
+     * Se dopo la prima virgola la riga ha ancora una quantità e un'unità non vuota
+     */
+    private boolean haTreCampi(long primaVirgola, long fine) {
+        if (primaVirgola == fine) return false;
+        long secondaVirgola = trovaVirgola(primaVirgola + 1, fine);
+        return secondaVirgola != fine && contieneCampi(secondaVirgola + 1, fine);
+    }
+    
+    /**
+     * Converte in double un campo numerico senza creare stringhe nel caso comune
+     * (cifre con separatore decimale opzionale); gli altri formati sono delegati
+     * a Double.parseDouble
+     */
+    private double leggiQuantita(long inizio, long fine) {
+        inizio = saltaSpaziIniziali(inizio, fine);
+        fine = saltaSpaziFinali(inizio, fine);
+        
+        long posizione = inizio;
+        boolean negativo = false;
+        if (posizione < fine && (mappatura.get(posizione) == '-' || mappatura.get(posizione) == '+')) {
+            negativo = mappatura.get(posizione) == '-';
+            posizione++;
+        }
+        
+        long mantissa = 0;
+        int cifre = 0;
+        int decimali = 0;
+        boolean separatore = false;
+        for (; posizione < fine; posizione++) {
+            byte b = mappatura.get(posizione);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                cifre++;
+                if (separatore) decimali++;
+            } else if (b == '.' && !separatore) {
+                separatore = true;
+            } else {
+                break;
+            }
+        }
+        
+        // Con mantissa e potenza di dieci esatte una sola divisione è arrotondata
+        // correttamente, come Double.parseDouble
+        if (posizione == fine && cifre > 0 && cifre <= 15 && decimali < POTENZE_DIECI.length) {
+            double valore = mantissa / POTENZE_DIECI[decimali];
+            return negativo ? -valore : valore;
+        }
+        return Double.parseDouble(decodifica(inizio, fine));
+    }
+    
+    private String interna(long inizio, long fine) {
+        inizio = saltaSpaziIniziali(inizio, fine);
+        fine = saltaSpaziFinali(inizio, fine);
+        return internatore.interna(mappatura, inizio, (int) (fine - inizio));
+    }
+    
+    private String decodifica(long inizio, long fine) {
+        byte[] byteRiga = new byte[(int) (fine - inizio)];
+        mappatura.get(inizio, byteRiga);
+        return new String(byteRiga, StandardCharsets.UTF_8);
+    }
+    
+    private long trovaVirgola(long inizio, long fine) {
+        while (inizio < fine && mappatura.get(inizio) != DELIMITATORE_CSV) {
+            inizio++;
+        }
+        return inizio;
+    }
+    
+    /**
+     * Verifica se dopo la posizione c'è almeno un campo che String.split non scarterebbe
+     */
+    private boolean contieneCampi(long inizio, long fine) {
+        for (long i = inizio; i < fine; i++) {
+            if (mappatura.get(i) != DELIMITATORE_CSV) return true;
+        }
+        return false;
+    }
+    
+    private long saltaSpaziIniziali(long inizio, long fine) {
+        while (inizio < fine && (mappatura.get(inizio) & 0xFF) <= ' ') {
+            inizio++;
+        }
+        return inizio;
+    }
+    
+    private long saltaSpaziFinali(long inizio, long fine) {
+        while (fine > inizio && (mappatura.get(fine - 1) & 0xFF) <= ' ') {
+            fine--;
+        }
+        return fine;
+    }
+}
+
+/**
+ * File mappato in memoria in segmenti da 1 GB, indirizzabile con posizioni
+ * long: un singolo MappedByteBuffer non supera i 2 GB. La mappatura resta
+ * valida anche dopo la chiusura del canale
+ */
+final class FileMappato {
+    private static final int BIT_SEGMENTO = 30;
+    
+    private final Path file;
+    private final long modifica; // data di modifica del file al momento della mappatura
+    private final MappedByteBuffer[] segmenti;
+    private final long dimensione;
+    private final int bitSegmento;
+    private final long mascheraSegmento;
+    
+    // Il primo segmento copre per intero i file fino a 1 GB: accesso diretto senza indirezione
+    private final MappedByteBuffer primo;
+    private final long finePrimo;
+    
+    private FileMappato(Path file, long modifica, MappedByteBuffer[] segmenti, long dimensione, int bitSegmento) {
+        this.file = file;
+        this.modifica = modifica;
+        this.segmenti = segmenti;
+        this.dimensione = dimensione;
+        this.bitSegmento = bitSegmento;
+        this.mascheraSegmento = (1L << bitSegmento) - 1;
+        this.primo = segmenti.length > 0 ? segmenti[0] : null;
+        this.finePrimo = segmenti.length > 0 ? segmenti[0].limit() : 0;
+    }
+    
+    /**
+     * Mappa il file in sola lettura. Le modifiche sul posto al file restano
+     * visibili nella mappatura e un troncamento fa fallire gli accessi successivi
+     * con InternalError: chi tiene la mappatura a lungo deve controllare
+     * {@link #invariato()} prima di ogni lettura
+     */
+    static FileMappato mappa(Path file) throws IOException {
+        return mappa(file, BIT_SEGMENTO);
+    }
+    
+    private static FileMappato mappa(Path file, int bitSegmento) throws IOException {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            long modifica = Files.getLastModifiedTime(file).toMillis();
+            long dimensione = canale.size();
+            long lunghezzaSegmento = 1L << bitSegmento;
+            MappedByteBuffer[] segmenti = new MappedByteBuffer[(int) ((dimensione + lunghezzaSegmento - 1) >>> bitSegmento)];
+            for (int i = 0; i < segmenti.length; i++) {
+                long inizio = (long) i << bitSegmento;
+                segmenti[i] = canale.map(FileChannel.MapMode.READ_ONLY, inizio,
+                    Math.min(lunghezzaSegmento, dimensione - inizio));
+            }
+            return new FileMappato(file, modifica, segmenti, dimensione, bitSegmento);
+        }
+    }
+    
+    /**
+     * Se il file ha ancora la dimensione e la data di modifica che aveva alla mappatura
+     */
+    boolean invariato() {
+        try {
+            return Files.size(file) == dimensione && Files.getLastModifiedTime(file).toMillis() == modifica;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    Path getFile() {
+        return file;
+    }
+    
+    long dimensione() {
+        return dimensione;
+    }
+    
+    byte get(long posizione) {
+        if (posizione < finePrimo) {
+            return primo.get((int) posizione);
+        }
+        return segmenti[(int) (posizione >>> bitSegmento)].get((int) (posizione & mascheraSegmento));
+    }
+    
+    /**
+     * Copia i byte a partire dalla posizione, anche a cavallo tra due segmenti
+     */
+    void get(long posizione, byte[] destinazione) {
+        int copiati = 0;
+        while (copiati < destinazione.length) {
+            long corrente = posizione + copiati;
+            MappedByteBuffer segmento = segmenti[(int) (corrente >>> bitSegmento)];
+            int inizio = (int) (corrente & mascheraSegmento);
+            int lunghezza = Math.min(destinazione.length - copiati, segmento.limit() - inizio);
+            segmento.get(inizio, destinazione, copiati, lunghezza);
+            copiati += lunghezza;
+        }
+    }
+}
+
+/**
+ * Ricettario letto in streaming da un file mappato in memoria: restano residenti
+ * solo i nomi delle ricette e la posizione dei loro ingredienti nel file. Una
+ * ricetta viene letta dal file al primo accesso e tenuta in una cache LRU di
+ * capacità limitata; quelle espulse vengono tolte dall'indice inverso dei prezzi
+ * e, se richieste di nuovo, lette dal file come nuove istanze.
+ * Prima di ogni lettura dal file vengono controllate dimensione e data di
+ * modifica: un file cambiato dopo la mappatura non viene più letto, con una
+ * UncheckedIOException, finché SorveglianteFile non ricarica il ricettario
+ * con una nuova mappatura. Le posizioni sono long, così il file può
+ * superare i 2 GB
+ */
+class RicettarioMappato extends AbstractList<Ricetta> implements RandomAccess {
+    static final int CAPACITA_PREDEFINITA = 10_000;
+    private static final RapportoCache CACHE_RICETTE = Metriche.cache("cache.ricetteMappate");
+    
+    private final CaricatoreRicetteMappato caricatore;
+    private final String[] nomi;
+    private final long[] inizi;
+    private final long fineFile;
+    private final int capacita;
+    
+    // Ricette materializzate per id, dalla meno usata di recente
+    private final LinkedHashMap<Integer, Ricetta> materializzate;
+    
+    RicettarioMappato(CaricatoreRicetteMappato caricatore, String[] nomi, long[] inizi, long fineFile, int capacita) {
+        if (capacita <= 0) {
+            throw new IllegalArgumentException("La capacità della cache deve essere positiva: " + capacita);
+        }
+        this.caricatore = caricatore;
+        this.nomi = nomi;
+        this.inizi = inizi;
+        this.fineFile = fineFile;
+        this.capacita = capacita;
+        this.materializzate = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Ricetta> piuVecchia) {
+                if (size() <= RicettarioMappato.this.capacita) {
+                    return false;
+                }
+                IngredienteFactory.dismettiRicette(List.of(piuVecchia.getValue()));
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Legge la capacità della cache dalla proprietà di sistema "diario.cacheRicette"
+     */
+    static int capacitaDaProprietaDiSistema() {
+        return Integer.getInteger("diario.cacheRicette", CAPACITA_PREDEFINITA);
+    }
+    
+    @Override
+    public synchronized Ricetta get(int id) {
+        Ricetta ricetta = materializzate.get(id);
+        if (ricetta == null) {
+            CACHE_RICETTE.mancato();
+            verificaFile();
+            try {
+                ricetta = caricatore.leggiRicetta(getNome(id), inizi[id], fine(id));
+            } catch (InternalError e) {
+                throw fileModificato(e);
+            }
+            materializzate.put(id, ricetta);
+        } else {
+            CACHE_RICETTE.successo();
+        }
+        return ricetta;
+    }
+    
+    @Override
+    public int size() {
+        return nomi.length;
+    }
+    
+    /**
+     * Nome di una ricetta senza materializzarla
+     */
+    public String getNome(int id) {
+        return nomi[id];
+    }
+    
+    /**
+     * Identificativi dei nomi degli ingredienti di una ricetta, letti dalla
+     * ricetta materializzata se presente e altrimenti dal file senza metterla in cache
+     */
+    public synchronized int[] getIdNomiIngredienti(int id) {
+        Ricetta ricetta = materializzate.get(id);
+        if (ricetta == null) {
+            verificaFile();
+            try {
+                return caricatore.leggiIdNomi(inizi[id], fine(id));
+            } catch (InternalError e) {
+                // Pagine non più presenti: il file è stato troncato dopo il controllo
+                throw fileModificato(e);
+            }
+        }
+        int[] idNomi = new int[ricetta.getNumeroIngredienti()];
+        for (int i = 0; i < idNomi.length; i++) {
+            idNomi[i] = ricetta.getIdNomeIngrediente(i);
+        }
+        return idNomi;
+    }
+    
+    /**
+     * Numero di ricette attualmente materializzate
+     */
+    public synchronized int numeroMaterializzate() {
+        return materializzate.size();
+    }
+    
+    /**
+     * Svuota la cache togliendo le ricette materializzate dall'indice inverso dei prezzi;
+     * da chiamare quando il ricettario viene sostituito
+     */
+    public synchronized void dismetti() {
+        IngredienteFactory.dismettiRicette(materializzate.values());
+        materializzate.clear();
+    }
+    
+    private long fine(int id) {
+        return id + 1 < inizi.length ? inizi[id + 1] : fineFile;
+    }
+    
+    /**
+     * Le posizioni delle ricette valgono solo per il file com'era alla mappatura
+     */
+    private void verificaFile() {
+        if (!caricatore.isMappaturaInvariata()) {
+            throw fileModificato(null);
+        }
+    }
+    
+    private UncheckedIOException fileModificato(Throwable causa) {
+        return new UncheckedIOException(new IOException("Ricettario modificato dopo la mappatura, in attesa di "
+            + "essere ricaricato: " + caricatore.getFileMappato(), causa));
+    }
+}
+
+/**
+ * Tabella di internamento che restituisce la stessa istanza di String per
+ * sequenze di byte UTF-8 uguali, decodificando ogni sequenza una sola volta
+ */
+class InternatoreByte {
+    private byte[][] chiavi = new byte[256][];
+    private String[] valori = new String[256];
+    private int[] hash = new int[256];
+    private int dimensione = 0;
+    
+    public String interna(FileMappato mappatura, long inizio, int lunghezza) {
+        int h = calcolaHash(mappatura, inizio, lunghezza);
+        int maschera = chiavi.length - 1;
+        int indice = h & maschera;
+        
+        while (chiavi[indice] != null) {
+            if (hash[indice] == h && uguali(chiavi[indice], mappatura, inizio, lunghezza)) {
+                return valori[indice];
+            }
+            indice = (indice + 1) & maschera;
+        }
+        
+        byte[] chiave = new byte[lunghezza];
+        mappatura.get(inizio, chiave);
+        String valore = new String(chiave, StandardCharsets.UTF_8);
+        chiavi[indice] = chiave;
+        valori[indice] = valore;
+        hash[indice] = h;
+        
+        if (++dimensione * 2 > chiavi.length) {
+            ingrandisci();
+        }
+        return valore;
+    }
+    
+    private void ingrandisci() {
+        byte[][] vecchieChiavi = chiavi;
+        String[] vecchiValori = valori;
+        int[] vecchiHash = hash;
+        
+        chiavi = new byte[vecchieChiavi.length * 2][];
+        valori = new String[chiavi.length];
+        hash = new int[chiavi.length];
+        int maschera = chiavi.length - 1;
+        
+        for (int i = 0; i < vecchieChiavi.length; i++) {
+            if (vecchieChiavi[i] == null) continue;
+            int indice = vecchiHash[i] & maschera;
+            while (chiavi[indice] != null) {
+                indice = (indice + 1) & maschera;
+            }
+            chiavi[indice] = vecchieChiavi[i];
+            valori[indice] = vecchiValori[i];
+            hash[indice] = vecchiHash[i];
+        }
+    }
+    
+    private static int calcolaHash(FileMappato mappatura, long inizio, int lunghezza) {
+        // FNV-1a con rimescolamento finale per distribuire i bit bassi
+        int h = 0x811C9DC5;
+        for (int i = 0; i < lunghezza; i++) {
+            h = (h ^ mappatura.get(inizio + i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+    
+    private static boolean uguali(byte[] chiave, FileMappato mappatura, long inizio, int lunghezza) {
+        if (chiave.length != lunghezza) return false;
+        for (int i = 0; i < lunghezza; i++) {
+            if (chiave[i] != mappatura.get(inizio + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+package diario;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Piano dei pasti di più nuclei familiari su più settimane, indipendente
+ * dall'interfaccia grafica. Ogni giornata di ogni nucleo occupa una posizione
+ * di un array denso, calcolata dalla distanza in giorni dalla data di inizio;
+ * le giornate vengono create solo quando ricevono la prima ricetta
+ */
+class PianoPasti {
+    private final LocalDate inizio;
+    private final int numeroGiorni;
+    private final List<String> nuclei;
+
+    // Giornate per nucleo e giorno, in posizione nucleo * numeroGiorni + giorno; null se vuote
+    private final PianificazioneGiornaliera[] giornate;
+
+    public PianoPasti(LocalDate inizio, int settimane, List<String> nuclei) {
+        if (settimane <= 0 || nuclei.isEmpty()) {
+            throw new IllegalArgumentException("Il piano deve avere almeno una settimana e un nucleo");
+        }
+        this.inizio = inizio;
+        this.numeroGiorni = settimane * 7;
+        this.nuclei = List.copyOf(nuclei);
+        this.giornate = new PianificazioneGiornaliera[this.nuclei.size() * numeroGiorni];
+    }
+
+    /**
+     * Piano di un solo nucleo per la settimana che contiene la data indicata, da lunedì a domenica
+     */
+    static PianoPasti settimanale(LocalDate data, String nucleo) {
+        return new PianoPasti(data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)), 1, List.of(nucleo));
+    }
+
+    public LocalDate getInizio() {
+        return inizio;
+    }
+
+    /**
+     * Ultimo giorno compreso nel piano
+     */
+    public LocalDate getFine() {
+        return inizio.plusDays(numeroGiorni - 1);
+    }
+
+    public int getNumeroGiorni() {
+        return numeroGiorni;
+    }
+
+    public int getNumeroNuclei() {
+        return nuclei.size();
+    }
+
+    public List<String> getNuclei() {
+        return Collections.unmodifiableList(nuclei);
+    }
+
+    /**
+     * Indice del nucleo con il nome indicato o -1 se non fa parte del piano
+     */
+    public int indiceNucleo(String nucleo) {
+        return nuclei.indexOf(nucleo);
+    }
+
+    /**
+     * Indice del giorno nel piano a partire da 0
+     */
+    public int indiceGiorno(LocalDate data) {
+        long giorno = ChronoUnit.DAYS.between(inizio, data);
+        if (giorno < 0 || giorno >= numeroGiorni) {
+            throw new IllegalArgumentException("La data " + data + " è fuori dal piano " + inizio + " - " + getFine());
+        }
+        return (int) giorno;
+    }
+
+    /**
+     * Ottiene la giornata di un nucleo, creandola se ancora vuota
+     */
+    public PianificazioneGiornaliera getGiornata(int nucleo, int giorno) {
+        int posizione = posizione(nucleo, giorno);
+        if (giornate[posizione] == null) {
+            giornate[posizione] = new PianificazioneGiornaliera();
+        }
+        return giornate[posizione];
+    }
+
+    public PianificazioneGiornaliera getGiornata(int nucleo, LocalDate data) {
+        return getGiornata(nucleo, indiceGiorno(data));
+    }
+
+    /**
+     * Aggiunge una ricetta a un pasto se non si è raggiunto il limite
+     * @return true se la ricetta è stata aggiunta, false altrimenti
+     */
+    public boolean aggiungiRicetta(int nucleo, LocalDate data, TipoPasto tipo, Ricetta ricetta) {
+        return getGiornata(nucleo, data).aggiungiRicetta(tipo, ricetta);
+    }
+
+    public boolean rimuoviRicetta(int nucleo, LocalDate data, TipoPasto tipo, Ricetta ricetta) {
+        PianificazioneGiornaliera giornata = giornate[posizione(nucleo, indiceGiorno(data))];
+        return giornata != null && giornata.rimuoviRicetta(tipo, ricetta);
+    }
+
+    /**
+     * Numero di posizioni (nucleo, giorno) del piano
+     */
+    int numeroPosizioni() {
+        return giornate.length;
+    }
+
+    /**
+     * Giornata in una posizione densa o null se vuota; non crea giornate
+     */
+    PianificazioneGiornaliera giornataIn(int posizione) {
+        return giornate[posizione];
+    }
+
+    /**
+     * Copia del piano con liste di ricette indipendenti, da passare a un altro thread
+     */
+    public PianoPasti copia() {
+        PianoPasti copia = new PianoPasti(inizio, numeroGiorni / 7, nuclei);
+        for (int i = 0; i < giornate.length; i++) {
+            if (giornate[i] != null) {
+                copia.giornate[i] = giornate[i].copia();
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Numero totale di ricette pianificate
+     */
+    public int numeroRicette() {
+        int totale = 0;
+        for (PianificazioneGiornaliera giornata : giornate) {
+            if (giornata != null) {
+                for (TipoPasto tipo : TipoPasto.values()) {
+                    totale += giornata.getRicette(tipo).size();
+                }
+            }
+        }
+        return totale;
+    }
+
+    private int posizione(int nucleo, int giorno) {
+        if (nucleo < 0 || nucleo >= nuclei.size() || giorno < 0 || giorno >= numeroGiorni) {
+            throw new IndexOutOfBoundsException("Nucleo " + nucleo + ", giorno " + giorno);
+        }
+        return nucleo * numeroGiorni + giorno;
+    }
+
+    @Override
+    public String toString() {
+        return inizio + " - " + getFine() + ", " + nuclei.size() + " nuclei, " + numeroRicette() + " ricette";
+    }
+}
@@ -0,0 +1,442 @@
+package diario;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot binario dei ricettari e del listino, usato per evitare di rianalizzare
+ * i file di testo a ogni avvio.
+ * Il file contiene una tabella delle stringhe internate e una sezione per ogni
+ * file sorgente, con l'impronta del sorgente presa prima di analizzarlo: una
+ * sezione viene usata solo se il suo sorgente non è cambiato
+ */
+class SnapshotRicettario {
+    private static final int MAGIC = 0x44494152; // "DIAR"
+    private static final int VERSIONE_FORMATO = 3;
+    private static final int SEZIONE_PREZZI = -1;
+    
+    private final MappedByteBuffer buffer;
+    private final String[] stringhe;
+    private final Map<Integer, Sezione> sezioni = new HashMap<>();
+    
+    private SnapshotRicettario(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        
+        ByteBuffer lettore = buffer.duplicate();
+        if (lettore.getInt() != MAGIC || lettore.getInt() != VERSIONE_FORMATO) {
+            throw new IllegalArgumentException("Formato dello snapshot non riconosciuto");
+        }
+        
+        stringhe = new String[lunghezzaValida(lettore, lettore.getInt(), Integer.BYTES)];
+        for (int i = 0; i < stringhe.length; i++) {
+            byte[] byteStringa = new byte[lunghezzaValida(lettore, lettore.getInt(), 1)];
+            lettore.get(byteStringa);
+            stringhe[i] = new String(byteStringa, StandardCharsets.UTF_8);
+        }
+        
+        int numeroSezioni = lettore.getInt();
+        for (int i = 0; i < numeroSezioni; i++) {
+            int tipo = lettore.getInt();
+            ImprontaFile impronta = new ImprontaFile(lettore.getLong(), lettore.getLong(), lettore.getLong());
+            Sezione sezione = new Sezione(tipo, impronta, lettore.getInt(), lettore.position());
+            lettore.position(sezione.inizio + sezione.lunghezza);
+            sezioni.put(sezione.tipo, sezione);
+        }
+    }
+    
+    /**
+     * Controlla un numero di elementi letto dallo snapshot prima di allocarli,
+     * perché un valore corrotto non esaurisca la memoria
+     * @param byteMinimi byte occupati almeno da ogni elemento
+     */
+    private static int lunghezzaValida(ByteBuffer lettore, int numero, int byteMinimi) {
+        if (numero < 0 || numero > lettore.remaining() / byteMinimi) {
+            throw new IllegalArgumentException("Snapshot corrotto: lunghezza non valida " + numero);
+        }
+        return numero;
+    }
+    
+    /**
+     * Mappa in memoria uno snapshot esistente
+     * @return lo snapshot, o null se il file non esiste o non è leggibile
+     */
+    public static SnapshotRicettario apri(Path file) {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SnapshotRicettario(canale.map(FileChannel.MapMode.READ_ONLY, 0, canale.size()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot " + file + " ignorato: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Aggiunge al ricettario le ricette salvate per il tipo di pasto, se il
+     * file sorgente non è cambiato dal salvataggio
+     * @return true se le ricette sono state lette dallo snapshot
+     */
+    public boolean caricaRicette(TipoPasto tipo, Path sorgente, List<Ricetta> ricettario) throws IOException {
+        return caricaRicette(tipo, sorgente, ricettario, null);
+    }
+    
+    /**
+     * Come {@link #caricaRicette(TipoPasto, Path, List)}, aggiungendo gli ingredienti
+     * in coda alle colonne fuori heap se non sono null. La sezione viene prima
+     * decodificata per intero: se è corrotta non lascia nulla nel ricettario né
+     * nelle colonne, e le ricette vanno lette dal file di testo
+     */
+    public boolean caricaRicette(TipoPasto tipo, Path sorgente, List<Ricetta> ricettario,
+                                 ColonneIngredienti colonne) throws IOException {
+        Sezione sezione = sezioni.get(tipo.ordinal());
+        if (sezione == null || !sezione.impronta.corrisponde(sorgente)) {
+            return false;
+        }
+        
+        // Indici nella tabella delle stringhe: nome di ogni ricetta, e nome e unità di ogni riga
+        int[] nomiRicette;
+        int[] fineRicette; // posizione dopo l'ultima riga di ogni ricetta
+        int[] nomiIngredienti = new int[64];
+        int[] unitaIngredienti = new int[64];
+        double[] quantita = new double[64];
+        int righe = 0;
+        try {
+            ByteBuffer lettore = sezione.lettore(buffer);
+            // Ogni ricetta occupa almeno il nome e il numero di ingredienti
+            int numeroRicette = lunghezzaValida(lettore, lettore.getInt(), 2 * Integer.BYTES);
+            nomiRicette = new int[numeroRicette];
+            fineRicette = new int[numeroRicette];
+            for (int i = 0; i < numeroRicette; i++) {
+                nomiRicette[i] = indiceStringa(lettore.getInt());
+                int numeroIngredienti = lunghezzaValida(lettore, lettore.getInt(), 2 * Integer.BYTES + Double.BYTES);
+                if (righe + numeroIngredienti > quantita.length) {
+                    int capacita = Math.max(quantita.length * 2, righe + numeroIngredienti);
+                    nomiIngredienti = Arrays.copyOf(nomiIngredienti, capacita);
+                    unitaIngredienti = Arrays.copyOf(unitaIngredienti, capacita);
+                    quantita = Arrays.copyOf(quantita, capacita);
+                }
+                for (int j = 0; j < numeroIngredienti; j++) {
+                    nomiIngredienti[righe] = indiceStringa(lettore.getInt());
+                    unitaIngredienti[righe] = indiceStringa(lettore.getInt());
+                    quantita[righe] = lettore.getDouble();
+                    righe++;
+                }
+                fineRicette[i] = righe;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Sezione " + tipo.getNome() + " dello snapshot ignorata: " + e);
+            return false;
+        }
+        
+        int riga = 0;
+        for (int i = 0; i < nomiRicette.length; i++) {
+            Ricetta ricetta = new Ricetta(stringhe[nomiRicette[i]], colonne);
+            for (; riga < fineRicette[i]; riga++) {
+                ricetta.aggiungiIngrediente(IngredienteFactory.crea(stringhe[nomiIngredienti[riga]], quantita[riga],
+                    stringhe[unitaIngredienti[riga]]));
+            }
+            ricettario.add(ricetta);
+        }
+        return true;
+    }
+    
+    /**
+     * Controlla un indice letto dallo snapshot prima di usarlo nella tabella delle stringhe
+     */
+    private int indiceStringa(int indice) {
+        if (indice < 0 || indice >= stringhe.length) {
+            throw new IllegalArgumentException("indice di stringa non valido: " + indice);
+        }
+        return indice;
+    }
+    
+    /**
+     * Legge i prezzi salvati, se il file sorgente non è cambiato dal salvataggio
+     * @return i prezzi, o null se la sezione non è valida
+     */
+    public Map<String, PrezzoIngrediente> leggiPrezzi(Path sorgente) throws IOException {
+        Sezione sezione = sezioni.get(SEZIONE_PREZZI);
+        if (sezione == null || !sezione.impronta.corrisponde(sorgente)) {
+            return null;
+        }
+        
+        try {
+            ByteBuffer lettore = sezione.lettore(buffer);
+            int numeroPrezzi = lunghezzaValida(lettore, lettore.getInt(), 2 * Integer.BYTES + 2 * Double.BYTES);
+            Map<String, PrezzoIngrediente> prezzi = new LinkedHashMap<>(numeroPrezzi * 2);
+            for (int i = 0; i < numeroPrezzi; i++) {
+                String nome = stringhe[indiceStringa(lettore.getInt())];
+                double prezzo = lettore.getDouble();
+                double confezione = lettore.getDouble();
+                int unitaConfezione = lettore.getInt();
+                prezzi.put(nome, PrezzoIngrediente.inUnitaBase(prezzo, confezione,
+                    unitaConfezione >= 0 ? stringhe[indiceStringa(unitaConfezione)] : null));
+            }
+            return prezzi;
+        } catch (RuntimeException e) {
+            // I prezzi vengono pubblicati solo dopo la lettura: basta rileggere il volantino
+            System.err.println("Sezione dei prezzi dello snapshot ignorata: " + e);
+            return null;
+        }
+    }
+    
+    /**
+     * Impronta del sorgente da cui sono state salvate le ricette del tipo di
+     * pasto, o null se lo snapshot non le contiene
+     */
+    public ImprontaFile getImprontaRicette(TipoPasto tipo) {
+        Sezione sezione = sezioni.get(tipo.ordinal());
+        return sezione != null ? sezione.impronta : null;
+    }
+    
+    /**
+     * Impronta del sorgente da cui sono stati salvati i prezzi, o null se lo
+     * snapshot non li contiene
+     */
+    public ImprontaFile getImprontaPrezzi() {
+        Sezione sezione = sezioni.get(SEZIONE_PREZZI);
+        return sezione != null ? sezione.impronta : null;
+    }
+    
+    /**
+     * Scrive uno snapshot completo. Ogni ricettario e i prezzi vengono salvati con
+     * l'impronta presa prima di leggerli, così che un sorgente modificato nel
+     * frattempo non risulti mai invariato. Il file viene prima scritto a fianco e
+     * poi sostituito, così che un avvio concorrente non legga mai uno snapshot parziale
+     * @param prezzi i prezzi pubblicati, o null per non salvarli
+     */
+    public static void salva(Path file, Map<TipoPasto, List<Ricetta>> ricettari,
+                             Map<TipoPasto, ImprontaFile> impronteRicettari,
+                             Map<String, PrezzoIngrediente> prezzi, ImprontaFile improntaPrezzi) throws IOException {
+        TabellaStringhe tabella = new TabellaStringhe();
+        List<byte[]> contenuti = new ArrayList<>();
+        List<Integer> tipi = new ArrayList<>();
+        List<ImprontaFile> impronte = new ArrayList<>();
+        
+        for (Map.Entry<TipoPasto, List<Ricetta>> ricettario : ricettari.entrySet()) {
+            ScrittoreSezione scrittore = new ScrittoreSezione();
+            scrittore.dati.writeInt(ricettario.getValue().size());
+            for (Ricetta ricetta : ricettario.getValue()) {
+                scrittore.dati.writeInt(tabella.indice(ricetta.getNome()));
+                // Le righe si leggono per posizione, senza creare gli ingredienti delle ricette fuori heap
+                scrittore.dati.writeInt(ricetta.getNumeroIngredienti());
+                for (int i = 0; i < ricetta.getNumeroIngredienti(); i++) {
+                    int id = ricetta.getIdIngrediente(i);
+                    scrittore.dati.writeInt(tabella.indice(DizionarioIngredienti.getNome(DizionarioIngredienti.getIdNome(id))));
+                    scrittore.dati.writeInt(tabella.indice(DizionarioIngredienti.getUnita(id)));
+                    scrittore.dati.writeDouble(ricetta.getQuantitaIngrediente(i));
+                }
+            }
+            contenuti.add(scrittore.toByteArray());
+            tipi.add(ricettario.getKey().ordinal());
+            impronte.add(impronteRicettari.get(ricettario.getKey()));
+        }
+        
+        if (prezzi != null) {
+            ScrittoreSezione scrittorePrezzi = new ScrittoreSezione();
+            scrittorePrezzi.dati.writeInt(prezzi.size());
+            for (Map.Entry<String, PrezzoIngrediente> prezzo : prezzi.entrySet()) {
+                scrittorePrezzi.dati.writeInt(tabella.indice(prezzo.getKey()));
+                scrittorePrezzi.dati.writeDouble(prezzo.getValue().getPrezzo());
+                scrittorePrezzi.dati.writeDouble(prezzo.getValue().getConfezione());
+                String unitaConfezione = prezzo.getValue().getUnitaConfezione();
+                scrittorePrezzi.dati.writeInt(unitaConfezione != null ? tabella.indice(unitaConfezione) : -1);
+            }
+            contenuti.add(scrittorePrezzi.toByteArray());
+            tipi.add(SEZIONE_PREZZI);
+            impronte.add(improntaPrezzi);
+        }
+        
+        Path temporaneo = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaneo)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSIONE_FORMATO);
+            
+            out.writeInt(tabella.stringhe.size());
+            for (String stringa : tabella.stringhe) {
+                byte[] byteStringa = stringa.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(byteStringa.length);
+                out.write(byteStringa);
+            }
+            
+            out.writeInt(contenuti.size());
+            for (int i = 0; i < contenuti.size(); i++) {
+                ImprontaFile impronta = impronte.get(i);
+                out.writeInt(tipi.get(i));
+                out.writeLong(impronta.getDimensione());
+                out.writeLong(impronta.getModifica());
+                out.writeLong(impronta.getHash());
+                out.writeInt(contenuti.get(i).length);
+                out.write(contenuti.get(i));
+            }
+        }
+        Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * CRC32C del contenuto di un file, letto tramite mappatura in memoria
+     */
+    static long hash(Path file) throws IOException {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            CRC32C crc = new CRC32C();
+            long dimensione = canale.size();
+            for (long posizione = 0; posizione < dimensione; posizione += Integer.MAX_VALUE) {
+                long lunghezza = Math.min(Integer.MAX_VALUE, dimensione - posizione);
+                crc.update(canale.map(FileChannel.MapMode.READ_ONLY, posizione, lunghezza));
+            }
+            return crc.getValue();
+        }
+    }
+    
+    /**
+     * Sezione dello snapshot relativa a un file sorgente
+     */
+    private static final class Sezione {
+        final int tipo;
+        final ImprontaFile impronta;
+        final int lunghezza;
+        final int inizio;
+        
+        Sezione(int tipo, ImprontaFile impronta, int lunghezza, int inizio) {
+            this.tipo = tipo;
+            this.impronta = impronta;
+            this.lunghezza = lunghezza;
+            this.inizio = inizio;
+        }
+        
+        /**
+         * Lettore indipendente sulla sezione, utilizzabile da un solo thread
+         */
+        ByteBuffer lettore(MappedByteBuffer buffer) throws IOException {
+            try {
+                return buffer.duplicate().position(inizio).limit(inizio + lunghezza);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                throw new IOException("Snapshot troncato", e);
+            }
+        }
+    }
+    
+    /**
+     * Tabella delle stringhe internate: ogni stringa viene scritta una sola volta
+     */
+    private static final class TabellaStringhe {
+        final List<String> stringhe = new ArrayList<>();
+        final Map<String, Integer> indici = new HashMap<>();
+        
+        int indice(String stringa) {
+            return indici.computeIfAbsent(stringa, s -> {
+                stringhe.add(s);
+                return stringhe.size() - 1;
+            });
+        }
+    }
+    
+    /**
+     * Buffer in memoria per il contenuto di una sezione
+     */
+    private static final class ScrittoreSezione {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream dati = new DataOutputStream(bytes);
+        
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
+
+/**
+ * Dimensione, data di modifica e hash di un file sorgente in un certo istante.
+ * Va presa prima di leggere il file: se il file cambia durante la lettura,
+ * l'impronta descrive ancora la versione precedente e non quella nuova
+ */
+final class ImprontaFile {
+    // I CRC32C sono sempre non negativi
+    private static final long HASH_DA_CALCOLARE = -1;
+    
+    private final long dimensione;
+    private final long modifica;
+    private final long hash;
+    private final Path file; // sorgente di cui calcolare l'hash, null se già calcolato
+    
+    ImprontaFile(long dimensione, long modifica, long hash) {
+        this(dimensione, modifica, hash, null);
+    }
+    
+    private ImprontaFile(long dimensione, long modifica, long hash, Path file) {
+        this.dimensione = dimensione;
+        this.modifica = modifica;
+        this.hash = hash;
+        this.file = file;
+    }
+    
+    /**
+     * Dimensione e data di modifica del file, da prendere prima di leggerlo;
+     * l'hash viene calcolato solo quando l'impronta viene salvata
+     */
+    static ImprontaFile di(Path file) throws IOException {
+        long dimensione = Files.size(file);
+        long modifica = Files.getLastModifiedTime(file).toMillis();
+        return new ImprontaFile(dimensione, modifica, HASH_DA_CALCOLARE, file);
+    }
+    
+    /**
+     * Impronta completa di hash, da salvare. L'hash viene calcolato ora, solo se
+     * dimensione e data di modifica non sono cambiate dalla lettura
+     * @return l'impronta completa, o null se il file è cambiato dopo la lettura
+     */
+    ImprontaFile conHash() throws IOException {
+        if (hash != HASH_DA_CALCOLARE) {
+            return this;
+        }
+        if (!Files.exists(file) || Files.size(file) != dimensione
+                || Files.getLastModifiedTime(file).toMillis() != modifica) {
+            return null;
+        }
+        return new ImprontaFile(dimensione, modifica, SnapshotRicettario.hash(file));
+    }
+    
+    /**
+     * Il file è invariato se ha stessa dimensione e data di modifica;
+     * se cambia solo la data, per esempio dopo una copia, decide l'hash
+     */
+    boolean corrisponde(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) != dimensione) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(file).toMillis() == modifica) {
+            return true;
+        }
+        return SnapshotRicettario.hash(file) == hash;
+    }
+    
+    long getDimensione() {
+        return dimensione;
+    }
+    
+    long getModifica() {
+        return modifica;
+    }
+    
+    long getHash() {
+        return hash;
+    }
+}
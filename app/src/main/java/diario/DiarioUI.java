@@ -0,0 +1,1502 @@
+package diario;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.border.Border;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Classe utility con metodi e costanti per l'interfaccia grafica
+ */
+class UIUtils {
+    // Colori applicazione
+    public static final Color BACKGROUND_COLOR = new Color(250, 250, 252);
+    public static final Color BORDER_COLOR = new Color(0, 0, 0, 30);
+    public static final Color HIGHLIGHT_COLOR = new Color(50, 120, 200);
+    
+    // Colori bottoni
+    public static final Color BUTTON_BG = new Color(250, 250, 255);
+    public static final Color BUTTON_BG_HOVER = new Color(230, 240, 255);
+    public static final Color BUTTON_BORDER = new Color(180, 190, 210);
+    public static final Color BUTTON_BORDER_HOVER = new Color(120, 150, 200);
+    
+    // Template per la lista della spesa
+    public static final String LISTA_SPESA_HEADER = """
+         LISTA DELLA SPESA SETTIMANALE
+        ---------------------------------------------------------
+        
+        
+        """;
+    
+    public static final String LISTA_SPESA_FOOTER = """
+        
+        ------------------------------------------------------------
+         COSTO TOTALE: € %.2f""";
+    
+    private UIUtils() {} // Costruttore privato per class utility
+    
+    /**
+     * Metodo per creare icone semplici invece di simboli Unicode
+     */
+    public static Icon createSimpleIcon(String type) {
+        return new ImageIcon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                Graphics2D g2d = (Graphics2D) g.create();
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                
+                if (type.equals("info")) {
+                    // Icona info: cerchio blu con 'i'
+                    g2d.setColor(new Color(70, 130, 200));
+                    g2d.fillOval(x, y, 20, 20);
+                    g2d.setColor(Color.WHITE);
+                    g2d.setFont(new Font("Segoe UI", Font.BOLD, 14));
+                    g2d.drawString("i", x + 8, y + 15);
+                } 
+                else if (type.equals("add")) {
+                    // Icona aggiungi: cerchio verde con '+'
+                    g2d.setColor(new Color(80, 170, 120));
+                    g2d.fillOval(x, y, 20, 20);
+                    g2d.setColor(Color.WHITE);
+                    g2d.setStroke(new BasicStroke(2.5f));
+                    g2d.drawLine(x + 5, y + 10, x + 15, y + 10);  // orizzontale
+                    g2d.drawLine(x + 10, y + 5, x + 10, y + 15);  // verticale
+                }
+                else if (type.equals("remove")) {
+                    // Icona rimuovi: cerchio rosso con '-'
+                    g2d.setColor(new Color(220, 90, 90));
+                    g2d.fillOval(x, y, 20, 20);
+                    g2d.setColor(Color.WHITE);
+                    g2d.setStroke(new BasicStroke(2.5f));
+                    g2d.drawLine(x + 5, y + 10, x + 15, y + 10);  // orizzontale
+                }
+                
+                g2d.dispose();
+            }
+            
+            @Override
+            public int getIconWidth() {
+                return 20;
+            }
+            
+            @Override
+            public int getIconHeight() {
+                return 20;
+            }
+        };
+    }
+    
+    /**
+     * Regola la luminosità di un colore
+     */
+    public static Color adjustColorBrightness(Color color, float factor) {
+        int r = Math.min(255, Math.max(0, Math.round(color.getRed() * factor)));
+        int g = Math.min(255, Math.max(0, Math.round(color.getGreen() * factor)));
+        int b = Math.min(255, Math.max(0, Math.round(color.getBlue() * factor)));
+        return new Color(r, g, b);
+    }
+    
+    /**
+     * Applica effetto hover a un componente con cambio di bordo e sfondo
+     */
+    public static void applyHoverEffect(JComponent component, 
+                                      Color normalBorder, Color hoverBorder,
+                                      Color normalBg, Color hoverBg) {
+        // Bordo standard
+        Border normalBorderObj = BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(normalBorder, 1, true),
+            BorderFactory.createEmptyBorder(8, 15, 8, 15)
+        );
+        
+        // Bordo hover
+        Border hoverBorderObj = BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(hoverBorder, 1, true),
+            BorderFactory.createEmptyBorder(8, 15, 8, 15)
+        );
+        
+        // Imposta bordo iniziale
+        component.setBorder(normalBorderObj);
+        component.setBackground(normalBg);
+        
+        // Aggiungi listener hover
+        component.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseEntered(MouseEvent evt) {
+                component.setBorder(hoverBorderObj);
+                component.setBackground(hoverBg);
+            }
+            
+            @Override
+            public void mouseExited(MouseEvent evt) {
+                component.setBorder(normalBorderObj);
+                component.setBackground(normalBg);
+            }
+        });
+    }
+    
+    /**
+     * Applica stile moderno a un pulsante con icona, senza sfondo e senza bordi
+     */
+    public static void styleButton(JButton button, Icon icon) {
+        button.setIcon(icon);
+        button.setText(null);  // Nessun testo
+        button.setPreferredSize(new Dimension(24, 24));
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);  // Nessun bordo visibile
+        button.setContentAreaFilled(false);  // Nessun riempimento
+        button.setOpaque(false);  // Trasparente
+        button.setMargin(new Insets(0, 0, 0, 0));  // Nessun margine
+        
+        // Effetto hover
+        button.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseEntered(MouseEvent evt) {
+                // Effetto di scala (ingrandimento) all'hover
+                button.setIcon(createHoverIcon(icon));
+                button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            }
+            
+            @Override
+            public void mouseExited(MouseEvent evt) {
+                button.setIcon(icon);
+                button.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+            }
+        });
+    }
+    
+    /**
+     * Stile standard per i pulsanti dell'interfaccia
+     */
+    public static void styleStandardButton(JButton button) {
+        button.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        button.setFocusPainted(false);
+        applyHoverEffect(button, BUTTON_BORDER, BUTTON_BORDER_HOVER, BUTTON_BG, BUTTON_BG_HOVER);
+    }
+    
+    /**
+     * Crea un'icona leggermente più grande per l'effetto hover
+     */
+    private static Icon createHoverIcon(Icon originalIcon) {
+        return new ImageIcon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                Graphics2D g2d = (Graphics2D) g.create();
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                
+                // Centra l'icona originale ma la disegna leggermente più grande
+                originalIcon.paintIcon(c, g2d, x-1, y-1);
+                
+                g2d.dispose();
+            }
+            
+            @Override
+            public int getIconWidth() {
+                return originalIcon.getIconWidth() + 2;
+            }
+            
+            @Override
+            public int getIconHeight() {
+                return originalIcon.getIconHeight() + 2;
+            }
+        };
+    }
+    
+    /**
+     * Mostra un messaggio di dialogo con stile moderno
+     */
+    public static void mostraMessaggioModerno(Component parent, String messaggio, String titolo, int tipoMessaggio) {
+        UIManager.put("OptionPane.messageFont", new Font("Segoe UI", Font.PLAIN, 14));
+        UIManager.put("OptionPane.buttonFont", new Font("Segoe UI", Font.PLAIN, 12));
+        UIManager.put("OptionPane.background", BACKGROUND_COLOR);
+        UIManager.put("Panel.background", BACKGROUND_COLOR);
+        
+        JOptionPane.showMessageDialog(parent, messaggio, titolo, tipoMessaggio);
+    }
+    
+    /**
+     * Crea un bordo composto comune per pannelli
+     */
+    public static Border createPanelBorder(String titolo) {
+        return BorderFactory.createCompoundBorder(
+            BorderFactory.createEmptyBorder(5, 5, 5, 5),
+            BorderFactory.createTitledBorder(
+                BorderFactory.createCompoundBorder(
+                    BorderFactory.createEmptyBorder(2, 2, 2, 2),
+                    BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(200, 200, 200))
+                ),
+                titolo
+            )
+        );
+    }
+    
+    /**
+     * Crea un pannello di base con sfondo e bordo standardizzati
+     */
+    public static JPanel createStandardPanel(LayoutManager layout) {
+        JPanel panel = new JPanel(layout);
+        panel.setBackground(BACKGROUND_COLOR);
+        return panel;
+    }
+    
+    /**
+     * Crea un JScrollPane con stile standardizzato
+     */
+    public static JScrollPane createStyledScrollPane(Component view) {
+        JScrollPane scroll = new JScrollPane(view);
+        scroll.setBorder(BorderFactory.createLineBorder(new Color(0, 0, 0, 20), 1));
+        scroll.setBackground(BACKGROUND_COLOR);
+        return scroll;
+    }
+}
+
+/**
+ * Renderer personalizzato per le celle delle ricette negli elenchi
+ */
+class RicettaCellRenderer extends DefaultListCellRenderer {
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, 
+                                                 int index, boolean isSelected, boolean cellHasFocus) {
+        JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        
+        if (value instanceof Ricetta) {
+            Ricetta ricetta = (Ricetta) value;
+            label.setText(ricetta.getNome());
+            
+            // Nessuna icona, per assicurarsi che ci sia spazio per il testo
+            label.setIcon(null);
+            
+            // Padding aumentato per maggiore leggibilità
+            label.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+            
+            // Font più grande e chiaro
+            label.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            
+            // Migliora contrasto e visibilità
+            if (!isSelected) {
+                label.setBackground(Color.WHITE);
+                label.setForeground(new Color(0, 0, 0));
+            } else {
+                label.setBackground(new Color(70, 130, 180));
+                label.setForeground(Color.WHITE);
+            }
+        }
+        
+        // Assicurati che il layout del label sia orizzontale
+        label.setHorizontalAlignment(JLabel.LEFT);
+        label.setHorizontalTextPosition(JLabel.RIGHT);
+        
+        // Dimensione minima garantita
+        label.setPreferredSize(new Dimension(300, 30));
+        
+        return label;
+    }
+}
+
+/**
+ * Elenco dei risultati condiviso da tutti i selettori di ricette. Mostra in un
+ * popup le ricette del tipo di pasto del selettore attivo, filtrate con l'indice
+ * dei nomi del gestore. La ricerca parte dopo una breve pausa nella digitazione
+ * e gira su un thread in background; sull'EDT viene pubblicato solo il risultato
+ * dell'ultima ricerca. La JList ha celle di dimensione fissa, quindi disegna
+ * solo le righe visibili anche quando mostra un intero ricettario
+ */
+class ElencoRicetteFiltrate {
+    private static final int RITARDO_RICERCA_MS = 150;
+    private static final int MASSIMO_RISULTATI = 500;
+    private static final int RIGHE_VISIBILI = 12;
+    
+    private final GestoreRicette gestore;
+    private final ScheduledExecutorService esecutore = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ricerca-ricette");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final ModelloRisultati modello = new ModelloRisultati();
+    private final JList<Ricetta> lista = new JList<>(modello);
+    private final JPopupMenu popup = new JPopupMenu();
+    
+    // Selettore a cui appartengono i risultati mostrati
+    private SelettoreRicetta selettoreAttivo;
+    private ScheduledFuture<?> ricercaInAttesa;
+    private long generazione = 0; // letto e scritto solo sull'EDT
+    
+    ElencoRicetteFiltrate(GestoreRicette gestore) {
+        this.gestore = gestore;
+        
+        lista.setCellRenderer(new RicettaCellRenderer());
+        lista.setFixedCellHeight(30);
+        lista.setFixedCellWidth(350);
+        lista.setVisibleRowCount(RIGHE_VISIBILI);
+        lista.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        lista.setFocusable(false);
+        lista.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                confermaSelezione();
+            }
+        });
+        
+        popup.setFocusable(false);
+        popup.setBorder(BorderFactory.createLineBorder(new Color(180, 190, 210), 1));
+        popup.add(UIUtils.createStyledScrollPane(lista));
+    }
+    
+    /**
+     * Pianifica la ricerca del testo per il selettore, annullando quella
+     * ancora in attesa. Va chiamato sull'EDT
+     */
+    void filtra(SelettoreRicetta selettore, String testo) {
+        if (ricercaInAttesa != null) {
+            ricercaInAttesa.cancel(false);
+        }
+        long numero = ++generazione;
+        TipoPasto tipo = selettore.getTipoPasto();
+        ricercaInAttesa = esecutore.schedule(() -> {
+            List<Ricetta> risultati = testo.isBlank()
+                ? gestore.getRicettario(tipo)
+                : gestore.cercaRicette(tipo, testo.trim(), MASSIMO_RISULTATI);
+            SwingUtilities.invokeLater(() -> {
+                if (numero == generazione) {
+                    mostra(selettore, risultati);
+                }
+            });
+        }, RITARDO_RICERCA_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private void mostra(SelettoreRicetta selettore, List<Ricetta> risultati) {
+        if (!selettore.isShowing() || !selettore.haFocus()) {
+            return;
+        }
+        selettoreAttivo = selettore;
+        modello.setRisultati(risultati);
+        if (risultati.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        lista.setSelectedIndex(0);
+        lista.ensureIndexIsVisible(0);
+        if (!popup.isVisible() || popup.getInvoker() != selettore) {
+            popup.setPopupSize(Math.max(selettore.getWidth(), 350),
+                30 * Math.min(RIGHE_VISIBILI, risultati.size()) + 4);
+            popup.show(selettore, 0, selettore.getHeight());
+        } else {
+            popup.setPopupSize(popup.getWidth(), 30 * Math.min(RIGHE_VISIBILI, risultati.size()) + 4);
+            popup.pack();
+        }
+    }
+    
+    /**
+     * Sposta la selezione nell'elenco aperto di delta righe
+     */
+    void sposta(SelettoreRicetta selettore, int delta) {
+        if (!popup.isVisible() || selettoreAttivo != selettore || modello.getSize() == 0) {
+            filtra(selettore, selettore.getTesto());
+            return;
+        }
+        int indice = Math.max(0, Math.min(modello.getSize() - 1, lista.getSelectedIndex() + delta));
+        lista.setSelectedIndex(indice);
+        lista.ensureIndexIsVisible(indice);
+    }
+    
+    /**
+     * Assegna al selettore attivo la ricetta evidenziata e chiude l'elenco
+     * @return true se una ricetta è stata selezionata
+     */
+    boolean confermaSelezione() {
+        Ricetta ricetta = popup.isVisible() ? lista.getSelectedValue() : null;
+        nascondi();
+        if (ricetta == null || selettoreAttivo == null) {
+            return false;
+        }
+        selettoreAttivo.setRicettaSelezionata(ricetta);
+        return true;
+    }
+    
+    void nascondi() {
+        if (ricercaInAttesa != null) {
+            ricercaInAttesa.cancel(false);
+        }
+        generazione++;
+        popup.setVisible(false);
+    }
+    
+    /**
+     * Riesegue la ricerca se l'elenco mostra un ricettario appena ricaricato
+     */
+    void ricettarioAggiornato(TipoPasto tipo) {
+        if (popup.isVisible() && selettoreAttivo != null && selettoreAttivo.getTipoPasto() == tipo) {
+            filtra(selettoreAttivo, selettoreAttivo.getTesto());
+        }
+    }
+    
+    /**
+     * Modello che espone la lista dei risultati senza copiarla
+     */
+    private static final class ModelloRisultati extends AbstractListModel<Ricetta> {
+        private List<Ricetta> risultati = List.of();
+        
+        void setRisultati(List<Ricetta> nuoviRisultati) {
+            int vecchiaDimensione = risultati.size();
+            risultati = nuoviRisultati;
+            if (vecchiaDimensione > 0) {
+                fireIntervalRemoved(this, 0, vecchiaDimensione - 1);
+            }
+            if (!risultati.isEmpty()) {
+                fireIntervalAdded(this, 0, risultati.size() - 1);
+            }
+        }
+        
+        @Override
+        public int getSize() {
+            return risultati.size();
+        }
+        
+        @Override
+        public Ricetta getElementAt(int index) {
+            return risultati.get(index);
+        }
+    }
+}
+
+/**
+ * Campo di testo con completamento per scegliere una ricetta di un tipo di pasto.
+ * I risultati vengono mostrati nell'elenco condiviso {@link ElencoRicetteFiltrate}
+ */
+class SelettoreRicetta extends JPanel {
+    private final TipoPasto tipoPasto;
+    private final ElencoRicetteFiltrate elenco;
+    private final JTextField campo = new JTextField();
+    private Ricetta ricettaSelezionata;
+    private boolean aggiornamentoInterno = false;
+    
+    SelettoreRicetta(TipoPasto tipoPasto, ElencoRicetteFiltrate elenco) {
+        super(new BorderLayout());
+        this.tipoPasto = tipoPasto;
+        this.elenco = elenco;
+        
+        setOpaque(false);
+        campo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        campo.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(180, 190, 210), 1, true),
+            BorderFactory.createEmptyBorder(3, 6, 3, 6)
+        ));
+        campo.setToolTipText("Scrivi per cercare una ricetta");
+        add(campo, BorderLayout.CENTER);
+        
+        campo.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { testoModificato(); }
+            @Override public void removeUpdate(DocumentEvent e) { testoModificato(); }
+            @Override public void changedUpdate(DocumentEvent e) { testoModificato(); }
+        });
+        campo.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN: elenco.sposta(SelettoreRicetta.this, 1); e.consume(); break;
+                    case KeyEvent.VK_UP: elenco.sposta(SelettoreRicetta.this, -1); e.consume(); break;
+                    case KeyEvent.VK_PAGE_DOWN: elenco.sposta(SelettoreRicetta.this, 10); e.consume(); break;
+                    case KeyEvent.VK_PAGE_UP: elenco.sposta(SelettoreRicetta.this, -10); e.consume(); break;
+                    case KeyEvent.VK_ENTER: elenco.confermaSelezione(); break;
+                    case KeyEvent.VK_ESCAPE: elenco.nascondi(); break;
+                    default: break;
+                }
+            }
+        });
+        campo.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                campo.selectAll();
+            }
+            
+            @Override
+            public void focusLost(FocusEvent e) {
+                elenco.nascondi();
+            }
+        });
+        campo.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                elenco.filtra(SelettoreRicetta.this, getTesto());
+            }
+        });
+    }
+    
+    private void testoModificato() {
+        if (aggiornamentoInterno) {
+            return;
+        }
+        // Il testo scritto a mano annulla la scelta precedente
+        ricettaSelezionata = null;
+        elenco.filtra(this, getTesto());
+    }
+    
+    TipoPasto getTipoPasto() {
+        return tipoPasto;
+    }
+    
+    String getTesto() {
+        return campo.getText();
+    }
+    
+    boolean haFocus() {
+        return campo.isFocusOwner();
+    }
+    
+    /**
+     * Ricetta scelta dall'elenco o null se il testo non corrisponde a una scelta
+     */
+    public Ricetta getRicettaSelezionata() {
+        return ricettaSelezionata;
+    }
+    
+    void setRicettaSelezionata(Ricetta ricetta) {
+        ricettaSelezionata = ricetta;
+        aggiornamentoInterno = true;
+        try {
+            campo.setText(ricetta.getNome());
+        } finally {
+            aggiornamentoInterno = false;
+        }
+    }
+}
+
+/**
+ * Classe per l'interfaccia grafica del diario alimentare
+ */
+class DiarioGUI extends JFrame implements SorveglianteFile.Ascoltatore {
+    private static final String[] GIORNI = {"Lunedì", "Martedì", "Mercoledì", "Giovedì", "Venerdì", "Sabato", "Domenica"};
+    private static final Cronometro TEMPO_AGGIORNAMENTO_PREZZI = Metriche.cronometro("gui.aggiornamentoPrezzi");
+    private final GestoreRicette gestore;
+    private final PianoPasti pianificazione; // un solo nucleo sulla settimana corrente
+    private final Map<String, Map<TipoPasto, DefaultListModel<Ricetta>>> modelliGiorni;
+    private final Map<String, Map<TipoPasto, JList<Ricetta>>> listePianificazione;
+    private final ListaSpesaIncrementale listaSpesaCorrente = new ListaSpesaIncrementale();
+    private boolean listaSpesaMostrata = false; // dopo la prima generazione la lista resta aggiornata
+    private final ElencoRicetteFiltrate elencoRicette;
+    private JTextArea areaListaSpesa;
+    private JLabel labelCostoTotale;
+    private JProgressBar barraElaborazione;
+    private ElaborazioneListaSpesa elaborazioneInCorso; // letto e scritto solo sull'EDT
+    private JPanel pannelloDettagliRicetta;
+    private JTextArea dettagliRicetta;
+    
+    // Classificatore delle categorie degli ingredienti - implementato lazy loading
+    private ClassificatoreCategorie classificatoreCategorie;
+    
+    // Colori per i giorni - Palette più moderna e sofisticata
+    private final Color[] coloreGiorni = {
+        new Color(79, 143, 230),    // Lunedì - blu
+        new Color(94, 168, 230),    // Martedì - azzurro
+        new Color(240, 151, 114),   // Mercoledì - pesca
+        new Color(248, 177, 87),    // Giovedì - arancione chiaro
+        new Color(134, 206, 137),   // Venerdì - verde
+        new Color(236, 128, 141),   // Sabato - rosa
+        new Color(171, 138, 235)    // Domenica - viola
+    };
+    
+    public DiarioGUI(GestoreRicette gestore) {
+        this.gestore = gestore;
+        elencoRicette = new ElencoRicetteFiltrate(gestore);
+        pianificazione = PianoPasti.settimanale(LocalDate.now(), "Famiglia");
+        listePianificazione = new HashMap<>();
+        modelliGiorni = new HashMap<>();
+        
+        // Inizializza i modelli delle liste per ogni giorno
+        for (String giorno : GIORNI) {
+            modelliGiorni.put(giorno, new HashMap<>());
+            listePianificazione.put(giorno, new HashMap<>());
+            
+            // Inizializza per ogni tipo di pasto
+            for (TipoPasto tipoPasto : TipoPasto.values()) {
+                modelliGiorni.get(giorno).put(tipoPasto, new DefaultListModel<>());
+            }
+        }
+        
+        // Configurazione della finestra
+        setTitle("Diario Alimentare Settimanale");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(1280, 800);
+        setLocationRelativeTo(null);
+        
+        // Inizializza i componenti dell'interfaccia
+        initComponents();
+    }
+    
+    /**
+     * Lazy loading per il classificatore delle categorie, letto da categorie.txt se presente
+     */
+    private ClassificatoreCategorie getClassificatoreCategorie() {
+        if (classificatoreCategorie == null) {
+            classificatoreCategorie = ClassificatoreCategorie.predefinito();
+        }
+        return classificatoreCategorie;
+    }
+    
+    private void initComponents() {
+        // Layout principale
+        setLayout(new BorderLayout(15, 15));
+        JPanel mainPanel = UIUtils.createStandardPanel(new BorderLayout(15, 15));
+        mainPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        
+        // Pannello per la pianificazione settimanale
+        JPanel pianificazionePanel = createPianificazionePanel();
+        
+        // Pannello per i dettagli della ricetta
+        pannelloDettagliRicetta = createPannelloDettagliRicetta();
+        pannelloDettagliRicetta.setVisible(false); // Nascosto inizialmente
+        
+        // Pannello per la lista della spesa
+        JPanel listaSpesaPanel = createListaSpesaPanel();
+        
+        // Layout dei pannelli
+        JPanel topPanel = UIUtils.createStandardPanel(new BorderLayout(15, 0));
+        topPanel.add(pianificazionePanel, BorderLayout.CENTER);
+        topPanel.add(pannelloDettagliRicetta, BorderLayout.EAST);
+        
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, topPanel, listaSpesaPanel);
+        splitPane.setResizeWeight(0.7);
+        splitPane.setDividerSize(8);
+        splitPane.setBorder(null);
+        
+        mainPanel.add(splitPane, BorderLayout.CENTER);
+        add(mainPanel, BorderLayout.CENTER);
+    }
+    
+    private JPanel createPannelloDettagliRicetta() {
+        JPanel panel = UIUtils.createStandardPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(0, 0, 0, 30), 1, true),
+            BorderFactory.createEmptyBorder(10, 10, 10, 10)
+        ));
+        panel.setPreferredSize(new Dimension(320, 0));
+        
+        // Titolo del pannello
+        JPanel titlePanel = new JPanel(new BorderLayout());
+        titlePanel.setBackground(new Color(245, 246, 250));
+        titlePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        
+        JLabel labelTitolo = new JLabel("Dettagli Ricetta");
+        labelTitolo.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        labelTitolo.setForeground(new Color(50, 80, 120));
+        titlePanel.add(labelTitolo, BorderLayout.CENTER);
+        
+        panel.add(titlePanel, BorderLayout.NORTH);
+        
+        // Area testo con stile moderno
+        dettagliRicetta = new JTextArea();
+        dettagliRicetta.setEditable(false);
+        dettagliRicetta.setLineWrap(true);
+        dettagliRicetta.setWrapStyleWord(true);
+        dettagliRicetta.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        dettagliRicetta.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        dettagliRicetta.setBackground(Color.WHITE);
+        
+        JScrollPane scrollPane = UIUtils.createStyledScrollPane(dettagliRicetta);
+        scrollPane.setBackground(Color.WHITE);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Pulsante chiudi moderno
+        JButton chiudiButton = new JButton("Chiudi");
+        UIUtils.styleStandardButton(chiudiButton);
+        chiudiButton.addActionListener(misurata("chiudiDettagli", e -> pannelloDettagliRicetta.setVisible(false)));
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setOpaque(false);
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(12, 0, 0, 0));
+        buttonPanel.add(chiudiButton);
+        
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    private JPanel createPianificazionePanel() {
+        JPanel panel = UIUtils.createStandardPanel(new BorderLayout(10, 10));
+        panel.setBorder(UIUtils.createPanelBorder("Pianificazione Settimanale"));
+        
+        // Crea un pannello centrale con layout a griglia di 7 giorni
+        JPanel mainGrid = new JPanel(new GridLayout(1, 7, 15, 0));
+        mainGrid.setOpaque(false);
+        
+        // Per ogni giorno della settimana
+        for (int i = 0; i < GIORNI.length; i++) {
+            String giorno = GIORNI[i];
+            Color coloreGiorno = coloreGiorni[i];
+            
+            // Crea un pannello per il giorno con bordo più evidente e arrotondato
+            JPanel giornoPanel = UIUtils.createStandardPanel(new BorderLayout(5, 5));
+            giornoPanel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(coloreGiorno, 2),
+                BorderFactory.createEmptyBorder(3, 3, 3, 3)
+            ));
+            
+            // Intestazione del giorno più moderna
+            JPanel headerGiorno = new JPanel(new BorderLayout());
+            headerGiorno.setBackground(coloreGiorno);
+            headerGiorno.setBorder(BorderFactory.createEmptyBorder(10, 5, 10, 5));
+            
+            JLabel labelGiorno = new JLabel(giorno, JLabel.CENTER);
+            labelGiorno.setFont(new Font("Segoe UI", Font.BOLD, 16));
+            labelGiorno.setForeground(Color.WHITE);
+            headerGiorno.add(labelGiorno, BorderLayout.CENTER);
+            
+            giornoPanel.add(headerGiorno, BorderLayout.NORTH);
+            
+            // Pannello centrale con i tre tipi di pasto
+            JPanel pastiPanel = new JPanel(new GridLayout(3, 1, 0, 8)); // Aumento spazio tra i pasti
+            pastiPanel.setBorder(BorderFactory.createEmptyBorder(8, 5, 8, 5));
+            pastiPanel.setOpaque(false);
+            
+            // Per ogni tipo di pasto
+            int indicePasto = 0;
+            for (TipoPasto tipoPasto : TipoPasto.values()) {
+                // Crea diverse tonalità del colore base
+                float fattoreLuminosita;
+                switch (indicePasto) {
+                    case 0: fattoreLuminosita = 1.3f; break; // Colazione - più chiaro
+                    case 1: fattoreLuminosita = 1.1f; break; // Pranzo - medio chiaro
+                    default: fattoreLuminosita = 0.9f; break; // Cena - leggermente scuro
+                }
+                
+                Color colorePasto = UIUtils.adjustColorBrightness(coloreGiorno, fattoreLuminosita);
+                JPanel pastoPanel = createPastoPanel(giorno, tipoPasto, coloreGiorno, colorePasto);
+                pastiPanel.add(pastoPanel);
+                indicePasto++;
+            }
+            
+            giornoPanel.add(pastiPanel, BorderLayout.CENTER);
+            mainGrid.add(giornoPanel);
+        }
+        
+        mainGrid.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        panel.add(mainGrid, BorderLayout.CENTER);
+        
+        return panel;
+    }
+    
+    private JPanel createPastoPanel(String giorno, TipoPasto tipoPasto, Color bordoColore, Color sfondoColore) {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBackground(sfondoColore);
+        // Shadow effect con bordo sottile e arrotondato
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(0, 0, 0, 25), 1, true),
+            BorderFactory.createEmptyBorder(5, 5, 5, 5)
+        ));
+        
+        // Pannello titolo più elegante
+        JPanel titlePanel = new JPanel(new BorderLayout());
+        titlePanel.setBackground(sfondoColore);
+        titlePanel.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(0, 0, 0, 40)));
+        
+        // Usa l'icona dall'enum - Senza label se l'icona è vuota
+        String labelText = tipoPasto.getNome();
+        JLabel labelPasto = new JLabel(labelText, JLabel.LEFT);
+        labelPasto.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        labelPasto.setBorder(BorderFactory.createEmptyBorder(3, 5, 3, 0));
+        titlePanel.add(labelPasto, BorderLayout.CENTER);
+        
+        // Etichetta con numero massimo ricette
+        JLabel labelMax = new JLabel("max " + tipoPasto.getMaxRicette(), JLabel.RIGHT);
+        labelMax.setFont(new Font("Segoe UI", Font.ITALIC, 10));
+        labelMax.setForeground(new Color(80, 80, 80));
+        labelMax.setBorder(BorderFactory.createEmptyBorder(2, 0, 2, 5));
+        titlePanel.add(labelMax, BorderLayout.EAST);
+        
+        panel.add(titlePanel, BorderLayout.NORTH);
+        
+        // Contenuto principale con sfondo colorato
+        JPanel contentPanel = new JPanel(new BorderLayout(5, 5));
+        contentPanel.setBackground(sfondoColore);
+        
+        // Lista delle ricette con stile migliorato
+        DefaultListModel<Ricetta> modelPasto = modelliGiorni.get(giorno).get(tipoPasto);
+        JList<Ricetta> listaPasto = new JList<>(modelPasto);
+        listePianificazione.get(giorno).put(tipoPasto, listaPasto);
+        
+        // Renderer personalizzato per celle più eleganti
+        listaPasto.setCellRenderer(new RicettaCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, 
+                                                     int index, boolean isSelected, boolean cellHasFocus) {
+                JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                
+                // Garantisce che il testo si adatti al componente
+                label.setMinimumSize(new Dimension(150, 25));
+                return label;
+            }
+        });
+        listaPasto.setFixedCellHeight(25); // Celle leggermente più alte per leggibilità
+        listaPasto.setBackground(new Color(255, 255, 255, 230)); // Sfondo bianco semi-trasparente
+        listaPasto.setSelectionBackground(UIUtils.adjustColorBrightness(bordoColore, 1.2f));
+        listaPasto.setSelectionForeground(Color.BLACK);
+        
+        // Mostra dettagli ricetta con doppio click
+        listaPasto.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    mostraDettagliRicetta(listaPasto.getSelectedValue());
+                }
+            }
+        });
+        
+        // Scrollpane con stile migliorato
+        JScrollPane scrollPasto = UIUtils.createStyledScrollPane(listaPasto);
+        scrollPasto.setPreferredSize(new Dimension(0, 70)); // Altezza ridotta
+        scrollPasto.setBackground(sfondoColore);
+        contentPanel.add(scrollPasto, BorderLayout.CENTER);
+        
+        panel.add(contentPanel, BorderLayout.CENTER);
+        
+        // Pannello controlli più moderno
+        JPanel controlPanel = new JPanel(new BorderLayout(0, 0));
+        controlPanel.setBackground(sfondoColore);
+        controlPanel.setBorder(BorderFactory.createEmptyBorder(4, 0, 0, 0));
+        
+        // Selettore con completamento: i risultati vengono cercati nell'indice del tipo di pasto
+        SelettoreRicetta selettoreRicetta = new SelettoreRicetta(tipoPasto, elencoRicette);
+        
+        // Pannello pulsanti più elegante - senza sfondo
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        buttonPanel.setOpaque(false);  // Rende il pannello dei pulsanti trasparente
+        
+        // Stile moderno per i pulsanti con icone personalizzate
+        JButton infoButton = new JButton();
+        UIUtils.styleButton(infoButton, UIUtils.createSimpleIcon("info"));
+        infoButton.setToolTipText("Mostra dettagli ricetta");
+        
+        JButton aggiungiButton = new JButton();
+        UIUtils.styleButton(aggiungiButton, UIUtils.createSimpleIcon("add"));
+        aggiungiButton.setToolTipText("Aggiungi ricetta");
+        
+        JButton rimuoviButton = new JButton();
+        UIUtils.styleButton(rimuoviButton, UIUtils.createSimpleIcon("remove"));
+        rimuoviButton.setToolTipText("Rimuovi ricetta selezionata");
+        
+        buttonPanel.add(infoButton);
+        buttonPanel.add(aggiungiButton);
+        buttonPanel.add(rimuoviButton);
+        
+        JPanel inputPanel = new JPanel(new BorderLayout(5, 0));
+        inputPanel.setOpaque(false);
+        inputPanel.add(selettoreRicetta, BorderLayout.CENTER);
+        inputPanel.add(buttonPanel, BorderLayout.EAST);
+        
+        controlPanel.add(inputPanel, BorderLayout.CENTER);
+        
+        // Azioni pulsanti
+        infoButton.addActionListener(misurata("dettagliRicetta", e -> {
+            Ricetta ricettaSelezionata = ricettaScelta(selettoreRicetta);
+            if (ricettaSelezionata != null) {
+                mostraDettagliRicetta(ricettaSelezionata);
+            }
+        }));
+        
+        aggiungiButton.addActionListener(misurata("aggiungiRicetta", e -> {
+            Ricetta ricettaSelezionata = ricettaScelta(selettoreRicetta);
+            if (ricettaSelezionata != null) {
+                // Controlla se abbiamo raggiunto il limite di ricette per questo pasto
+                if (getGiornata(giorno).aggiungiRicetta(tipoPasto, ricettaSelezionata)) {
+                    modelPasto.addElement(ricettaSelezionata);
+                    listaSpesaCorrente.aggiungiRicetta(ricettaSelezionata);
+                    aggiornaListaSpesa();
+                } else {
+                    UIUtils.mostraMessaggioModerno(
+                        this,
+                        "Hai raggiunto il limite di " + tipoPasto.getMaxRicette() + 
+                        " ricette per " + tipoPasto.getNome().toLowerCase() + ".",
+                        "Limite Raggiunto", JOptionPane.INFORMATION_MESSAGE);
+                }
+            }
+        }));
+        
+        rimuoviButton.addActionListener(misurata("rimuoviRicetta", e -> {
+            int index = listaPasto.getSelectedIndex();
+            if (index != -1) {
+                Ricetta ricettaRimossa = modelPasto.remove(index);
+                getGiornata(giorno).rimuoviRicetta(tipoPasto, ricettaRimossa);
+                listaSpesaCorrente.rimuoviRicetta(ricettaRimossa);
+                aggiornaListaSpesa();
+            } else {
+                UIUtils.mostraMessaggioModerno(
+                    this,
+                    "Seleziona prima una ricetta da rimuovere", 
+                    "Avviso", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }));
+        
+        panel.add(controlPanel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    /**
+     * Azione che registra per quanto tempo tiene occupato l'EDT, compresi
+     * gli eventuali dialoghi modali che apre, ed emette un evento JFR
+     */
+    private static ActionListener misurata(String nome, ActionListener azione) {
+        Cronometro cronometro = Metriche.cronometro("gui." + nome);
+        return e -> eseguiMisurata(nome, cronometro, () -> azione.actionPerformed(e));
+    }
+    
+    private static void eseguiMisurata(String nome, Cronometro cronometro, Runnable azione) {
+        EventoAzioneGui evento = new EventoAzioneGui();
+        evento.begin();
+        long inizio = cronometro.avvia();
+        try {
+            azione.run();
+        } finally {
+            cronometro.ferma(inizio);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.azione = nome;
+                evento.commit();
+            }
+        }
+    }
+    
+    @Override
+    public void prezziAggiornati(VariazionePrezzi variazione) {
+        SwingUtilities.invokeLater(() -> eseguiMisurata("aggiornamentoPrezzi", TEMPO_AGGIORNAMENTO_PREZZI, () -> {
+            // Solo i prezzi cambiati vengono applicati al costo della lista aperta
+            listaSpesaCorrente.applicaVariazione(variazione);
+            aggiornaListaSpesa();
+        }));
+    }
+    
+    @Override
+    public void ricettarioAggiornato(TipoPasto tipo) {
+        SwingUtilities.invokeLater(() -> elencoRicette.ricettarioAggiornato(tipo));
+    }
+    
+    /**
+     * Giornata del piano corrispondente a un giorno della griglia settimanale
+     */
+    private PianificazioneGiornaliera getGiornata(String giorno) {
+        return pianificazione.getGiornata(0, Arrays.asList(GIORNI).indexOf(giorno));
+    }
+    
+    /**
+     * Ricetta scelta nel selettore o, se il testo è stato scritto senza
+     * sceglierla dall'elenco, la prima ricetta che corrisponde al testo
+     */
+    private Ricetta ricettaScelta(SelettoreRicetta selettore) {
+        Ricetta ricetta = selettore.getRicettaSelezionata();
+        if (ricetta == null && !selettore.getTesto().isBlank()) {
+            List<Ricetta> trovate = gestore.cercaRicette(selettore.getTipoPasto(), selettore.getTesto().trim(), 1);
+            if (!trovate.isEmpty()) {
+                ricetta = trovate.get(0);
+                selettore.setRicettaSelezionata(ricetta);
+            }
+        }
+        return ricetta;
+    }
+    
+    private void mostraDettagliRicetta(Ricetta ricetta) {
+        if (ricetta != null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Ricetta: ").append(ricetta.getNome()).append("\n\n");
+            sb.append("Ingredienti:\n");
+            
+            // Tutti i costi vengono letti dallo stesso listino
+            ListinoPrezzi listino = IngredienteFactory.getListino();
+            
+            for (Ingrediente ingrediente : ricetta.getIngredienti()) {
+                double costoIngrediente = ingrediente.getCostoTotale(listino);
+                sb.append("• ").append(ingrediente.toString());
+                if (ingrediente.getPrezzo(listino) > 0) {
+                    sb.append(String.format(" (€ %.2f)", costoIngrediente));
+                }
+                sb.append("\n");
+            }
+            
+            // Il costo totale è in cache nella ricetta
+            double costoTotale = ricetta.getCostoTotale(listino);
+            if (costoTotale > 0) {
+                sb.append("\nCosto totale: € ").append(String.format("%.2f", costoTotale));
+            }
+            
+            dettagliRicetta.setText(sb.toString());
+            pannelloDettagliRicetta.setVisible(true);
+        }
+    }
+    
+    private JPanel createListaSpesaPanel() {
+        JPanel panel = UIUtils.createStandardPanel(new BorderLayout(10, 10));
+        panel.setBorder(UIUtils.createPanelBorder("Lista della Spesa"));
+        
+        // Area di testo con uno stile più moderno
+        areaListaSpesa = new JTextArea();
+        areaListaSpesa.setEditable(false);
+        areaListaSpesa.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        areaListaSpesa.setLineWrap(true);
+        areaListaSpesa.setWrapStyleWord(true);
+        areaListaSpesa.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        areaListaSpesa.setBackground(Color.WHITE);
+        
+        JScrollPane scrollLista = UIUtils.createStyledScrollPane(areaListaSpesa);
+        
+        // Pannello inferiore più elegante
+        JPanel bottomPanel = new JPanel(new BorderLayout(15, 0));
+        bottomPanel.setBorder(BorderFactory.createEmptyBorder(12, 5, 5, 5));
+        bottomPanel.setBackground(UIUtils.BACKGROUND_COLOR);
+        
+        // Pulsante moderno e arrotondato
+        JButton generaButton = new JButton("Genera Lista della Spesa");
+        UIUtils.styleStandardButton(generaButton);
+        generaButton.setForeground(new Color(50, 90, 160));
+        
+        // Aggiunge un'icona personalizzata
+        generaButton.setIconTextGap(10);
+        generaButton.setIcon(new ImageIcon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                Graphics2D g2d = (Graphics2D) g.create();
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                
+                // Disegna un carrello stilizzato
+                g2d.setColor(new Color(80, 130, 190));
+                int[] xPoints = {x, x+16, x+14, x+4};
+                int[] yPoints = {y+16, y+16, y+6, y+6};
+                g2d.fillPolygon(xPoints, yPoints, 4);
+                
+                g2d.fillOval(x+5, y+17, 4, 4);
+                g2d.fillOval(x+13, y+17, 4, 4);
+                
+                g2d.dispose();
+            }
+            
+            @Override
+            public int getIconWidth() {
+                return 20;
+            }
+            
+            @Override
+            public int getIconHeight() {
+                return 22;
+            }
+        });
+        
+        // Stile moderno per il costo totale
+        labelCostoTotale = new JLabel("Costo Totale: € 0.00");
+        labelCostoTotale.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        labelCostoTotale.setForeground(UIUtils.HIGHLIGHT_COLOR);
+        labelCostoTotale.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createMatteBorder(0, 0, 2, 0, new Color(50, 120, 200, 100)),
+            BorderFactory.createEmptyBorder(5, 10, 5, 10)));
+        
+        generaButton.addActionListener(misurata("generaListaSpesa", e -> generaListaSpesa()));
+        
+        JButton menuButton = new JButton("Menu Automatico");
+        UIUtils.styleStandardButton(menuButton);
+        menuButton.setForeground(new Color(50, 90, 160));
+        menuButton.addActionListener(misurata("menuAutomatico", e -> compilaMenuAutomatico()));
+        
+        JPanel pannelloPulsanti = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        pannelloPulsanti.setOpaque(false);
+        pannelloPulsanti.add(generaButton);
+        pannelloPulsanti.add(menuButton);
+        
+        // Avanzamento della generazione in background, visibile solo mentre è in corso
+        barraElaborazione = new JProgressBar(0, 100);
+        barraElaborazione.setVisible(false);
+        JPanel pannelloBarra = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 8));
+        pannelloBarra.setOpaque(false);
+        pannelloBarra.add(barraElaborazione);
+        
+        bottomPanel.add(pannelloPulsanti, BorderLayout.WEST);
+        bottomPanel.add(pannelloBarra, BorderLayout.CENTER);
+        bottomPanel.add(labelCostoTotale, BorderLayout.EAST);
+        
+        panel.add(scrollLista, BorderLayout.CENTER);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+    
+    private void generaListaSpesa() {
+        listaSpesaMostrata = true;
+        avviaElaborazione(true);
+    }
+    
+    /**
+     * Chiede il budget e compila in background il menu della settimana,
+     * che sostituisce la pianificazione corrente
+     */
+    private void compilaMenuAutomatico() {
+        if (pianificazione.numeroRicette() > 0 && JOptionPane.showConfirmDialog(this,
+                "Il menu automatico sostituirà le ricette già pianificate. Continuare?",
+                "Menu Automatico", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        String risposta = JOptionPane.showInputDialog(this,
+            "Budget settimanale in € (vuoto per nessun limite):", "Menu Automatico", JOptionPane.QUESTION_MESSAGE);
+        if (risposta == null) {
+            return;
+        }
+        
+        // Un seme diverso a ogni richiesta propone ogni volta un menu diverso
+        VincoliMenu vincoli = new VincoliMenu().seme(System.nanoTime());
+        if (!risposta.isBlank()) {
+            try {
+                vincoli.budget(Double.parseDouble(risposta.trim().replace(',', '.')));
+            } catch (NumberFormatException e) {
+                UIUtils.mostraMessaggioModerno(this, "Budget non valido: " + risposta, "Errore", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+        
+        new SwingWorker<MenuSettimanale, Void>() {
+            @Override
+            protected MenuSettimanale doInBackground() {
+                return gestore.ottimizzaMenu(vincoli);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    applicaMenu(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    UIUtils.mostraMessaggioModerno(DiarioGUI.this,
+                        "Impossibile compilare il menu: " + causa.getMessage(),
+                        "Errore", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Sostituisce le ricette di ogni pasto della settimana con quelle del menu
+     */
+    private void applicaMenu(MenuSettimanale menu) {
+        for (int indiceGiorno = 0; indiceGiorno < GIORNI.length; indiceGiorno++) {
+            String giorno = GIORNI[indiceGiorno];
+            PianificazioneGiornaliera giornata = getGiornata(giorno);
+            for (TipoPasto tipoPasto : TipoPasto.values()) {
+                DefaultListModel<Ricetta> modelPasto = modelliGiorni.get(giorno).get(tipoPasto);
+                for (int i = 0; i < modelPasto.size(); i++) {
+                    giornata.rimuoviRicetta(tipoPasto, modelPasto.get(i));
+                    listaSpesaCorrente.rimuoviRicetta(modelPasto.get(i));
+                }
+                modelPasto.clear();
+                
+                for (Ricetta ricetta : menu.getRicette(indiceGiorno, tipoPasto)) {
+                    if (giornata.aggiungiRicetta(tipoPasto, ricetta)) {
+                        modelPasto.addElement(ricetta);
+                        listaSpesaCorrente.aggiungiRicetta(ricetta);
+                    }
+                }
+            }
+        }
+        aggiornaListaSpesa();
+        
+        UIUtils.mostraMessaggioModerno(this,
+            String.format("Menu compilato: € %.2f, %d ingredienti diversi%s", menu.getCosto(),
+                menu.getIngredientiDistinti(), menu.isEntroBudget() ? "" : "\nAttenzione: il budget non è stato rispettato"),
+            "Menu Automatico", menu.isEntroBudget() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Aggiorna il costo totale dal modello incrementale e, se la lista è già
+     * stata generata, ne avvia la riformattazione in background
+     */
+    private void aggiornaListaSpesa() {
+        labelCostoTotale.setText(String.format("Costo Totale: € %.2f", listaSpesaCorrente.getCostoTotale()));
+        if (listaSpesaMostrata) {
+            avviaElaborazione(false);
+        }
+    }
+    
+    /**
+     * Avvia la formattazione della lista su un thread in background, annullando
+     * quella in corso che non rifletterebbe più la pianificazione. Il worker
+     * riceve dati copiati qui sull'EDT, così non legge strutture che
+     * l'interfaccia continua a modificare: per una generazione richiesta
+     * esplicitamente la pianificazione, da riaggregare per intero, altrimenti
+     * le sole righe del modello incrementale con il suo listino
+     */
+    private void avviaElaborazione(boolean conferma) {
+        if (elaborazioneInCorso != null) {
+            elaborazioneInCorso.cancel(true);
+        }
+        
+        elaborazioneInCorso = conferma
+            ? new ElaborazioneListaSpesa(pianificazione.copia(), getClassificatoreCategorie())
+            : new ElaborazioneListaSpesa(listaSpesaCorrente.getListaSpesa(), listaSpesaCorrente.getListino(),
+                getClassificatoreCategorie());
+        barraElaborazione.setValue(0);
+        barraElaborazione.setVisible(true);
+        elaborazioneInCorso.execute();
+    }
+    
+    /**
+     * Raggruppa e formatta la lista della spesa fuori dall'EDT, dopo averla
+     * aggregata dall'intera pianificazione se la generazione è esplicita.
+     * Controlla l'annullamento tra una fase e l'altra e pubblica sull'EDT
+     * solo il testo finale e il costo totale
+     */
+    private class ElaborazioneListaSpesa extends SwingWorker<String, Void> {
+        private final PianoPasti pianificazione; // null se la lista arriva dal modello incrementale
+        private Map<String, Ingrediente> listaSpesa;
+        private ListinoPrezzi listino;
+        private final ClassificatoreCategorie classificatore;
+        private final boolean conferma;
+        private double costoTotale;
+        
+        /**
+         * Generazione completa dalla pianificazione, con conferma al termine
+         */
+        ElaborazioneListaSpesa(PianoPasti pianificazione, ClassificatoreCategorie classificatore) {
+            this(pianificazione, null, null, classificatore, true);
+        }
+        
+        /**
+         * Formattazione di una lista già aggregata, con i prezzi del listino indicato
+         */
+        ElaborazioneListaSpesa(Map<String, Ingrediente> listaSpesa, ListinoPrezzi listino,
+                               ClassificatoreCategorie classificatore) {
+            this(null, listaSpesa, listino, classificatore, false);
+        }
+        
+        private ElaborazioneListaSpesa(PianoPasti pianificazione, Map<String, Ingrediente> listaSpesa,
+                                       ListinoPrezzi listino, ClassificatoreCategorie classificatore, boolean conferma) {
+            this.pianificazione = pianificazione;
+            this.listaSpesa = listaSpesa;
+            this.listino = listino;
+            this.classificatore = classificatore;
+            this.conferma = conferma;
+            addPropertyChangeListener(evento -> {
+                if ("progress".equals(evento.getPropertyName()) && this == elaborazioneInCorso) {
+                    barraElaborazione.setValue((Integer) evento.getNewValue());
+                }
+            });
+        }
+        
+        @Override
+        protected String doInBackground() {
+            if (pianificazione != null) {
+                // Tutti i costi vengono letti dallo stesso listino
+                listino = IngredienteFactory.getListino();
+                listaSpesa = gestore.generaListaSpesa(pianificazione);
+            }
+            costoTotale = gestore.calcolaCostoTotale(listaSpesa, listino);
+            setProgress(40);
+            if (isCancelled()) return null;
+            
+            // Raggruppa gli ingredienti per categoria
+            Map<String, Map<String, List<Ingrediente>>> ingredientiPerCategoria =
+                raggruppaIngredientiPerCategoria(listaSpesa, classificatore);
+            setProgress(60);
+            
+            // Stampa gli ingredienti raggruppati per categoria con stile moderno
+            StringBuilder sb = new StringBuilder(UIUtils.LISTA_SPESA_HEADER);
+            int categorieFormattate = 0;
+            for (Map.Entry<String, Map<String, List<Ingrediente>>> entryCategoria : ingredientiPerCategoria.entrySet()) {
+                if (isCancelled()) return null;
+                sb.append(entryCategoria.getKey()).append("\n");
+                sb.append("--------------------------------------------\n");
+                
+                for (Map.Entry<String, List<Ingrediente>> entryIngrediente : entryCategoria.getValue().entrySet()) {
+                    sb.append(entryIngrediente.getKey()).append(":\n");
+                    
+                    for (Ingrediente ingrediente : entryIngrediente.getValue()) {
+                        double costoIngrediente = ingrediente.getCostoAcquisto(listino);
+                        long confezioni = ingrediente.getNumeroConfezioni(listino);
+                        sb.append(String.format("  • %.2f %s (€ %.2f/unità)", 
+                                ingrediente.getQuantita(), 
+                                ingrediente.getUnita(), 
+                                ingrediente.getPrezzo(listino)));
+                        if (confezioni > 0) {
+                            sb.append(String.format(", %d confezioni", confezioni));
+                        } else if (listino.getConfezione(ingrediente.getIdNome()) > 0
+                                && !listino.confezioneApplicabile(ingrediente.getIdNome(), ingrediente.getUnita())) {
+                            sb.append(String.format(", confezione in %s non applicabile",
+                                    listino.getUnitaConfezione(ingrediente.getIdNome())));
+                        }
+                        sb.append(String.format(": € %.2f\n", costoIngrediente));
+                    }
+                    sb.append("\n");
+                }
+                categorieFormattate++;
+                setProgress(60 + 40 * categorieFormattate / ingredientiPerCategoria.size());
+            }
+            
+            sb.append(String.format(UIUtils.LISTA_SPESA_FOOTER, costoTotale));
+            return sb.toString();
+        }
+        
+        @Override
+        protected void done() {
+            // Un'elaborazione superata da una più recente non pubblica nulla
+            if (isCancelled() || this != elaborazioneInCorso) {
+                return;
+            }
+            elaborazioneInCorso = null;
+            barraElaborazione.setVisible(false);
+            
+            String testo;
+            try {
+                testo = get();
+            } catch (InterruptedException | ExecutionException e) {
+                UIUtils.mostraMessaggioModerno(DiarioGUI.this,
+                    "Errore nella generazione della lista della spesa: " + e.getCause(),
+                    "Errore", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            // Aggiorna l'interfaccia
+            areaListaSpesa.setText(testo);
+            labelCostoTotale.setText(String.format("Costo Totale: € %.2f", costoTotale));
+            
+            if (conferma) {
+                // Mostra un messaggio di conferma moderno
+                UIUtils.mostraMessaggioModerno(
+                    DiarioGUI.this,
+                    String.format("Lista della spesa generata con successo!\nCosto totale: € %.2f", costoTotale), 
+                    "Lista Generata", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Raggruppa gli ingredienti della lista per categoria e per nome.
+     * Non dipende dallo stato della finestra, così da poter essere misurato anche senza display
+     */
+    static Map<String, Map<String, List<Ingrediente>>> raggruppaIngredientiPerCategoria(
+            Map<String, Ingrediente> listaSpesa, ClassificatoreCategorie classificatore) {
+        Map<String, Map<String, List<Ingrediente>>> ingredientiPerCategoria = new TreeMap<>();
+        
+        for (Ingrediente ingrediente : listaSpesa.values()) {
+            // La categoria è calcolata una volta per nome di ingrediente
+            String categoria = classificatore.classifica(ingrediente);
+            
+            // Inizializza le mappe se necessario usando computeIfAbsent
+            Map<String, List<Ingrediente>> mappaCategoria = ingredientiPerCategoria
+                .computeIfAbsent(categoria, k -> new TreeMap<>());
+            
+            List<Ingrediente> listaIngredienti = mappaCategoria
+                .computeIfAbsent(ingrediente.getNome(), k -> new ArrayList<>());
+            
+            // Aggiungi l'ingrediente alla lista
+            listaIngredienti.add(ingrediente);
+        }
+        
+        return ingredientiPerCategoria;
+    }
+}
+
+/**
+ * Finestra di avvio che mostra l'avanzamento del caricamento di ogni file
+ * e il relativo tempo di caricamento
+ */
+class SplashCaricamento extends JWindow implements PipelineAvvio.Ascoltatore {
+    private final Map<String, JProgressBar> barrePerFile = new HashMap<>();
+    private final Map<String, JLabel> etichettePerFile = new HashMap<>();
+    private final JProgressBar barraTotale;
+    
+    public SplashCaricamento(List<String> nomiFile) {
+        JPanel panel = UIUtils.createStandardPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(UIUtils.BUTTON_BORDER, 1, true),
+            BorderFactory.createEmptyBorder(15, 20, 15, 20)
+        ));
+        
+        JLabel labelTitolo = new JLabel("Diario Alimentare Settimanale", JLabel.LEFT);
+        labelTitolo.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        labelTitolo.setForeground(new Color(50, 80, 120));
+        panel.add(labelTitolo, BorderLayout.NORTH);
+        
+        // Una riga per ogni file con barra di avanzamento e tempo di caricamento
+        JPanel righePanel = new JPanel(new GridLayout(nomiFile.size(), 1, 0, 6));
+        righePanel.setOpaque(false);
+        for (String nomeFile : nomiFile) {
+            JPanel riga = new JPanel(new BorderLayout(10, 0));
+            riga.setOpaque(false);
+            
+            JLabel labelFile = new JLabel(nomeFile);
+            labelFile.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            labelFile.setPreferredSize(new Dimension(110, 20));
+            
+            JProgressBar barra = new JProgressBar(0, 1);
+            barra.setPreferredSize(new Dimension(140, 14));
+            
+            JLabel labelEsito = new JLabel("in attesa");
+            labelEsito.setFont(new Font("Segoe UI", Font.ITALIC, 11));
+            labelEsito.setForeground(new Color(80, 80, 80));
+            labelEsito.setPreferredSize(new Dimension(150, 20));
+            
+            riga.add(labelFile, BorderLayout.WEST);
+            riga.add(barra, BorderLayout.CENTER);
+            riga.add(labelEsito, BorderLayout.EAST);
+            righePanel.add(riga);
+            
+            barrePerFile.put(nomeFile, barra);
+            etichettePerFile.put(nomeFile, labelEsito);
+        }
+        panel.add(righePanel, BorderLayout.CENTER);
+        
+        barraTotale = new JProgressBar(0, nomiFile.size());
+        barraTotale.setStringPainted(true);
+        barraTotale.setString("Caricamento in corso...");
+        panel.add(barraTotale, BorderLayout.SOUTH);
+        
+        setContentPane(panel);
+        pack();
+        setLocationRelativeTo(null);
+    }
+    
+    @Override
+    public void caricamentoIniziato(String nomeFile) {
+        SwingUtilities.invokeLater(() -> {
+            JProgressBar barra = barrePerFile.get(nomeFile);
+            if (barra != null) {
+                barra.setIndeterminate(true);
+                etichettePerFile.get(nomeFile).setText("caricamento...");
+            }
+        });
+    }
+    
+    @Override
+    public void caricamentoCompletato(String nomeFile, int elementi, long durataNanos) {
+        SwingUtilities.invokeLater(() -> {
+            JProgressBar barra = barrePerFile.get(nomeFile);
+            if (barra != null) {
+                barra.setIndeterminate(false);
+                barra.setValue(barra.getMaximum());
+                etichettePerFile.get(nomeFile).setText(String.format("%,d %s in %d ms",
+                    elementi, isRicettario(nomeFile) ? "ricette" : "prezzi", durataNanos / 1_000_000));
+            }
+            barraTotale.setValue(barraTotale.getValue() + 1);
+            if (barraTotale.getValue() == barraTotale.getMaximum()) {
+                barraTotale.setString("Caricamento completato");
+            }
+        });
+    }
+    
+    private static boolean isRicettario(String nomeFile) {
+        for (TipoPasto tipo : TipoPasto.values()) {
+            if (tipo.getNomeFile().equals(nomeFile)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,158 @@
+package diario;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Unità di misura riconosciute, ognuna con l'unità base della sua grandezza
+ * (grammi, millilitri o pezzi) e il fattore di conversione. Le quantità
+ * vengono convertite nell'unità base una sola volta alla creazione degli
+ * ingredienti, così che "200 g" e "1 kg" dello stesso ingrediente finiscano
+ * nella stessa riga della lista della spesa
+ */
+enum UnitaMisura {
+    MILLIGRAMMI("g", 0.001, "mg"),
+    GRAMMI("g", 1, "g", "gr", "grammi", "grammo"),
+    ETTOGRAMMI("g", 100, "hg", "etto", "etti"),
+    CHILOGRAMMI("g", 1000, "kg", "chilo", "chili"),
+    MILLILITRI("ml", 1, "ml"),
+    CENTILITRI("ml", 10, "cl"),
+    DECILITRI("ml", 100, "dl"),
+    LITRI("ml", 1000, "l", "lt", "litro", "litri"),
+    PEZZI("pz", 1, "pz", "pezzo", "pezzi");
+
+    private static final Map<String, UnitaMisura> PER_SIMBOLO = new HashMap<>();
+
+    static {
+        for (UnitaMisura unita : values()) {
+            for (String simbolo : unita.simboli) {
+                PER_SIMBOLO.put(simbolo, unita);
+            }
+        }
+    }
+
+    private final String unitaBase;
+    private final double fattore;
+    private final String[] simboli;
+
+    UnitaMisura(String unitaBase, double fattore, String... simboli) {
+        this.unitaBase = unitaBase;
+        this.fattore = fattore;
+        this.simboli = simboli;
+    }
+
+    /**
+     * Unità corrispondente a un simbolo, senza distinguere maiuscole e minuscole,
+     * o null se il simbolo non è riconosciuto
+     */
+    public static UnitaMisura cerca(String simbolo) {
+        UnitaMisura unita = PER_SIMBOLO.get(simbolo);
+        return unita != null ? unita : PER_SIMBOLO.get(simbolo.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public String getUnitaBase() {
+        return unitaBase;
+    }
+
+    /**
+     * Converte una quantità espressa in questa unità nell'unità base
+     */
+    public double inUnitaBase(double quantita) {
+        return quantita * fattore;
+    }
+}
+
+/**
+ * Prezzo di un ingrediente nel volantino: per unità base, quando l'ingrediente
+ * è venduto sfuso, o per confezione di una quantità fissa. Il prezzo per unità
+ * base serve al costo delle ricette; la confezione all'arrotondamento della
+ * lista della spesa
+ */
+final class PrezzoIngrediente {
+    private final double prezzo;
+    private final double confezione;
+    private final String unitaConfezione; // unità base della confezione, null se sfuso o non riconosciuta
+
+    private PrezzoIngrediente(double prezzo, double confezione, String unitaConfezione) {
+        this.prezzo = prezzo;
+        this.confezione = confezione;
+        this.unitaConfezione = unitaConfezione;
+    }
+
+    /**
+     * Prezzo per unità base di un ingrediente venduto sfuso
+     */
+    static PrezzoIngrediente sfuso(double prezzo) {
+        return new PrezzoIngrediente(prezzo, 0.0, null);
+    }
+
+    /**
+     * Prezzo per unità base con la confezione già espressa in unità base,
+     * zero se l'ingrediente è venduto sfuso
+     * @param unitaConfezione l'unità base della confezione, null se non nota
+     */
+    static PrezzoIngrediente inUnitaBase(double prezzo, double confezione, String unitaConfezione) {
+        return new PrezzoIngrediente(prezzo, confezione, confezione > 0 ? unitaConfezione : null);
+    }
+    
+    /**
+     * Prezzo di una confezione della quantità indicata; le unità non
+     * riconosciute valgono come unità base di qualsiasi grandezza
+     */
+    static PrezzoIngrediente perConfezione(double prezzoConfezione, double quantita, String unita) {
+        if (!(quantita > 0)) {
+            throw new IllegalArgumentException("La quantità della confezione deve essere positiva: " + quantita);
+        }
+        UnitaMisura misura = UnitaMisura.cerca(unita);
+        double confezione = misura != null ? misura.inUnitaBase(quantita) : quantita;
+        return new PrezzoIngrediente(prezzoConfezione / confezione, confezione,
+            misura != null ? misura.getUnitaBase() : null);
+    }
+
+    /**
+     * Prezzo per unità base
+     */
+    public double getPrezzo() {
+        return prezzo;
+    }
+
+    /**
+     * Quantità di una confezione in unità base, zero se l'ingrediente è venduto sfuso
+     */
+    public double getConfezione() {
+        return confezione;
+    }
+
+    /**
+     * Unità base in cui è espressa la confezione ("g", "ml" o "pz"), null se
+     * l'ingrediente è venduto sfuso o l'unità non è riconosciuta
+     */
+    public String getUnitaConfezione() {
+        return unitaConfezione;
+    }
+
+    @Override
+    public boolean equals(Object altro) {
+        if (!(altro instanceof PrezzoIngrediente)) return false;
+        PrezzoIngrediente prezzoAltro = (PrezzoIngrediente) altro;
+        return Double.compare(prezzo, prezzoAltro.prezzo) == 0 && Double.compare(confezione, prezzoAltro.confezione) == 0
+            && Objects.equals(unitaConfezione, prezzoAltro.unitaConfezione);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Double.hashCode(prezzo) * 31 + Double.hashCode(confezione)) * 31 + Objects.hashCode(unitaConfezione);
+    }
+
+    @Override
+    public String toString() {
+        if (!(confezione > 0)) {
+            return String.format("€ %.4f", prezzo);
+        }
+        return unitaConfezione != null
+            ? String.format("€ %.4f (confezione da %.2f %s)", prezzo, confezione, unitaConfezione)
+            : String.format("€ %.4f (confezione da %.2f)", prezzo, confezione);
+    }
+}
@@ -0,0 +1,177 @@
+package diario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Le tre modalità di caricamento devono produrre le stesse ricette: il testo
+ * usa String.split e Double.parseDouble, le altre due il parser sui byte del
+ * file mappato
+ */
+class CaricamentoRicetteTest {
+
+    // Quantità lette dal percorso veloce (fino a 15 cifre) e da Double.parseDouble
+    private static final String[] QUANTITA = {
+        "0", "1", "100", "12.5", "0.1", "0.3", ".5", "5.", "007", "  7.25  ",
+        "+3", "-3", "-0", "+0.0", "-12.75",
+        "123456789012345", "12345678901234.5", "0.12345678901234",
+        "1234567890123456", "9007199254740993", "12345678901234567890",
+        "0.1234567890123456789", "0.00000000000000000000000001",
+        // Oltre 15 cifre mantissa / 10^decimali arrotonderebbe due volte
+        "45583.796385282714", "4395736.7902130145", "6059341.62802102969",
+        "1e3", "1E3", "1.5e-2", "-2.5e+4", "6.02214076e23", "1e-320"
+    };
+
+    @TempDir
+    Path cartella;
+
+    @Test
+    void stesseRicetteDalFileDiProva() throws IOException {
+        Path file = copiaRisorsa("casi_limite.txt");
+        Map<ModalitaCaricamento, List<String>> esiti = caricaInTutteLeModalita(file);
+
+        List<String> attese = esiti.get(ModalitaCaricamento.TESTO);
+        assertEquals(5, attese.stream().filter(riga -> !riga.startsWith(" ")).count());
+        assertEquals(attese, esiti.get(ModalitaCaricamento.MAPPATO));
+        assertEquals(attese, esiti.get(ModalitaCaricamento.STREAMING));
+    }
+
+    @Test
+    void stesseRicetteConFineRigaWindows() throws IOException {
+        Path originale = copiaRisorsa("casi_limite.txt");
+        Path file = cartella.resolve("crlf.txt");
+        Files.writeString(file, Files.readString(originale, StandardCharsets.UTF_8).replace("\n", "\r\n"),
+            StandardCharsets.UTF_8);
+
+        Map<ModalitaCaricamento, List<String>> esiti = caricaInTutteLeModalita(file);
+        assertEquals(descrivi(carica(ModalitaCaricamento.TESTO, originale)), esiti.get(ModalitaCaricamento.TESTO));
+        assertEquals(esiti.get(ModalitaCaricamento.TESTO), esiti.get(ModalitaCaricamento.MAPPATO));
+        assertEquals(esiti.get(ModalitaCaricamento.TESTO), esiti.get(ModalitaCaricamento.STREAMING));
+    }
+
+    @Test
+    void quantitaLetteComeDoubleParseDouble() throws IOException {
+        StringBuilder contenuto = new StringBuilder();
+        for (int i = 0; i < QUANTITA.length; i++) {
+            contenuto.append("Ricetta ").append(i).append('\n')
+                .append("- farina,").append(QUANTITA[i]).append(", pz\n");
+        }
+        Path file = cartella.resolve("quantita.txt");
+        Files.writeString(file, contenuto, StandardCharsets.UTF_8);
+
+        for (ModalitaCaricamento modalita : ModalitaCaricamento.values()) {
+            List<Ricetta> ricettario = carica(modalita, file);
+            assertEquals(QUANTITA.length, ricettario.size());
+            for (int i = 0; i < QUANTITA.length; i++) {
+                List<Ingrediente> ingredienti = ricettario.get(i).getIngredienti();
+                assertEquals(1, ingredienti.size(), modalita + " \"" + QUANTITA[i] + "\"");
+                // Confronto bit a bit, così da distinguere anche -0.0 da 0.0
+                assertEquals(Double.doubleToRawLongBits(Double.parseDouble(QUANTITA[i].trim())),
+                    Double.doubleToRawLongBits(ingredienti.get(0).getQuantita()), modalita + " \"" + QUANTITA[i] + "\"");
+            }
+        }
+    }
+
+    @Test
+    void campiDivisiComeStringSplit() throws IOException {
+        String[] righe = {
+            "farina, 1, g", "farina,1,g", "farina, 1, g, extra", "farina, 1,", "farina, 1,,",
+            "farina, 1, ,", "farina,,1,g", ", 1, g", ",1,g,", "farina", "farina, 1", ",,,", ", , ,",
+            "farina, 1.0.0, g", "farina, uno, g", "farina, 1 0, g"
+        };
+        StringBuilder contenuto = new StringBuilder();
+        for (int i = 0; i < righe.length; i++) {
+            contenuto.append("Ricetta ").append(i).append("\n- ").append(righe[i]).append('\n');
+        }
+        Path file = cartella.resolve("campi.txt");
+        Files.writeString(file, contenuto, StandardCharsets.UTF_8);
+
+        for (ModalitaCaricamento modalita : ModalitaCaricamento.values()) {
+            List<Ricetta> ricettario = carica(modalita, file);
+            for (int i = 0; i < righe.length; i++) {
+                String[] parti = righe[i].split(",");
+                String attesa = parti.length >= 3 && numerico(parti[1].trim())
+                    ? parti[0].trim() + "|" + Double.parseDouble(parti[1].trim()) + "|" + parti[2].trim()
+                    : null;
+                List<Ingrediente> ingredienti = ricettario.get(i).getIngredienti();
+                String letta = ingredienti.isEmpty() ? null : ingredienti.get(0).getNome() + "|"
+                    + ingredienti.get(0).getQuantita() + "|" + ingredienti.get(0).getUnita();
+                assertEquals(attesa, letta, modalita + " \"" + righe[i] + "\"");
+            }
+        }
+    }
+
+    @Test
+    void ricettarioInStreamingRiletto() throws IOException {
+        Path file = copiaRisorsa("casi_limite.txt");
+        GestoreRicette gestore = new GestoreRicette();
+        gestore.setModalitaCaricamento(ModalitaCaricamento.STREAMING);
+        gestore.setCapacitaRicetteMaterializzate(1);
+        gestore.caricaRicettePerTipo(TipoPasto.PRANZO, file.toString());
+        List<Ricetta> ricettario = gestore.getRicettario(TipoPasto.PRANZO);
+
+        // Con una sola ricetta in memoria ogni passata rilegge le ricette dal file
+        List<String> attese = descrivi(carica(ModalitaCaricamento.TESTO, file));
+        assertEquals(attese, descrivi(ricettario));
+        assertEquals(attese, descrivi(ricettario));
+    }
+
+    private static boolean numerico(String testo) {
+        try {
+            Double.parseDouble(testo);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private Map<ModalitaCaricamento, List<String>> caricaInTutteLeModalita(Path file) throws IOException {
+        Map<ModalitaCaricamento, List<String>> esiti = new EnumMap<>(ModalitaCaricamento.class);
+        for (ModalitaCaricamento modalita : ModalitaCaricamento.values()) {
+            esiti.put(modalita, descrivi(carica(modalita, file)));
+        }
+        return esiti;
+    }
+
+    private static List<Ricetta> carica(ModalitaCaricamento modalita, Path file) throws IOException {
+        GestoreRicette gestore = new GestoreRicette();
+        gestore.setModalitaCaricamento(modalita);
+        gestore.caricaRicettePerTipo(TipoPasto.PRANZO, file.toString());
+        return gestore.getRicettario(TipoPasto.PRANZO);
+    }
+
+    /**
+     * Una riga per ricetta e una, rientrata, per ogni ingrediente con la quantità bit a bit
+     */
+    private static List<String> descrivi(List<Ricetta> ricettario) {
+        List<String> righe = new ArrayList<>();
+        for (Ricetta ricetta : ricettario) {
+            righe.add(ricetta.getNome());
+            for (Ingrediente ingrediente : ricetta.getIngredienti()) {
+                righe.add(" " + ingrediente.getNome() + "|" + ingrediente.getUnita() + "|"
+                    + Long.toHexString(Double.doubleToRawLongBits(ingrediente.getQuantita())));
+            }
+        }
+        return righe;
+    }
+
+    private Path copiaRisorsa(String nome) throws IOException {
+        Path file = cartella.resolve(nome);
+        try (InputStream risorsa = getClass().getResourceAsStream(nome)) {
+            Files.copy(risorsa, file);
+        }
+        return file;
+    }
+}
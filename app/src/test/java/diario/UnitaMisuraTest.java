@@ -0,0 +1,98 @@
+package diario;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Conversioni nell'unità base delle quantità degli ingredienti e delle confezioni del volantino
+ */
+class UnitaMisuraTest {
+
+    @Test
+    void simboliRiconosciuti() {
+        assertSame(UnitaMisura.GRAMMI, UnitaMisura.cerca("g"));
+        assertSame(UnitaMisura.GRAMMI, UnitaMisura.cerca("gr"));
+        assertSame(UnitaMisura.CHILOGRAMMI, UnitaMisura.cerca("KG"));
+        assertSame(UnitaMisura.CHILOGRAMMI, UnitaMisura.cerca(" Chilo "));
+        assertSame(UnitaMisura.ETTOGRAMMI, UnitaMisura.cerca("etti"));
+        assertSame(UnitaMisura.LITRI, UnitaMisura.cerca("lt"));
+        assertSame(UnitaMisura.PEZZI, UnitaMisura.cerca("pezzi"));
+        assertNull(UnitaMisura.cerca("cucchiai"));
+        assertNull(UnitaMisura.cerca(""));
+    }
+
+    @Test
+    void conversioneNellUnitaBase() {
+        assertEquals(0.25, UnitaMisura.MILLIGRAMMI.inUnitaBase(250));
+        assertEquals(200.0, UnitaMisura.GRAMMI.inUnitaBase(200));
+        assertEquals(300.0, UnitaMisura.ETTOGRAMMI.inUnitaBase(3));
+        assertEquals(1500.0, UnitaMisura.CHILOGRAMMI.inUnitaBase(1.5));
+        assertEquals(50.0, UnitaMisura.CENTILITRI.inUnitaBase(5));
+        assertEquals(200.0, UnitaMisura.DECILITRI.inUnitaBase(2));
+        assertEquals(750.0, UnitaMisura.LITRI.inUnitaBase(0.75));
+        assertEquals(4.0, UnitaMisura.PEZZI.inUnitaBase(4));
+
+        assertEquals("g", UnitaMisura.CHILOGRAMMI.getUnitaBase());
+        assertEquals("ml", UnitaMisura.LITRI.getUnitaBase());
+        assertEquals("pz", UnitaMisura.PEZZI.getUnitaBase());
+    }
+
+    @Test
+    void ingredientiNellaStessaRigaDellaListaSpesa() {
+        Ingrediente chilo = IngredienteFactory.crea("farina", 1, "kg");
+        Ingrediente grammi = IngredienteFactory.crea("farina", 200, "g");
+        assertEquals(1000.0, chilo.getQuantita());
+        assertEquals("g", chilo.getUnita());
+        assertEquals(grammi.getId(), chilo.getId());
+
+        // Le unità non riconosciute restano invariate
+        Ingrediente cucchiai = IngredienteFactory.crea("zucchero", 3, "cucchiai");
+        assertEquals(3.0, cucchiai.getQuantita());
+        assertEquals("cucchiai", cucchiai.getUnita());
+    }
+
+    @Test
+    void prezzoPerConfezione() {
+        PrezzoIngrediente chilo = PrezzoIngrediente.perConfezione(1.20, 1, "kg");
+        assertEquals(1.20 / 1000, chilo.getPrezzo());
+        assertEquals(1000.0, chilo.getConfezione());
+        assertEquals("g", chilo.getUnitaConfezione());
+
+        PrezzoIngrediente bottiglia = PrezzoIngrediente.perConfezione(0.90, 75, "cl");
+        assertEquals(0.90 / 750, bottiglia.getPrezzo());
+        assertEquals(750.0, bottiglia.getConfezione());
+        assertEquals("ml", bottiglia.getUnitaConfezione());
+
+        PrezzoIngrediente uova = PrezzoIngrediente.perConfezione(2.40, 6, "pz");
+        assertEquals(0.40, uova.getPrezzo(), 1e-12);
+        assertEquals("pz", uova.getUnitaConfezione());
+    }
+
+    @Test
+    void confezioneInUnitaNonRiconosciuta() {
+        PrezzoIngrediente barattolo = PrezzoIngrediente.perConfezione(3.0, 2, "barattoli");
+        assertEquals(1.5, barattolo.getPrezzo());
+        assertEquals(2.0, barattolo.getConfezione());
+        assertNull(barattolo.getUnitaConfezione());
+    }
+
+    @Test
+    void confezioneSenzaQuantitaPositiva() {
+        assertThrows(IllegalArgumentException.class, () -> PrezzoIngrediente.perConfezione(1.0, 0, "kg"));
+        assertThrows(IllegalArgumentException.class, () -> PrezzoIngrediente.perConfezione(1.0, -1, "kg"));
+        assertThrows(IllegalArgumentException.class, () -> PrezzoIngrediente.perConfezione(1.0, Double.NaN, "kg"));
+    }
+
+    @Test
+    void prezzoSfusoSenzaConfezione() {
+        PrezzoIngrediente sfuso = PrezzoIngrediente.sfuso(0.002);
+        assertEquals(0.002, sfuso.getPrezzo());
+        assertEquals(0.0, sfuso.getConfezione());
+        assertNull(sfuso.getUnitaConfezione());
+        assertNull(PrezzoIngrediente.inUnitaBase(0.002, 0, "g").getUnitaConfezione());
+    }
+}
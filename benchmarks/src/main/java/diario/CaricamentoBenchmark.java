@@ -0,0 +1,119 @@
+package diario;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misura il caricamento dei ricettari e l'applicazione dei prezzi
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+public class CaricamentoBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class File {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int numeroRicette;
+        
+        Path cartella;
+        Map<TipoPasto, Path> ricettari;
+        Path volantino;
+        
+        @Setup(Level.Trial)
+        public void genera() throws IOException {
+            cartella = Files.createTempDirectory("diario-bench");
+            ricettari = GeneratoreRicettari.generaRicettari(cartella, numeroRicette);
+            volantino = GeneratoreRicettari.generaVolantino(cartella);
+        }
+        
+        @TearDown(Level.Trial)
+        public void elimina() throws IOException {
+            GeneratoreRicettari.elimina(cartella);
+        }
+    }
+    
+    /**
+     * Gestore vuoto per ogni invocazione; le ricette caricate vengono poi
+     * rimosse dall'indice inverso dei prezzi, che altrimenti crescerebbe tra le invocazioni
+     */
+    @State(Scope.Thread)
+    public static class GestoreVuoto {
+        @Param({"TESTO", "MAPPATO", "STREAMING"})
+        public String modalita;
+        
+        @Param({"HEAP", "FUORI_HEAP"})
+        public String archivio;
+        
+        GestoreRicette gestore;
+        
+        @Setup(Level.Invocation)
+        public void crea() {
+            gestore = new GestoreRicette();
+            gestore.setModalitaCaricamento(ModalitaCaricamento.valueOf(modalita));
+            gestore.setArchivioIngredienti(ArchivioIngredienti.valueOf(archivio));
+        }
+        
+        @TearDown(Level.Invocation)
+        public void dismetti() {
+            gestore.dismettiRicettari();
+        }
+    }
+    
+    /**
+     * Gestore con i ricettari già caricati e il listino azzerato prima di ogni invocazione
+     */
+    @State(Scope.Thread)
+    public static class GestoreCaricato {
+        GestoreRicette gestore;
+        
+        @Setup(Level.Trial)
+        public void carica(File file) throws IOException {
+            gestore = new GestoreRicette();
+            for (Map.Entry<TipoPasto, Path> ricettario : file.ricettari.entrySet()) {
+                gestore.caricaRicettePerTipo(ricettario.getKey(), ricettario.getValue().toString());
+            }
+        }
+        
+        @Setup(Level.Invocation)
+        public void azzeraPrezzi() {
+            IngredienteFactory.reset();
+        }
+        
+        @TearDown(Level.Trial)
+        public void dismetti() {
+            gestore.dismettiRicettari();
+        }
+    }
+    
+    @Benchmark
+    public int caricaRicettePerTipo(File file, GestoreVuoto stato) throws IOException {
+        stato.gestore.caricaRicettePerTipo(TipoPasto.PRANZO, file.ricettari.get(TipoPasto.PRANZO).toString());
+        return stato.gestore.getRicettario(TipoPasto.PRANZO).size();
+    }
+    
+    @Benchmark
+    public long caricaPrezzi(File file, GestoreCaricato stato) throws IOException {
+        stato.gestore.caricaPrezzi(file.volantino.toString());
+        return IngredienteFactory.getListino().getVersione();
+    }
+}
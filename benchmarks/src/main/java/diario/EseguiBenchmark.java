@@ -0,0 +1,23 @@
+package diario;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Avvia i benchmark JMH con il profiler GC sempre attivo, così che ogni
+ * esecuzione riporti anche il tasso di allocazione (gc.alloc.rate.norm).
+ * Accetta le stesse opzioni della riga di comando di JMH
+ */
+public class EseguiBenchmark {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions opzioni = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+            .parent(opzioni)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
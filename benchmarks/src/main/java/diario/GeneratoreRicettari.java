@@ -0,0 +1,84 @@
+package diario;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Genera ricettari e volantini sintetici, deterministici, nel formato dei file dell'applicazione
+ */
+final class GeneratoreRicettari {
+    static final int NUMERO_INGREDIENTI = 2000;
+    private static final String[] UNITA = {"g", "ml", "pz"};
+    private static final String[] BASI = {
+        "farina", "latte", "pomodoro", "pollo", "salmone", "mela", "olio", "pasta", "formaggio", "carota"
+    };
+    
+    private GeneratoreRicettari() {}
+    
+    /**
+     * Scrive un ricettario per ogni tipo di pasto, dividendo tra loro il numero di ricette
+     */
+    static Map<TipoPasto, Path> generaRicettari(Path cartella, int numeroRicette) throws IOException {
+        Map<TipoPasto, Path> file = new EnumMap<>(TipoPasto.class);
+        Random random = new Random(42);
+        TipoPasto[] tipi = TipoPasto.values();
+        
+        for (int t = 0; t < tipi.length; t++) {
+            Path ricettario = cartella.resolve(tipi[t].getNomeFile());
+            int ricetteDelTipo = numeroRicette / tipi.length + (t < numeroRicette % tipi.length ? 1 : 0);
+            try (BufferedWriter out = Files.newBufferedWriter(ricettario)) {
+                for (int i = 0; i < ricetteDelTipo; i++) {
+                    out.write(tipi[t].getNome() + " " + i);
+                    out.newLine();
+                    int numeroIngredienti = 3 + random.nextInt(8);
+                    for (int j = 0; j < numeroIngredienti; j++) {
+                        int ingrediente = random.nextInt(NUMERO_INGREDIENTI);
+                        out.write("- " + nomeIngrediente(ingrediente) + ", "
+                            + (1 + random.nextInt(500)) + "." + random.nextInt(10) + ", "
+                            + UNITA[ingrediente % UNITA.length]);
+                        out.newLine();
+                    }
+                }
+            }
+            file.put(tipi[t], ricettario);
+        }
+        return file;
+    }
+    
+    /**
+     * Scrive un volantino con un prezzo per ogni ingrediente generato
+     */
+    static Path generaVolantino(Path cartella) throws IOException {
+        Path volantino = cartella.resolve("volantino.txt");
+        Random random = new Random(7);
+        try (BufferedWriter out = Files.newBufferedWriter(volantino)) {
+            for (int i = 0; i < NUMERO_INGREDIENTI; i++) {
+                out.write(nomeIngrediente(i) + ", " + random.nextInt(10) + "." + random.nextInt(100));
+                out.newLine();
+            }
+        }
+        return volantino;
+    }
+    
+    static String nomeIngrediente(int indice) {
+        return BASI[indice % BASI.length] + " " + indice;
+    }
+    
+    static void elimina(Path cartella) throws IOException {
+        if (cartella == null || !Files.exists(cartella)) {
+            return;
+        }
+        try (Stream<Path> file = Files.walk(cartella)) {
+            for (Path path : (Iterable<Path>) file.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
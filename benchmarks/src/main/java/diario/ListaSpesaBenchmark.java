@@ -0,0 +1,154 @@
+package diario;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misura aggregazione della lista della spesa, costo totale, ricerca per nome
+ * e raggruppamento per categoria su un catalogo già caricato
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ListaSpesaBenchmark {
+    private static final String[] GIORNI = {"Lunedì", "Martedì", "Mercoledì", "Giovedì", "Venerdì", "Sabato", "Domenica"};
+    
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int numeroRicette;
+    
+    private Path cartella;
+    private GestoreRicette gestore;
+    private Map<String, Map<TipoPasto, List<Ricetta>>> pianificazione;
+    private PianoPasti piano;
+    private Map<String, Ingrediente> listaSpesa;
+    private ClassificatoreCategorie classificatore;
+    private String[] nomiDaCercare;
+    private int prossimoNome = 0;
+    
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        cartella = Files.createTempDirectory("diario-bench");
+        Map<TipoPasto, Path> ricettari = GeneratoreRicettari.generaRicettari(cartella, numeroRicette);
+        Path volantino = GeneratoreRicettari.generaVolantino(cartella);
+        
+        gestore = new GestoreRicette();
+        for (Map.Entry<TipoPasto, Path> ricettario : ricettari.entrySet()) {
+            gestore.caricaRicettePerTipo(ricettario.getKey(), ricettario.getValue().toString());
+        }
+        gestore.caricaPrezzi(volantino.toString());
+        
+        // Pianificazione di una mensa: tutte le ricette del catalogo distribuite sui giorni
+        pianificazione = new LinkedHashMap<>();
+        for (String giorno : GIORNI) {
+            Map<TipoPasto, List<Ricetta>> pasti = new EnumMap<>(TipoPasto.class);
+            for (TipoPasto tipo : TipoPasto.values()) {
+                pasti.put(tipo, new ArrayList<>());
+            }
+            pianificazione.put(giorno, pasti);
+        }
+        for (TipoPasto tipo : TipoPasto.values()) {
+            List<Ricetta> ricettario = gestore.getRicettario(tipo);
+            for (int i = 0; i < ricettario.size(); i++) {
+                pianificazione.get(GIORNI[i % GIORNI.length]).get(tipo).add(ricettario.get(i));
+            }
+        }
+        
+        // Piano di una mensa: un nucleo ogni 100 ricette del catalogo, per quattro settimane
+        List<String> nuclei = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, numeroRicette / 100); i++) {
+            nuclei.add("Nucleo " + i);
+        }
+        piano = new PianoPasti(LocalDate.of(2025, 1, 6), 4, nuclei);
+        int prossima = 0;
+        for (int nucleo = 0; nucleo < piano.getNumeroNuclei(); nucleo++) {
+            for (int giorno = 0; giorno < piano.getNumeroGiorni(); giorno++) {
+                PianificazioneGiornaliera giornata = piano.getGiornata(nucleo, giorno);
+                for (TipoPasto tipo : TipoPasto.values()) {
+                    List<Ricetta> ricettario = gestore.getRicettario(tipo);
+                    for (int i = 0; i < tipo.getMaxRicette(); i++) {
+                        giornata.aggiungiRicetta(tipo, ricettario.get(prossima++ % ricettario.size()));
+                    }
+                }
+            }
+        }
+        
+        listaSpesa = gestore.generaListaSpesa(pianificazione);
+        classificatore = ClassificatoreCategorie.predefinito();
+        
+        // Nomi distribuiti sul catalogo, in maiuscolo per esercitare il confronto case-insensitive
+        List<Ricetta> tutte = gestore.getTutteLeRicette();
+        nomiDaCercare = new String[64];
+        for (int i = 0; i < nomiDaCercare.length; i++) {
+            nomiDaCercare[i] = tutte.get((int) ((long) i * tutte.size() / nomiDaCercare.length)).getNome().toUpperCase();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void elimina() throws IOException {
+        gestore.dismettiRicettari();
+        GeneratoreRicettari.elimina(cartella);
+    }
+    
+    @Benchmark
+    public int generaListaSpesa() {
+        return gestore.generaListaSpesa(pianificazione).size();
+    }
+    
+    @Benchmark
+    public int generaListaSpesaPiano() {
+        return gestore.generaListaSpesa(piano).size();
+    }
+    
+    @Benchmark
+    public double calcolaCostoTotale() {
+        return gestore.calcolaCostoTotale(listaSpesa);
+    }
+    
+    @Benchmark
+    public boolean getRicettaPerNome() {
+        String nome = nomiDaCercare[prossimoNome++ & (nomiDaCercare.length - 1)];
+        return gestore.getRicettaPerNome(nome).isPresent();
+    }
+    
+    @Benchmark
+    public int cercaPerPrefisso() {
+        String nome = nomiDaCercare[prossimoNome++ & (nomiDaCercare.length - 1)];
+        return gestore.cercaPerPrefisso(nome.substring(0, nome.length() - 1), 20).size();
+    }
+    
+    @Benchmark
+    public int cercaPerSottostringa() {
+        String nome = nomiDaCercare[prossimoNome++ & (nomiDaCercare.length - 1)];
+        return gestore.cercaPerSottostringa(nome.substring(nome.indexOf(' ')), 20).size();
+    }
+    
+    @Benchmark
+    public int raggruppaIngredientiPerCategoria() {
+        return DiarioGUI.raggruppaIngredientiPerCategoria(listaSpesa, classificatore).size();
+    }
+}